@@ -1,36 +1,42 @@
 package sprites;
 
 import biuoop.DrawSurface;
+import game.AssetCache;
 import geometry.Rectangle;
 
-import javax.imageio.ImageIO;
 import java.awt.Image;
-import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A special block representing the death region that draws a fire texture.
+ * The texture may still be loading when the block is created (see {@link AssetCache});
+ * the block waits for it the first time it is drawn.
  */
 public class FireDeathRegion extends Block {
-    private Image fireImage;
+    private static final String FIRE_IMAGE = "fire for death region.jpg";
+
+    private final CompletableFuture<? extends Image> fireImage;
 
     /**
-     * Constructs a fire death region block using the given rectangle.
+     * Constructs a fire death region block using the given rectangle, with the
+     * fire texture from the shared asset cache.
      *
      * @param rect the rectangle shape and position of the block
      */
     public FireDeathRegion(Rectangle rect) {
-        super(rect, false, true); // Not removable, but is a death region
+        this(rect, AssetCache.shared().request(FIRE_IMAGE, (int) rect.getWidth(), (int) rect.getHeight()));
+    }
 
-        try {
-            // Load and scale the image to the block size
-            Image original = ImageIO.read(new File("fire for death region.jpg"));
-            int width = (int) rect.getWidth();
-            int height = (int) rect.getHeight();
-            fireImage = original.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        } catch (IOException e) {
-            System.err.println("Could not load fire image: " + e.getMessage());
-        }
+    /**
+     * Constructs a fire death region block that draws a texture that may still be loading.
+     *
+     * @param rect      the rectangle shape and position of the block
+     * @param fireImage the texture, scaled to the block size, completing with {@code null}
+     *                  if it could not be loaded
+     */
+    public FireDeathRegion(Rectangle rect, CompletableFuture<? extends Image> fireImage) {
+        super(rect, false, true); // Not removable, but is a death region
+        this.fireImage = fireImage;
     }
 
     /**
@@ -40,10 +46,11 @@ public class FireDeathRegion extends Block {
      */
     @Override
     public void drawOn(DrawSurface d) {
-        if (fireImage != null) {
+        Image loaded = fireImage.join();
+        if (loaded != null) {
             int x = (int) getCollisionRectangle().getUpperLeft().getX();
             int y = (int) getCollisionRectangle().getUpperLeft().getY();
-            d.drawImage(x, y, fireImage);
+            d.drawImage(x, y, loaded);
         } else {
             super.drawOn(d); // Fallback
         }
@@ -0,0 +1,92 @@
+import game.Game;
+import game.LevelGenerator;
+import game.ScriptedKeyboard;
+import geometry.Rectangle;
+import listeners.HitEventBus;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The {@code ParallelStepCheck} class is a test utility that checks that
+ * stepping the balls in parallel gives the same game as stepping them serially.
+ * It plays seeded stress levels from {@link LevelGenerator} twice, once on a
+ * pool of {@link #WORKERS} threads and once without a pool, compares the state
+ * hashes and the blocks hit after every tick, and the score and the remaining
+ * blocks at the end, and prints every level on which the two runs disagree.
+ */
+public class ParallelStepCheck {
+    static final long[] SEEDS = {1, 2, 3};
+    static final int[][] SIZES = {{100, 2000}, {1000, 3000}, {10000, 5000}};
+    static final long TICKS = 600;
+    static final int WORKERS = 4;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(WORKERS);
+    private static int mismatches;
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String[] args) {
+        int levels = 0;
+        for (long seed : SEEDS) {
+            for (int[] size : SIZES) {
+                for (boolean lasting : new boolean[] {true, false}) {
+                    compare(seed, size[0], size[1], lasting);
+                    levels++;
+                }
+            }
+        }
+        System.out.println("levels=" + levels + " mismatches=" + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Plays one level serially and in parallel, tick by tick, and reports the first difference
+    private static void compare(long seed, int blocks, int balls, boolean lasting) {
+        Game serial = start(seed, blocks, balls, lasting, false);
+        Game parallel = start(seed, blocks, balls, lasting, true);
+        long[] serialHits = hitHash(serial);
+        long[] parallelHits = hitHash(parallel);
+        String level = "seed=" + seed + " blocks=" + blocks + " balls=" + balls + " lasting=" + lasting;
+        for (long tick = 0; tick < TICKS; tick++) {
+            boolean goesOn = serial.tick();
+            if (goesOn != parallel.tick() || serial.stateHash() != parallel.stateHash()
+                    || serialHits[0] != parallelHits[0]) {
+                System.out.println("mismatch " + level + " at tick " + tick);
+                mismatches++;
+                return;
+            }
+            if (!goesOn) {
+                break;
+            }
+        }
+        if (serial.getScore() != parallel.getScore() || serial.getRemainingBlocks() != parallel.getRemainingBlocks()) {
+            System.out.println("mismatch " + level + ": score " + serial.getScore() + " / " + parallel.getScore()
+                    + ", blocks " + serial.getRemainingBlocks() + " / " + parallel.getRemainingBlocks());
+            mismatches++;
+        }
+    }
+
+    private static Game start(long seed, int blocks, int balls, boolean lasting, boolean parallel) {
+        Game game = new Game(new ScriptedKeyboard());
+        game.setSeed(seed);
+        game.setLevel(LevelGenerator.generate(seed, blocks, balls, lasting));
+        game.getBallSystem().setPool(parallel ? POOL : null);
+        game.initialize();
+        return game;
+    }
+
+    // Folds the position of every block hit, in the order of the hits, into a running hash
+    private static long[] hitHash(Game game) {
+        long[] hash = new long[1];
+        game.addHitListener((beingHit, hitter) -> {
+            Rectangle r = beingHit.getCollisionRectangle();
+            hash[0] = 31 * hash[0] + Double.hashCode(r.getUpperLeft().getX());
+            hash[0] = 31 * hash[0] + Double.hashCode(r.getUpperLeft().getY());
+        }, HitEventBus.Delivery.SYNC);
+        return hash;
+    }
+}
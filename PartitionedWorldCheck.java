@@ -0,0 +1,120 @@
+import game.Game;
+import game.LevelGenerator;
+import game.ScriptedKeyboard;
+import geometry.Point;
+import listeners.HitEventBus;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code PartitionedWorldCheck} class is a test utility that checks the
+ * games whose balls are stepped in the strips of a {@code PartitionedWorld}.
+ * On seeded stress levels from {@link LevelGenerator}, a game of one strip must
+ * match a game stepped serially tick by tick, and a game of several strips must
+ * play the same twice, keep every ball it was given, and remove no block twice.
+ * It prints every level on which a check fails.
+ */
+public class PartitionedWorldCheck {
+    static final long[] SEEDS = {1, 2};
+    static final int[][] SIZES = {{100, 2000}, {1000, 3000}};
+    static final int[] STRIPS = {2, 4, 8};
+    static final long TICKS = 300;
+
+    private static int mismatches;
+
+    /**
+     * Runs the checks.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String[] args) {
+        int levels = 0;
+        for (long seed : SEEDS) {
+            for (int[] size : SIZES) {
+                String level = "seed=" + seed + " blocks=" + size[0] + " balls=" + size[1];
+                compareSerial(seed, size[0], size[1], level);
+                for (int strips : STRIPS) {
+                    compareRuns(seed, size[0], size[1], strips, level + " strips=" + strips);
+                }
+                levels++;
+            }
+        }
+        System.out.println("levels=" + levels + " mismatches=" + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Plays one level serially and in a single strip, tick by tick, and reports the first difference
+    private static void compareSerial(long seed, int blocks, int balls, String level) {
+        Game serial = start(seed, blocks, balls, 0);
+        Game strip = start(seed, blocks, balls, 1);
+        for (long tick = 0; tick < TICKS; tick++) {
+            boolean goesOn = serial.tick();
+            if (goesOn != strip.tick() || serial.stateHash() != strip.stateHash()) {
+                fail(level + " strips=1", "differs from the serial game at tick " + tick);
+                break;
+            }
+            if (!goesOn) {
+                break;
+            }
+        }
+        strip.getWorld().close();
+    }
+
+    // Plays one level twice in the same strips, tick by tick, and checks the balls and the removed blocks
+    private static void compareRuns(long seed, int blocks, int balls, int strips, String level) {
+        Game first = start(seed, blocks, balls, strips);
+        Game second = start(seed, blocks, balls, strips);
+        Set<List<Double>> removed = new HashSet<>();
+        int[] removedTwice = new int[1];
+        first.addHitListener((beingHit, hitter) -> {
+            Point corner = beingHit.getCollisionRectangle().getUpperLeft();
+            if (beingHit.isRemovable() && !removed.add(List.of(corner.getX(), corner.getY()))) {
+                removedTwice[0]++;
+            }
+        }, HitEventBus.Delivery.SYNC);
+        int placed = first.getRemainingBlocks();
+        for (long tick = 0; tick < TICKS; tick++) {
+            boolean goesOn = first.tick();
+            if (goesOn != second.tick() || first.stateHash() != second.stateHash()) {
+                fail(level, "differs between two runs at tick " + tick);
+                break;
+            }
+            if (first.getWorld().getBallCount() != first.getRemainingBalls()) {
+                fail(level, "holds " + first.getWorld().getBallCount() + " balls of "
+                        + first.getRemainingBalls() + " at tick " + tick);
+                break;
+            }
+            if (!goesOn) {
+                break;
+            }
+        }
+        if (removedTwice[0] > 0 || placed - first.getRemainingBlocks() != removed.size()) {
+            fail(level, "removed " + removed.size() + " blocks, " + removedTwice[0] + " of them twice, and counted "
+                    + (placed - first.getRemainingBlocks()));
+        }
+        first.getWorld().close();
+        second.getWorld().close();
+    }
+
+    private static Game start(long seed, int blocks, int balls, int strips) {
+        Game game = new Game(new ScriptedKeyboard());
+        game.setSeed(seed);
+        game.setLevel(LevelGenerator.generate(seed, blocks, balls, false));
+        if (strips > 0) {
+            game.setStrips(strips);
+        } else {
+            game.getBallSystem().setPool(null);
+        }
+        game.initialize();
+        return game;
+    }
+
+    private static void fail(String level, String what) {
+        System.out.println("mismatch " + level + ": " + what);
+        mismatches++;
+    }
+}
@@ -0,0 +1,123 @@
+import game.Collidable;
+import game.LinearCollidableIndex;
+import geometry.Point;
+import geometry.Rectangle;
+import geometry.SegmentHit;
+import sprites.Block;
+import sprites.TileMapCollidable;
+
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * The {@code TileMapCheck} class is a test utility that checks that a
+ * {@link TileMapCollidable} finds the same hits as a plain list of one block per
+ * tile, searched with a {@link LinearCollidableIndex}. It casts random segments
+ * and segments between tile corners, inside and around seeded random maps, and
+ * prints every segment on which the two disagree.
+ */
+public class TileMapCheck {
+    static final int MAPS = 40;
+    static final int SEGMENTS_PER_MAP = 20000;
+    static final int MAX_REPORTED = 10;
+
+    private static int mismatches;
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String[] args) {
+        // A segment that leaves the map through the corner of its only tile
+        TileMapCollidable corner = new TileMapCollidable(0, 100, 50, 25, 6, 4);
+        corner.setTile(5, 0, Color.RED, true);
+        LinearCollidableIndex cornerBlocks = new LinearCollidableIndex();
+        cornerBlocks.add(new Block(new Rectangle(new Point(250, 100), 50, 25, Color.RED), true, false));
+        compare(corner, cornerBlocks, 275, 75, 368.55, 168.55);
+        compare(corner, cornerBlocks, 275, 75, 325, 125);
+
+        Random random = new Random(1);
+        int segments = 2;
+        for (int m = 0; m < MAPS; m++) {
+            int columns = 1 + random.nextInt(20);
+            int rows = 1 + random.nextInt(12);
+            double tileWidth = 10 + random.nextInt(50);
+            double tileHeight = 10 + random.nextInt(30);
+            double originX = random.nextInt(100) + (m % 2 == 0 ? 0 : 0.5);
+            double originY = random.nextInt(100);
+            TileMapCollidable map = new TileMapCollidable(originX, originY, tileWidth, tileHeight, columns, rows);
+            LinearCollidableIndex blocks = new LinearCollidableIndex();
+            int density = 1 + random.nextInt(4);
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    if (random.nextInt(density) == 0) {
+                        map.setTile(column, row, Color.RED, true);
+                        blocks.add(new Block(new Rectangle(new Point(originX + column * tileWidth,
+                                originY + row * tileHeight), tileWidth, tileHeight, Color.RED), true, false));
+                    }
+                }
+            }
+            double width = columns * tileWidth;
+            double height = rows * tileHeight;
+            for (int i = 0; i < SEGMENTS_PER_MAP; i++) {
+                double x0;
+                double y0;
+                double x1;
+                double y1;
+                if (i % 2 == 0) {
+                    // Random segments in and around the map
+                    x0 = originX - 40 + random.nextDouble() * (width + 80);
+                    y0 = originY - 40 + random.nextDouble() * (height + 80);
+                    x1 = x0 + random.nextGaussian() * (i % 6 == 0 ? width : 20);
+                    y1 = y0 + random.nextGaussian() * (i % 6 == 0 ? height : 20);
+                } else {
+                    // Segments from one tile corner, inside or just around the map, through other corners
+                    int c = random.nextInt(columns + 3) - 1;
+                    int r = random.nextInt(rows + 3) - 1;
+                    x0 = originX + c * tileWidth;
+                    y0 = originY + r * tileHeight;
+                    int steps = 1 + random.nextInt(4);
+                    x1 = x0 + (random.nextInt(3) - 1) * steps * tileWidth;
+                    y1 = y0 + (random.nextInt(3) - 1) * steps * tileHeight;
+                    if (i % 4 == 1) {
+                        // Stop short of the end corner, or go past it
+                        double scale = 0.5 + random.nextDouble();
+                        x1 = x0 + (x1 - x0) * scale;
+                        y1 = y0 + (y1 - y0) * scale;
+                    }
+                }
+                compare(map, blocks, x0, y0, x1, y1);
+                segments++;
+            }
+        }
+        System.out.println("segments=" + segments + " mismatches=" + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Casts one segment against both and reports any difference
+    private static void compare(TileMapCollidable map, LinearCollidableIndex blocks,
+                                double x0, double y0, double x1, double y1) {
+        SegmentHit expected = new SegmentHit();
+        SegmentHit actual = new SegmentHit();
+        Collidable block = blocks.castSegment(x0, y0, x1, y1, expected);
+        Collidable tile = map.castSegment(x0, y0, x1, y1, Double.POSITIVE_INFINITY, actual);
+        boolean same = (block == null) == (tile == null);
+        if (same && block != null) {
+            same = block.getCollisionRectangle().getUpperLeft().equals(tile.getCollisionRectangle().getUpperLeft())
+                    && expected.getToi() == actual.getToi()
+                    && expected.getX() == actual.getX() && expected.getY() == actual.getY();
+        }
+        same = same && blocks.intersectsAny(x0, y0, x1, y1) == map.intersectsAny(x0, y0, x1, y1);
+        if (!same) {
+            if (mismatches < MAX_REPORTED) {
+                System.out.println("mismatch (" + x0 + ", " + y0 + ") -> (" + x1 + ", " + y1 + "): blocks "
+                        + (block == null ? "miss" : "toi " + expected.getToi()) + ", tile map "
+                        + (tile == null ? "miss" : "toi " + actual.getToi()));
+            }
+            mismatches++;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import game.DynamicAabbTree;
+import game.GameEnvironment;
+import geometry.Line;
+import geometry.Point;
+import geometry.Rectangle;
+import geometry.Velocity;
+import sprites.Ball;
+import sprites.Block;
+
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * The {@code Arena} class builds the seeded fixtures shared by the benchmarks:
+ * a walled 800x600 arena filled with a given number of blocks, balls moving
+ * inside it, and random segments crossing it.
+ */
+final class Arena {
+    /**
+     * Width of the arena.
+     */
+    static final int WIDTH = 800;
+
+    /**
+     * Height of the arena.
+     */
+    static final int HEIGHT = 600;
+
+    private static final int WALL = 20;
+    private static final int BLOCK_AREA_TOP = 60;
+    private static final int BLOCK_AREA_BOTTOM = 380;
+    private static final long SEED = 42;
+
+    private Arena() {
+    }
+
+    /**
+     * Creates an environment with the four walls and {@code blocks} static blocks.
+     * The blocks are laid out on a grid in the upper part of the arena, shrinking
+     * as their number grows, so that the lower part stays free for the balls.
+     *
+     * @param blocks the number of blocks besides the walls
+     * @return the environment
+     */
+    static GameEnvironment environment(int blocks) {
+        GameEnvironment environment = new GameEnvironment(new DynamicAabbTree());
+        int[][] walls = {
+                {0, 0, WIDTH, WALL}, {0, 0, WALL, HEIGHT},
+                {WIDTH - WALL, 0, WALL, HEIGHT}, {0, HEIGHT - WALL, WIDTH, WALL}
+        };
+        for (int[] w : walls) {
+            environment.addCollidable(new Block(new Rectangle(new Point(w[0], w[1]), w[2], w[3], Color.GRAY),
+                    false, false));
+        }
+        for (Rectangle r : blockRectangles(blocks)) {
+            environment.addCollidable(new Block(r, false, false));
+        }
+        return environment;
+    }
+
+    /**
+     * Lays out {@code blocks} rectangles on a grid in the upper part of the arena.
+     *
+     * @param blocks the number of rectangles
+     * @return the rectangles
+     */
+    static Rectangle[] blockRectangles(int blocks) {
+        Rectangle[] rects = new Rectangle[blocks];
+        if (blocks == 0) {
+            return rects;
+        }
+        int innerWidth = WIDTH - 2 * WALL;
+        int innerHeight = BLOCK_AREA_BOTTOM - BLOCK_AREA_TOP;
+        int columns = (int) Math.ceil(Math.sqrt(blocks * (double) innerWidth / innerHeight));
+        int rows = (blocks + columns - 1) / columns;
+        double cellWidth = (double) innerWidth / columns;
+        double cellHeight = (double) innerHeight / rows;
+        for (int i = 0; i < blocks; i++) {
+            double x = WALL + (i % columns) * cellWidth;
+            double y = BLOCK_AREA_TOP + (i / columns) * cellHeight;
+            rects[i] = new Rectangle(new Point(x, y), cellWidth * 0.8, cellHeight * 0.8, Color.RED);
+        }
+        return rects;
+    }
+
+    /**
+     * Creates {@code count} balls below the blocks, moving in random directions.
+     *
+     * @param count       the number of balls
+     * @param environment the environment the balls move in
+     * @return the balls
+     */
+    static Ball[] balls(int count, GameEnvironment environment) {
+        Random random = new Random(SEED);
+        Ball[] balls = new Ball[count];
+        for (int i = 0; i < count; i++) {
+            double x = WALL + 10 + random.nextDouble() * (WIDTH - 2 * WALL - 20);
+            double y = BLOCK_AREA_BOTTOM + 10 + random.nextDouble() * (HEIGHT - BLOCK_AREA_BOTTOM - WALL - 20);
+            Ball ball = new Ball(new Point(x, y), 3, Color.WHITE);
+            ball.setVelocity(Velocity.fromAngleAndSpeed(random.nextInt(360), 5));
+            ball.setEnvironment(environment);
+            balls[i] = ball;
+        }
+        return balls;
+    }
+
+    /**
+     * Creates {@code count} random segments, each one ball step long or longer,
+     * starting anywhere in the arena.
+     *
+     * @param count the number of segments
+     * @return the segments
+     */
+    static Line[] segments(int count) {
+        Random random = new Random(SEED + 1);
+        Line[] lines = new Line[count];
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            Velocity v = Velocity.fromAngleAndSpeed(random.nextInt(360), 5 + random.nextInt(60));
+            lines[i] = new Line(x, y, x + v.getDx(), y + v.getDy());
+        }
+        return lines;
+    }
+}
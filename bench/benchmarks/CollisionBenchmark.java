@@ -0,0 +1,78 @@
+package benchmarks;
+
+import game.CollisionInfo;
+import game.GameEnvironment;
+import geometry.Line;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sprites.Ball;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code CollisionBenchmark} class measures collision queries against an
+ * environment of {@code blockCount} static blocks:
+ * {@link GameEnvironment#getClosestCollision(Line)} for {@code ballCount}
+ * random segments, and {@link Ball#moveOneStep()} for {@code ballCount} balls.
+ * The blocks are not removable, so the balls keep bouncing in a steady state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"1", "100", "1000"})
+    private int ballCount;
+
+    @Param({"10", "100", "1000"})
+    private int blockCount;
+
+    private GameEnvironment environment;
+    private Line[] segments;
+    private Ball[] balls;
+
+    /**
+     * Builds the environment, the segments and the balls.
+     */
+    @Setup
+    public void setUp() {
+        environment = Arena.environment(blockCount);
+        segments = Arena.segments(ballCount);
+        balls = Arena.balls(ballCount, environment);
+    }
+
+    /**
+     * Finds the closest collision of every segment.
+     *
+     * @param bh consumes the collisions
+     */
+    @Benchmark
+    public void getClosestCollision(Blackhole bh) {
+        for (Line segment : segments) {
+            CollisionInfo info = environment.getClosestCollision(segment);
+            bh.consume(info);
+        }
+    }
+
+    /**
+     * Moves every ball by one step.
+     */
+    @Benchmark
+    public void moveOneStep() {
+        for (Ball ball : balls) {
+            ball.moveOneStep();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import geometry.Line;
+import geometry.Point;
+import geometry.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code GeometryBenchmark} class measures the geometry primitives that
+ * collision detection is built on: {@link Line#intersectionWith(Line)} and
+ * {@link Rectangle#intersectionPoints(Line)}. Every operation tests all
+ * {@code ballCount} segments against all {@code blockCount} blocks (or their
+ * border lines), which is the work a naive per-frame scan would do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+    @Param({"1", "10", "100"})
+    private int ballCount;
+
+    @Param({"10", "100", "1000"})
+    private int blockCount;
+
+    private Line[] segments;
+    private Rectangle[] blocks;
+    private Line[] edges;
+
+    /**
+     * Builds the segments, the blocks and their border lines.
+     */
+    @Setup
+    public void setUp() {
+        segments = Arena.segments(ballCount);
+        blocks = Arena.blockRectangles(blockCount);
+        edges = new Line[blockCount * 4];
+        for (int i = 0; i < blockCount; i++) {
+            List<Line> border = blocks[i].getBorderLines();
+            for (int k = 0; k < 4; k++) {
+                edges[i * 4 + k] = border.get(k);
+            }
+        }
+    }
+
+    /**
+     * Intersects every segment with every block edge.
+     *
+     * @param bh consumes the intersection points
+     */
+    @Benchmark
+    public void lineIntersectionWith(Blackhole bh) {
+        for (Line segment : segments) {
+            for (Line edge : edges) {
+                Point p = segment.intersectionWith(edge);
+                bh.consume(p);
+            }
+        }
+    }
+
+    /**
+     * Intersects every segment with every block.
+     *
+     * @param bh consumes the intersection point lists
+     */
+    @Benchmark
+    public void rectangleIntersectionPoints(Blackhole bh) {
+        for (Line segment : segments) {
+            for (Rectangle block : blocks) {
+                bh.consume(block.intersectionPoints(segment));
+            }
+        }
+    }
+}
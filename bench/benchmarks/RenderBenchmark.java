@@ -0,0 +1,118 @@
+package benchmarks;
+
+import game.HeadlessDrawSurface;
+import game.ImageDrawSurface;
+import geometry.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sprites.BlockTable;
+import sprites.TileMapCollidable;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code RenderBenchmark} class measures drawing a level of
+ * {@code blockCount} blocks in six colors, stored either in a
+ * {@link TileMapCollidable} or in a {@link BlockTable}.
+ * {@link #commands()} draws on a {@link HeadlessDrawSurface}, which only counts
+ * the calls, so it measures the work done by the sprite itself; {@link #pixels()}
+ * draws into an 800x600 image, as the window does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    private static final Color[] COLORS = {
+            Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.CYAN, Color.BLUE
+    };
+
+    @Param({"100", "1000", "10000"})
+    private int blockCount;
+
+    @Param({"tiles", "table"})
+    private String store;
+
+    private game.Sprite level;
+    private HeadlessDrawSurface counter;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private ImageDrawSurface surface;
+
+    /**
+     * Builds the level and the surfaces to draw on.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Rectangle[] rects = Arena.blockRectangles(blockCount);
+        if ("tiles".equals(store)) {
+            int columns = (int) Math.ceil(Math.sqrt(blockCount * 2.0));
+            int rows = (blockCount + columns - 1) / columns;
+            TileMapCollidable map = new TileMapCollidable(20, 60, 760.0 / columns, 320.0 / rows, columns, rows);
+            for (int i = 0; i < blockCount; i++) {
+                // Colors change along each row, as in a patterned level
+                map.setTile(i % columns, i / columns, COLORS[(i % columns + i / columns) % COLORS.length], true);
+            }
+            level = map;
+        } else {
+            BlockTable table = new BlockTable();
+            for (int i = 0; i < rects.length; i++) {
+                Rectangle r = rects[i];
+                table.add(r.getUpperLeft().getX(), r.getUpperLeft().getY(), r.getWidth(), r.getHeight(),
+                        COLORS[i % COLORS.length], true, false);
+            }
+            level = table;
+        }
+        counter = new HeadlessDrawSurface(Arena.WIDTH, Arena.HEIGHT);
+        image = new BufferedImage(Arena.WIDTH, Arena.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        surface = new ImageDrawSurface(graphics, Arena.WIDTH, Arena.HEIGHT,
+                new java.awt.Rectangle(0, 0, Arena.WIDTH, Arena.HEIGHT));
+    }
+
+    /**
+     * Releases the image's graphics context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Draws the level on a surface that only counts the calls.
+     *
+     * @return the number of color changes so far
+     */
+    @Benchmark
+    public long commands() {
+        level.drawOn(counter);
+        return counter.getColorChangeCount();
+    }
+
+    /**
+     * Draws the level into an image.
+     *
+     * @return the image
+     */
+    @Benchmark
+    public BufferedImage pixels() {
+        level.drawOn(surface);
+        return image;
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import biuoop.KeyboardSensor;
+import game.Game;
+import game.ScriptedKeyboard;
+import geometry.Rectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sprites.Ball;
+import sprites.BlockTable;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TickBenchmark} class measures one full {@link Game#tick()} of a
+ * headless game: the standard level plus {@code ballCount} extra balls and
+ * {@code blockCount} extra indestructible blocks.
+ * A game that ends during a measurement is replaced by a fresh one, so a few
+ * operations include building a new game; with many balls this is rare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TickBenchmark {
+    private static final int SWEEP_TICKS = 120;
+
+    @Param({"10", "100", "1000"})
+    private int ballCount;
+
+    @Param({"0", "100", "1000"})
+    private int blockCount;
+
+    private ScriptedKeyboard keyboard;
+    private Game game;
+
+    /**
+     * Builds a fresh game before every iteration.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        keyboard = new ScriptedKeyboard()
+                .press(KeyboardSensor.LEFT_KEY, 0, SWEEP_TICKS)
+                .press(KeyboardSensor.RIGHT_KEY, SWEEP_TICKS, 2 * SWEEP_TICKS)
+                .loop(2 * SWEEP_TICKS);
+        game = newGame();
+    }
+
+    /**
+     * Runs one game tick.
+     *
+     * @return whether the game goes on
+     */
+    @Benchmark
+    public boolean tick() {
+        keyboard.advance();
+        if (!game.tick()) {
+            game = newGame();
+        }
+        return !game.isOver();
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private Game newGame() {
+        Game g = new Game(keyboard);
+        g.initialize();
+        BlockTable extra = new BlockTable();
+        for (Rectangle r : Arena.blockRectangles(blockCount)) {
+            // Shrink into the space between the walls and above the level's bricks
+            extra.add(r.getUpperLeft().getX(), r.getUpperLeft().getY() / 3 + 20,
+                    r.getWidth(), r.getHeight() / 3, Color.GRAY, false, false);
+        }
+        extra.addToGame(g);
+        for (Ball ball : Arena.balls(ballCount, null)) {
+            g.addBall(ball);
+        }
+        return g;
+    }
+}
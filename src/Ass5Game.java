@@ -5,7 +5,19 @@
  Assignment: ass5
  *******************/
 
+import biuoop.GUI;
+import game.Campaign;
 import game.Game;
+import game.LevelFile;
+import listeners.HitEventBus;
+import listeners.PrintingHitListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The {@code main.Ass3Game} class serves as the entry point for launching
@@ -16,13 +28,106 @@ import game.Game;
 class Ass5Game {
 
     /**
-     * The main method that launches the game.
+     * The main method that launches the game. By default, the levels of
+     * {@link Campaign#DEFAULT_LEVELS} are played in a {@link Campaign}. System
+     * properties choose what is played ({@code levels}, {@code level}, {@code seed},
+     * {@code replay.record}, {@code level.watch}) and what is reported
+     * ({@code metrics.file}, {@code metrics.interval}, {@code hits.print}).
      *
      * @param args command-line arguments (not used)
      */
     public static void main(String[] args) {
+        String levelFile = System.getProperty("level");
+        String recordFile = System.getProperty("replay.record");
+        if (recordFile != null && Boolean.getBoolean("level.watch")) {
+            System.err.println("A recorded game cannot reload its level: set either replay.record or level.watch");
+            return;
+        }
+        if (levelFile == null && recordFile == null) {
+            playCampaign();
+            return;
+        }
         Game game = new Game();
+        Long seed = Long.getLong("seed");
+        if (seed != null) {
+            game.setSeed(seed);
+        }
+        if (levelFile != null) {
+            try {
+                game.setLevel(LevelFile.load(Paths.get(levelFile)));
+            } catch (IOException e) {
+                System.err.println("Could not load the level: " + e.getMessage());
+                return;
+            }
+        }
+        if (recordFile != null) {
+            try {
+                game.startRecording().getRecording()
+                        .setLevel(Paths.get(levelFile != null ? levelFile : Game.DEFAULT_LEVEL));
+            } catch (IOException e) {
+                System.err.println("Could not record the level: " + e.getMessage());
+                return;
+            }
+        }
         game.initialize();
+        configure(game);
+        if (Boolean.getBoolean("level.watch")) {
+            try {
+                game.watchLevel(Paths.get(levelFile != null ? levelFile : Game.DEFAULT_LEVEL));
+            } catch (IOException e) {
+                System.err.println("Could not watch the level: " + e.getMessage());
+            }
+        }
         game.run();
+        if (recordFile != null) {
+            try {
+                game.getRecording().write(Paths.get(recordFile));
+            } catch (IOException e) {
+                System.err.println("Could not write the recording: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Plays the levels named by the {@code levels} system property, or the
+     * default ones, and prints how long each level took to prepare.
+     */
+    private static void playCampaign() {
+        List<Path> levels = new ArrayList<>();
+        for (String level : System.getProperty("levels", String.join(",", Campaign.DEFAULT_LEVELS)).split(",")) {
+            levels.add(Paths.get(level.trim()));
+        }
+        GUI gui = new GUI("Game", Game.SCREEN_WIDTH, Game.SCREEN_HEIGHT);
+        Campaign campaign = new Campaign(gui, levels);
+        Long seed = Long.getLong("seed");
+        if (seed != null) {
+            campaign.setSeed(seed);
+        }
+        campaign.setOnStart(Ass5Game::configure);
+        campaign.setWatchLevels(Boolean.getBoolean("level.watch"));
+        try {
+            campaign.run();
+        } catch (UncheckedIOException e) {
+            System.err.println("Could not load the level: " + e.getCause().getMessage());
+            gui.close();
+        }
+        System.out.println(campaign.report());
+    }
+
+    /**
+     * Adds the hit printer and the metrics file asked for by the system
+     * properties to a game that is about to be played.
+     *
+     * @param game the game
+     */
+    private static void configure(Game game) {
+        String printHits = System.getProperty("hits.print");
+        if (printHits != null) {
+            game.addHitListener(new PrintingHitListener(), HitEventBus.Delivery.valueOf(printHits.toUpperCase()));
+        }
+        String metricsFile = System.getProperty("metrics.file");
+        if (metricsFile != null) {
+            game.getMetrics().setDumpFile(Paths.get(metricsFile), Long.getLong("metrics.interval", 1000));
+        }
     }
 }
@@ -0,0 +1,91 @@
+import biuoop.KeyboardSensor;
+import game.Game;
+import game.HeadlessDrawSurface;
+import game.HeadlessRunner;
+import game.LevelFile;
+import game.ScriptedKeyboard;
+import listeners.HitEventBus;
+import listeners.PrintingHitListener;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The {@code HeadlessGame} class runs the game without a window, as fast as the
+ * CPU allows, and prints how many ticks per second the simulation reached,
+ * followed by the game's metrics. The paddle sweeps left and right on a fixed script.
+ * Like {@code Ass5Game}, it writes the metrics to the file named by the
+ * {@code metrics.file} system property, takes its random seed from {@code seed},
+ * records its input to {@code replay.record}, prints every hit with the
+ * delivery named by {@code hits.print}, and plays the level file named by
+ * {@code level}, if those are set. Setting {@code balls.parallel} to
+ * {@code false} steps the balls serially; the state hash printed at the end is
+ * the same either way. Setting {@code strips} to a number of strips steps the
+ * balls in a {@link game.PartitionedWorld} of that many strips instead.
+ */
+class HeadlessGame {
+    private static final long DEFAULT_TICKS = 100_000;
+    private static final int SWEEP_TICKS = 120;
+
+    /**
+     * Runs a headless game.
+     *
+     * @param args optional: the number of ticks to run, and how many ticks
+     *             between two frames drawn on a headless surface (0 to never draw)
+     * @throws IOException if the recording cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        long maxTicks = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_TICKS;
+        int renderEvery = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        ScriptedKeyboard keyboard = new ScriptedKeyboard()
+                .press(KeyboardSensor.LEFT_KEY, 0, SWEEP_TICKS)
+                .press(KeyboardSensor.RIGHT_KEY, SWEEP_TICKS, 2 * SWEEP_TICKS)
+                .loop(2 * SWEEP_TICKS);
+        Game game = new Game(keyboard);
+        Long seed = Long.getLong("seed");
+        if (seed != null) {
+            game.setSeed(seed);
+        }
+        String levelFile = System.getProperty("level");
+        if (levelFile != null) {
+            game.setLevel(LevelFile.load(Paths.get(levelFile)));
+        }
+        String recordFile = System.getProperty("replay.record");
+        if (recordFile != null) {
+            game.startRecording().getRecording()
+                    .setLevel(Paths.get(levelFile != null ? levelFile : Game.DEFAULT_LEVEL));
+        }
+        if (!Boolean.parseBoolean(System.getProperty("balls.parallel", "true"))) {
+            game.getBallSystem().setPool(null);
+        }
+        Integer strips = Integer.getInteger("strips");
+        if (strips != null) {
+            game.setStrips(strips);
+        }
+        game.initialize();
+        String printHits = System.getProperty("hits.print");
+        if (printHits != null) {
+            game.addHitListener(new PrintingHitListener(), HitEventBus.Delivery.valueOf(printHits.toUpperCase()));
+        }
+        String metricsFile = System.getProperty("metrics.file");
+        if (metricsFile != null) {
+            game.getMetrics().setDumpFile(Paths.get(metricsFile), Long.getLong("metrics.interval", 1000));
+        }
+
+        HeadlessRunner runner = new HeadlessRunner(game, keyboard);
+        HeadlessDrawSurface surface = new HeadlessDrawSurface();
+        if (renderEvery > 0) {
+            runner.setRendering(surface, renderEvery);
+        }
+        runner.run(maxTicks);
+        System.out.println(runner.report() + " state=" + Integer.toHexString(game.stateHash()));
+        if (renderEvery > 0) {
+            System.out.println("draw calls=" + surface.getCallCount());
+        }
+        System.out.print(game.getMetrics().report(System.nanoTime()));
+        if (recordFile != null) {
+            game.getRecording().write(Paths.get(recordFile));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+import game.InputRecording;
+import game.ReplayRunner;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The {@code ReplayGame} class replays a recorded game without a window, as fast
+ * as the CPU allows, and reports whether the replay matched the recording tick
+ * for tick. It exits with status 1 if the replay diverged.
+ */
+class ReplayGame {
+
+    /**
+     * Replays a recording.
+     *
+     * @param args the recording file
+     * @throws IOException if the recording cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayGame <recording>");
+            System.exit(2);
+        }
+        ReplayRunner runner = new ReplayRunner(InputRecording.read(Paths.get(args[0])));
+        boolean matched = runner.run();
+        System.out.println(runner.report());
+        if (!matched) {
+            System.exit(1);
+        }
+    }
+}
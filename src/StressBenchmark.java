@@ -0,0 +1,139 @@
+import game.Game;
+import game.LatencyHistogram;
+import game.LevelGenerator;
+import game.ScriptedKeyboard;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code StressBenchmark} class measures how the simulation scales with
+ * the number of blocks and balls. For every pair of counts it plays a stress
+ * level from {@link LevelGenerator} without a window, warms it up, and prints a
+ * CSV line of ticks per second, tick latencies and bytes allocated per tick.
+ * The {@code seed} and {@code lasting} system properties choose the levels.
+ */
+class StressBenchmark {
+    private static final String DEFAULT_BLOCKS = "100,1000,10000";
+    private static final String DEFAULT_BALLS = "10,100,1000";
+    private static final long DEFAULT_TICKS = 2000;
+    private static final long DEFAULT_SEED = 1;
+    private static final String HEADER =
+            "blocks,balls,ticks,ticks_per_sec,p50_us,p99_us,max_us,bytes_per_tick,blocks_left";
+
+    /**
+     * Runs the sweep.
+     *
+     * @param args optional: the block counts and the ball counts, each as a
+     *             comma-separated list, the number of ticks to measure per pair,
+     *             and the CSV file to write
+     * @throws IOException if the CSV file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int[] blockCounts = counts(args.length > 0 ? args[0] : DEFAULT_BLOCKS);
+        int[] ballCounts = counts(args.length > 1 ? args[1] : DEFAULT_BALLS);
+        long ticks = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TICKS;
+        long seed = Long.getLong("seed", DEFAULT_SEED);
+        boolean lasting = Boolean.parseBoolean(System.getProperty("lasting", "true"));
+
+        PrintWriter csv = args.length > 3
+                ? new PrintWriter(Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)) : null;
+        try {
+            measure(seed, blockCounts[0], ballCounts[0], lasting, ticks);
+            emit(csv, HEADER);
+            for (int blocks : blockCounts) {
+                for (int balls : ballCounts) {
+                    emit(csv, measure(seed, blocks, balls, lasting, ticks));
+                }
+            }
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Plays one stress level and returns its CSV line
+    private static String measure(long seed, int blocks, int balls, boolean lasting, long ticks) {
+        Game game = new Game(new ScriptedKeyboard());
+        game.setSeed(seed);
+        game.setLevel(LevelGenerator.generate(seed, blocks, balls, lasting));
+        game.initialize();
+        game.prepare();
+        long warm = 0;
+        while (warm < ticks / 4 && game.tick()) {
+            warm++;
+        }
+        System.gc();
+
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<Long, Long> allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long ran = 0;
+        while (ran < ticks && !game.isOver()) {
+            long tickStart = System.nanoTime();
+            game.tick();
+            latency.record(System.nanoTime() - tickStart);
+            ran++;
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedSince(allocated);
+        return String.format(Locale.ROOT, "%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%d,%d",
+                blocks, balls, ran, ran == 0 ? 0 : ran * 1e9 / elapsed,
+                latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3, latency.getMax() / 1e3,
+                ran == 0 ? 0 : bytes / ran, game.getRemainingBlocks());
+    }
+
+    private static void emit(PrintWriter csv, String line) {
+        System.out.println(line);
+        if (csv != null) {
+            csv.println(line);
+        }
+    }
+
+    private static int[] counts(String list) {
+        String[] items = list.split(",");
+        int[] counts = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            counts[i] = Integer.parseInt(items[i].trim());
+        }
+        return counts;
+    }
+
+    // Bytes allocated so far by each live thread, by thread id; empty if the JVM does not track them
+    private static Map<Long, Long> allocatedBytes() {
+        Map<Long, Long> bytes = new HashMap<>();
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+            if (counting.isThreadAllocatedMemorySupported() && counting.isThreadAllocatedMemoryEnabled()) {
+                long[] ids = counting.getAllThreadIds();
+                long[] allocated = counting.getThreadAllocatedBytes(ids);
+                for (int i = 0; i < ids.length; i++) {
+                    if (allocated[i] >= 0) {
+                        bytes.put(ids[i], allocated[i]);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    // Bytes allocated since the given snapshot by the threads still alive, including those started since
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> now : allocatedBytes().entrySet()) {
+            total += now.getValue() - before.getOrDefault(now.getKey(), 0L);
+        }
+        return total;
+    }
+}
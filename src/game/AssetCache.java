@@ -0,0 +1,267 @@
+package game;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code AssetCache} class decodes the game's images off the game thread
+ * and shares them between sprites and levels. Each image is decoded once,
+ * already scaled to the size it is drawn at, and the images used least recently
+ * are evicted once the cache holds {@code maxBytes} of decoded pixels.
+ * An image that cannot be read completes with {@code null}.
+ */
+public class AssetCache {
+    /**
+     * Default memory budget: 64 MiB of decoded pixels.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final int DECODER_THREADS = 2;
+    private static final long DECODER_IDLE_SECONDS = 30;
+
+    private static AssetCache shared;
+
+    private final long maxBytes;
+    private final Executor executor;
+    private final LinkedHashMap<Key, CompletableFuture<BufferedImage>> entries;
+    private long usedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a cache with the given budget that decodes on its own small
+     * pool of daemon threads, which stop after a while without work. Decoding
+     * blocks on file reads, so it stays off the common fork-join pool that steps the balls.
+     *
+     * @param maxBytes the most bytes of decoded pixels to keep
+     */
+    public AssetCache(long maxBytes) {
+        this(maxBytes, decoders());
+    }
+
+    /**
+     * Constructs a cache with the given budget that decodes on the given executor.
+     *
+     * @param maxBytes the most bytes of decoded pixels to keep
+     * @param executor runs the decoding tasks
+     */
+    public AssetCache(long maxBytes, Executor executor) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.executor = executor;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cache shared by every game in this JVM, creating it with
+     * {@link #DEFAULT_MAX_BYTES} on first use.
+     *
+     * @return the shared cache
+     */
+    public static synchronized AssetCache shared() {
+        if (shared == null) {
+            shared = new AssetCache(DEFAULT_MAX_BYTES);
+        }
+        return shared;
+    }
+
+    /**
+     * Returns an image scaled to the given size, decoding it in the background
+     * unless it is already cached or being decoded.
+     *
+     * @param path   the image file
+     * @param width  the width to scale the image to
+     * @param height the height to scale the image to
+     * @return a future that completes with the image, or with {@code null} if it cannot be read
+     */
+    public synchronized CompletableFuture<BufferedImage> request(String path, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("image size must be positive");
+        }
+        Key key = new Key(path, width, height);
+        CompletableFuture<BufferedImage> image = entries.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        misses++;
+        CompletableFuture<BufferedImage> decoding = CompletableFuture.supplyAsync(
+                () -> decode(path, width, height), executor);
+        entries.put(key, decoding);
+        decoding.whenComplete((decoded, failure) -> admit(key, decoding, failure == null ? decoded : null));
+        return decoding;
+    }
+
+    /**
+     * Returns an image scaled to the given size, waiting for it to be decoded.
+     *
+     * @param path   the image file
+     * @param width  the width to scale the image to
+     * @param height the height to scale the image to
+     * @return the image, or {@code null} if it cannot be read
+     */
+    public BufferedImage get(String path, int width, int height) {
+        return request(path, width, height).join();
+    }
+
+    /**
+     * Returns the number of bytes of decoded pixels in the cache.
+     *
+     * @return the bytes in use
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns the memory budget of the cache.
+     *
+     * @return the most bytes of decoded pixels kept
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns a one-line summary of the cache's use.
+     *
+     * @return the summary
+     */
+    public synchronized String report() {
+        return "assets=" + entries.size() + " used=" + (usedBytes >> 10) + "KiB/" + (maxBytes >> 10) + "KiB"
+                + " hits=" + hits + " misses=" + misses + " evictions=" + evictions;
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // A pool of DECODER_THREADS daemon threads named asset-decoder-N, that time out when idle
+    private static Executor decoders() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(DECODER_THREADS, DECODER_THREADS,
+                DECODER_IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "asset-decoder-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // Reads the file and draws it, scaled, into an image in the screen's pixel format
+    private static BufferedImage decode(String path, int width, int height) {
+        BufferedImage source;
+        try {
+            source = ImageIO.read(new File(path));
+        } catch (IOException | RuntimeException e) {
+            // Image readers throw unchecked exceptions on some malformed files
+            source = null;
+        }
+        if (source == null) {
+            System.err.println("Could not load image: " + path);
+            return null;
+        }
+        int transparency = source.getColorModel().getTransparency();
+        BufferedImage target;
+        if (GraphicsEnvironment.isHeadless()) {
+            target = new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        } else {
+            GraphicsConfiguration screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            target = screen.createCompatibleImage(width, height, transparency);
+        }
+        Graphics2D g = target.createGraphics();
+        try {
+            if (source.getWidth() != width || source.getHeight() != height) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            }
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // Accounts for a decoded image, unless it was evicted meanwhile, and evicts the least recent ones over budget
+    private synchronized void admit(Key key, CompletableFuture<BufferedImage> decoding, BufferedImage image) {
+        if (entries.get(key) != decoding) {
+            return;
+        }
+        if (image == null) {
+            // Let the next request try the file again
+            entries.remove(key);
+            return;
+        }
+        key.bytes = (long) image.getWidth() * image.getHeight() * 4;
+        usedBytes += key.bytes;
+        Iterator<Map.Entry<Key, CompletableFuture<BufferedImage>>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, CompletableFuture<BufferedImage>> eldest = it.next();
+            if (eldest.getKey().bytes == 0 || eldest.getKey() == key) {
+                // Still decoding, or the image just admitted
+                continue;
+            }
+            usedBytes -= eldest.getKey().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * The {@code Key} class identifies an image by its file and size.
+     */
+    private static final class Key {
+        private final String path;
+        private final int width;
+        private final int height;
+        private long bytes;
+
+        /**
+         * Constructs the key of an image at a size.
+         *
+         * @param path   the image file
+         * @param width  the width the image is scaled to
+         * @param height the height the image is scaled to
+         */
+        private Key(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return path.equals(other.path) && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, width, height);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package game;
+
+import biuoop.GUI;
+import listeners.Counter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * The {@code Campaign} class plays a sequence of levels in one window, keeping
+ * one score across them. The campaign ends when a level is lost or the last
+ * level is won. While a level is played, the next one is loaded and prepared on
+ * a background thread (see {@link Game#prepare()}), so moving on does not stall.
+ */
+public class Campaign {
+    /**
+     * The levels played when no others are given.
+     */
+    public static final List<String> DEFAULT_LEVELS = List.of(Game.DEFAULT_LEVEL, "levels/level2.txt");
+
+    private final GUI gui;
+    private final List<Path> levels;
+    private final Counter score;
+    private final List<String> preloads;
+    private Long seed;
+    private Consumer<Game> onStart;
+    private boolean watch;
+
+    /**
+     * Constructs a campaign over the given levels.
+     *
+     * @param gui    the window to play in
+     * @param levels the level files, in the order they are played
+     */
+    public Campaign(GUI gui, List<Path> levels) {
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("a campaign needs at least one level");
+        }
+        this.gui = gui;
+        this.levels = new ArrayList<>(levels);
+        this.score = new Counter();
+        this.preloads = new ArrayList<>();
+    }
+
+    /**
+     * Fixes the random seeds of the levels: level {@code i} (from 0) is played
+     * with the seed {@code seed + i}. By default, every level takes its own seed.
+     *
+     * @param seed the seed of the first level
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets an action to run on the game of each level on the game thread, right
+     * before the level is played, for example to add hit listeners or set the
+     * metrics file.
+     *
+     * @param action the action, given the level's game
+     */
+    public void setOnStart(Consumer<Game> action) {
+        this.onStart = action;
+    }
+
+    /**
+     * Sets whether each level's file is watched while the level is played, so
+     * that saving it updates the level in place (see {@link Game#watchLevel(Path)}).
+     *
+     * @param watchLevels true to watch the level files
+     */
+    public void setWatchLevels(boolean watchLevels) {
+        this.watch = watchLevels;
+    }
+
+    /**
+     * Returns the score of the levels played so far.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score.getValue();
+    }
+
+    /**
+     * Plays the levels in order, preparing each one in the background while
+     * the previous one is played, then shows the end screen and closes the window.
+     *
+     * @throws UncheckedIOException if a level file cannot be loaded or watched
+     */
+    public void run() {
+        ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "level-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<Game> next = preload(0, loader);
+            Game game = null;
+            for (int i = 0; i < levels.size(); i++) {
+                game = await(next);
+                if (i + 1 < levels.size()) {
+                    next = preload(i + 1, loader);
+                }
+                if (onStart != null) {
+                    onStart.accept(game);
+                }
+                if (watch) {
+                    watch(game, levels.get(i));
+                }
+                if (!game.play()) {
+                    break;
+                }
+            }
+            game.showEndScreen();
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns one line per prepared level: the time it took to load, initialize
+     * and prepare, and the memory allocated meanwhile.
+     *
+     * @return the report
+     */
+    public synchronized String report() {
+        return String.join(System.lineSeparator(), preloads);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Starts loading and preparing level i on the loader thread
+    private CompletableFuture<Game> preload(int i, ExecutorService loader) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            Game game = new Game(gui);
+            if (seed != null) {
+                game.setSeed(seed + i);
+            }
+            try {
+                game.setLevel(LevelFile.load(levels.get(i)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            game.setScore(score);
+            game.initialize();
+            game.prepare();
+            long nanos = System.nanoTime() - start;
+            long bytes = allocatedBytes() - allocated;
+            synchronized (this) {
+                preloads.add(String.format(Locale.ROOT, "level=%s preload_ms=%.1f allocated_kib=%d blocks=%d",
+                        levels.get(i), nanos / 1e6, bytes >> 10, game.getRemainingBlocks()));
+            }
+            return game;
+        }, loader);
+    }
+
+    // Watches the file of the level being played
+    private static void watch(Game game, Path level) {
+        try {
+            game.watchLevel(level);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Waits for a level, rethrowing the failure that stopped it from loading
+    private static Game await(CompletableFuture<Game> level) {
+        try {
+            return level.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Bytes allocated so far by the current thread, or 0 if the JVM does not track them
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+            if (counting.isThreadAllocatedMemorySupported() && counting.isThreadAllocatedMemoryEnabled()) {
+                return counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+}
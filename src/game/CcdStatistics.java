@@ -0,0 +1,134 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The {@code CcdStatistics} class counts how many collision iterations the
+ * continuous collision detection loop of each ball step used.
+ * The histogram is indexed by the number of bounces resolved in a step
+ * (0 up to the bounce cap), so it shows how close the balls get to the cap.
+ */
+public class CcdStatistics {
+    private long[] histogram;
+    private long steps;
+    private long iterations;
+    private long cappedSteps;
+    private int maxIterations;
+
+    /**
+     * Constructs empty statistics for the given bounce cap.
+     *
+     * @param maxBounces the largest number of bounces a step may use
+     */
+    public CcdStatistics(int maxBounces) {
+        this.histogram = new long[maxBounces + 1];
+    }
+
+    /**
+     * Records one ball step.
+     *
+     * @param used   the number of bounces resolved during the step
+     * @param capped true if the step stopped because it reached the bounce cap
+     */
+    public void record(int used, boolean capped) {
+        record(used, capped, 1);
+    }
+
+    /**
+     * Records a number of ball steps that all used the same number of bounces.
+     *
+     * @param used   the number of bounces resolved during each step
+     * @param capped true if the steps stopped because they reached the bounce cap
+     * @param count  the number of steps
+     */
+    public void record(int used, boolean capped, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (used >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, used + 1);
+        }
+        histogram[used] += count;
+        steps += count;
+        iterations += used * count;
+        if (capped) {
+            cappedSteps += count;
+        }
+        maxIterations = Math.max(maxIterations, used);
+    }
+
+    /**
+     * Adds the counters of other statistics to these ones.
+     *
+     * @param other the statistics to add
+     */
+    public void add(CcdStatistics other) {
+        for (int used = 0; used < other.histogram.length; used++) {
+            if (other.histogram[used] > 0) {
+                if (used >= histogram.length) {
+                    histogram = Arrays.copyOf(histogram, used + 1);
+                }
+                histogram[used] += other.histogram[used];
+            }
+        }
+        steps += other.steps;
+        iterations += other.iterations;
+        cappedSteps += other.cappedSteps;
+        maxIterations = Math.max(maxIterations, other.maxIterations);
+    }
+
+    /**
+     * Clears all counters, for example at the start of a tick.
+     */
+    public void reset() {
+        Arrays.fill(histogram, 0);
+        steps = 0;
+        iterations = 0;
+        cappedSteps = 0;
+        maxIterations = 0;
+    }
+
+    /**
+     * Returns how many steps used exactly {@code bounces} bounces.
+     *
+     * @param bounces the number of bounces
+     * @return the number of steps
+     */
+    public long getSteps(int bounces) {
+        return bounces < histogram.length ? histogram[bounces] : 0;
+    }
+
+    /**
+     * @return the number of recorded steps
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the total number of bounces resolved over all steps
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of steps that stopped at the bounce cap
+     */
+    public long getCappedSteps() {
+        return cappedSteps;
+    }
+
+    /**
+     * @return the largest number of bounces used by a single step
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    @Override
+    public String toString() {
+        return "steps=" + steps + " bounces=" + iterations + " capped=" + cappedSteps
+                + " max=" + maxIterations + " histogram=" + Arrays.toString(histogram);
+    }
+}
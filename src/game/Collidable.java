@@ -29,4 +29,19 @@ public interface Collidable {
      * @return the new velocity after the collision
      */
     Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity);
+
+    /**
+     * Notify the object that we collided with it, passing the full collision
+     * manifold (point, surface normal, face and time of impact) so that the
+     * object does not need to work out which face was struck.
+     * By default, this falls back to {@link #hit(Ball, Point, Velocity)}.
+     *
+     * @param hitter the Ball that hit the object
+     * @param collision the collision information computed by the environment
+     * @param currentVelocity the velocity before the collision
+     * @return the new velocity after the collision
+     */
+    default Velocity hit(Ball hitter, CollisionInfo collision, Velocity currentVelocity) {
+        return hit(hitter, collision.collisionPoint(), currentVelocity);
+    }
 }
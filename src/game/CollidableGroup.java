@@ -0,0 +1,81 @@
+package game;
+
+import geometry.SegmentHit;
+
+/**
+ * The {@code CollidableGroup} interface describes many collidables that are
+ * stored and queried together (for example, a whole table of bricks), instead
+ * of being added to the {@link GameEnvironment} one by one.
+ * A group answers the same queries as a {@link CollidableIndex} and hands out
+ * a {@link Collidable} for the member that was hit.
+ */
+public interface CollidableGroup {
+
+    /**
+     * Finds the member that the segment hits first, if it is hit strictly before
+     * {@code maxToi}. On a miss, {@code out} is left untouched so that the caller
+     * can keep a closer hit it already found.
+     *
+     * @param x0     x of the segment start
+     * @param y0     y of the segment start
+     * @param x1     x of the segment end
+     * @param y1     y of the segment end
+     * @param maxToi only hits with a smaller time of impact are reported
+     * @param out    receives the hit point, normal, face and time of impact on a hit
+     * @return the member hit first, or {@code null} if there is no such hit
+     */
+    Collidable castSegment(double x0, double y0, double x1, double y1, double maxToi, SegmentHit out);
+
+    /**
+     * Checks whether the segment hits any member. Like
+     * {@link CollidableIndex#intersectsAny}, this query writes nothing and is safe
+     * for concurrent readers while the group is not being modified.
+     *
+     * @param x0 x of the segment start
+     * @param y0 y of the segment start
+     * @param x1 x of the segment end
+     * @param y1 y of the segment end
+     * @return true if the segment hits a member
+     */
+    boolean intersectsAny(double x0, double y0, double x1, double y1);
+
+    /**
+     * Checks whether any member contains the given point. Safe for concurrent readers.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return true if a member contains the point
+     */
+    boolean containsAny(double x, double y);
+
+    /**
+     * Returns a member whose collision rectangle contains the given point.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return the containing member, or {@code null} if there is none
+     */
+    Collidable collidableAt(double x, double y);
+
+    /**
+     * Builds whatever the group would otherwise build on its first query, such
+     * as a spatial index, so that a level prepared in advance does not pay for
+     * it on its first tick. Groups that build nothing lazily need not override this.
+     */
+    default void prepare() {
+    }
+
+    /**
+     * Returns a group of the members that overlap the x-range {@code [minX, maxX]},
+     * for one strip of a {@link PartitionedWorld}. The slice hands out the same
+     * collidables as this group, and follows the members that this group removes,
+     * restores or adds. Groups that cannot be split return themselves.
+     *
+     * @param minX x of the left edge of the range
+     * @param maxX x of the right edge of the range
+     * @return the slice, or {@code null} if no member can overlap the range
+     */
+    default CollidableGroup slice(double minX, double maxX) {
+        return this;
+    }
+}
@@ -0,0 +1,112 @@
+package game;
+
+import geometry.Line;
+import geometry.Point;
+import geometry.SegmentHit;
+
+/**
+ * The {@code CollidableIndex} interface describes the storage that a
+ * {@link GameEnvironment} uses to answer collision queries.
+ * Implementations may be a plain list or a spatial acceleration structure,
+ * but they must all return the same closest collision for a given trajectory.
+ */
+public interface CollidableIndex {
+
+    /**
+     * Adds a collidable to the index.
+     *
+     * @param c the collidable to add
+     */
+    void add(Collidable c);
+
+    /**
+     * Removes a collidable from the index. Does nothing if it is not indexed.
+     *
+     * @param c the collidable to remove
+     */
+    void remove(Collidable c);
+
+    /**
+     * Tells the index that the collision rectangle of a collidable has changed
+     * (for example, the paddle moved) so that it can be re-indexed.
+     *
+     * @param c the collidable whose bounds changed
+     */
+    void update(Collidable c);
+
+    /**
+     * Finds the collidable that the segment hits first, without allocating.
+     * When several are hit at the same time, the one that was added first wins.
+     *
+     * @param x0  x of the segment start
+     * @param y0  y of the segment start
+     * @param x1  x of the segment end
+     * @param y1  y of the segment end
+     * @param out receives the hit point, normal, face and time of impact (cleared on a miss)
+     * @return the collidable hit first, or {@code null} if there is no collision
+     */
+    Collidable castSegment(double x0, double y0, double x1, double y1, SegmentHit out);
+
+    /**
+     * Checks whether the segment hits any indexed collidable. Unlike the other
+     * queries this one writes nothing, not even scratch state, so any number of
+     * threads may run it at once while the index is not being modified.
+     *
+     * @param x0 x of the segment start
+     * @param y0 y of the segment start
+     * @param x1 x of the segment end
+     * @param y1 y of the segment end
+     * @return true if {@link #castSegment} would report a collision
+     */
+    boolean intersectsAny(double x0, double y0, double x1, double y1);
+
+    /**
+     * Checks whether any indexed collision rectangle contains the given point.
+     * Like {@link #intersectsAny}, this query is safe for concurrent readers.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return true if {@link #collidableAt(double, double)} would find a collidable
+     */
+    boolean containsAny(double x, double y);
+
+    /**
+     * Returns the closest collision along the given trajectory.
+     *
+     * @param trajectory the path of the moving object
+     * @return collision information, or {@code null} if there is no collision
+     */
+    default CollisionInfo closestCollision(Line trajectory) {
+        SegmentHit hit = new SegmentHit();
+        Collidable c = castSegment(trajectory.start().getX(), trajectory.start().getY(),
+                trajectory.end().getX(), trajectory.end().getY(), hit);
+        return c == null ? null : CollisionInfo.of(hit, c);
+    }
+
+    /**
+     * Returns a collidable whose collision rectangle contains the given point.
+     * When several do, the one that was added first is returned.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return the containing collidable, or {@code null} if there is none
+     */
+    Collidable collidableAt(double x, double y);
+
+    /**
+     * Returns a collidable whose collision rectangle contains the given point.
+     *
+     * @param p the point to test
+     * @return the containing collidable, or {@code null} if there is none
+     */
+    default Collidable collidableAt(Point p) {
+        return collidableAt(p.getX(), p.getY());
+    }
+
+    /**
+     * Returns all the indexed collidables, in insertion order.
+     *
+     * @return an array of {@link Collidable} objects
+     */
+    Collidable[] toArray();
+}
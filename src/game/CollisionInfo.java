@@ -1,26 +1,65 @@
 package game;
 
+import geometry.Intersections;
 import geometry.Point;
+import geometry.SegmentHit;
 
 /**
  * The {@code game.CollisionInfo} class holds information about a collision event
- * in the game environment. It stores both the point of collision and the
- * object that was collided with.
+ * in the game environment. It stores the point of collision, the object that
+ * was collided with, and the collision manifold computed by the intersection
+ * kernel: the surface normal of the face that was hit, the face id and the
+ * fractional time of impact along the trajectory.
  */
 public class CollisionInfo {
     private final Point p;
     private final Collidable c;
+    private final double normalX;
+    private final double normalY;
+    private final double toi;
+    private final int face;
 
     /**
      * Constructs a {@code game.CollisionInfo} object with the specified collision point
-     * and the collidable object involved in the collision.
+     * and the collidable object involved in the collision. The manifold is left
+     * unknown ({@link SegmentHit#FACE_NONE}).
      *
      * @param p the point at which the collision occurred
      * @param c the collidable object involved in the collision
      */
     public CollisionInfo(Point p, Collidable c) {
+        this(p, c, 0, 0, Intersections.NO_HIT, SegmentHit.FACE_NONE);
+    }
+
+    /**
+     * Constructs a {@code game.CollisionInfo} object with a full collision manifold.
+     *
+     * @param p       the point at which the collision occurred
+     * @param c       the collidable object involved in the collision
+     * @param normalX x of the outward surface normal of the hit face
+     * @param normalY y of the outward surface normal of the hit face
+     * @param toi     the fractional time of impact along the trajectory
+     * @param face    the id of the hit face, one of the {@code SegmentHit.FACE_*} constants
+     */
+    public CollisionInfo(Point p, Collidable c, double normalX, double normalY, double toi, int face) {
         this.p = p;
         this.c = c;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.toi = toi;
+        this.face = face;
+    }
+
+    /**
+     * Builds the collision info from a kernel hit record.
+     *
+     * @param hit the hit record filled in by the intersection kernel
+     * @param c   the collidable that was hit
+     * @return the collision info
+     */
+    public static CollisionInfo of(SegmentHit hit, Collidable c) {
+        return new CollisionInfo(new Point(hit.getX(), hit.getY()), c,
+                hit.getNormalX(), hit.getNormalY(), hit.getToi(), hit.getFace());
     }
 
     /**
@@ -40,4 +79,49 @@ public class CollisionInfo {
     public Collidable collisionObject() {
         return c;
     }
+
+    /**
+     * Returns the x component of the outward surface normal of the hit face.
+     *
+     * @return -1, 0 or 1
+     */
+    public double normalX() {
+        return normalX;
+    }
+
+    /**
+     * Returns the y component of the outward surface normal of the hit face.
+     *
+     * @return -1, 0 or 1
+     */
+    public double normalY() {
+        return normalY;
+    }
+
+    /**
+     * Returns the fractional time of impact along the trajectory.
+     *
+     * @return a value in {@code [0, 1]}, or {@code Intersections.NO_HIT} if unknown
+     */
+    public double timeOfImpact() {
+        return toi;
+    }
+
+    /**
+     * Returns the id of the face that was hit.
+     *
+     * @return one of the {@code SegmentHit.FACE_*} constants
+     */
+    public int face() {
+        return face;
+    }
+
+    /**
+     * Checks whether the collision manifold (normal, face, time of impact) is known.
+     *
+     * @return true if the manifold was computed by the intersection kernel
+     */
+    public boolean hasManifold() {
+        return face != SegmentHit.FACE_NONE;
+    }
 }
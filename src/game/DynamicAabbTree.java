@@ -0,0 +1,533 @@
+package game;
+
+import geometry.Intersections;
+import geometry.Rectangle;
+import geometry.SegmentHit;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code DynamicAabbTree} is a {@link CollidableIndex} that keeps the
+ * collision rectangles in a balanced bounding-volume hierarchy.
+ * Every leaf holds a collidable with its rectangle enlarged by a small margin,
+ * so small movements (such as the paddle sliding) do not require re-insertion.
+ * Insertion, removal and refit run in O(log n), and the tree answers ray-cast,
+ * point-overlap and box-overlap queries.
+ * Unlike a uniform grid, the tree adapts to objects of very different sizes.
+ */
+public class DynamicAabbTree implements CollidableIndex {
+    /**
+     * Margin (in pixels) added around each leaf's rectangle.
+     */
+    public static final double FAT_MARGIN = 2.0;
+
+    private static final int NULL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final double T_TOLERANCE = 1e-9;
+
+    private double[] minX;
+    private double[] minY;
+    private double[] maxX;
+    private double[] maxY;
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+    private int[] height;
+    private long[] sequence;
+    private Collidable[] items;
+    private int capacity;
+    private int freeList;
+    private int root;
+    private long nextSequence;
+    private int[] stack;
+    private final Map<Collidable, Integer> leaves;
+
+    /**
+     * Constructs an empty tree.
+     */
+    public DynamicAabbTree() {
+        this.leaves = new LinkedHashMap<>();
+        this.root = NULL;
+        this.capacity = 0;
+        this.freeList = NULL;
+        this.stack = new int[64];
+        grow(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void add(Collidable c) {
+        if (leaves.containsKey(c)) {
+            return;
+        }
+        int leaf = allocateNode();
+        items[leaf] = c;
+        sequence[leaf] = nextSequence++;
+        setFatBounds(leaf, c.getCollisionRectangle());
+        insertLeaf(leaf);
+        leaves.put(c, leaf);
+    }
+
+    @Override
+    public void remove(Collidable c) {
+        Integer leaf = leaves.remove(c);
+        if (leaf == null) {
+            return;
+        }
+        removeLeaf(leaf);
+        freeNode(leaf);
+    }
+
+    /**
+     * Refits the leaf of a collidable after its collision rectangle changed.
+     * If the new rectangle still fits inside the enlarged leaf bounds, nothing is done.
+     *
+     * @param c the collidable that moved
+     */
+    @Override
+    public void update(Collidable c) {
+        Integer boxed = leaves.get(c);
+        if (boxed == null) {
+            return;
+        }
+        int leaf = boxed;
+        Rectangle rect = c.getCollisionRectangle();
+        double left = rect.getUpperLeft().getX();
+        double top = rect.getUpperLeft().getY();
+        if (left >= minX[leaf] && top >= minY[leaf]
+                && left + rect.getWidth() <= maxX[leaf] && top + rect.getHeight() <= maxY[leaf]) {
+            return;
+        }
+        removeLeaf(leaf);
+        setFatBounds(leaf, rect);
+        insertLeaf(leaf);
+    }
+
+    @Override
+    public Collidable castSegment(double x0, double y0, double x1, double y1, SegmentHit out) {
+        out.clear();
+        if (root == NULL) {
+            return null;
+        }
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+
+        Collidable closestCollidable = null;
+        double closestToi = Double.MAX_VALUE;
+        long closestSequence = Long.MAX_VALUE;
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            double limit = closestCollidable == null ? 1.0 : closestToi;
+            if (!segmentOverlapsBox(x0, y0, dx, dy, limit, node)) {
+                continue;
+            }
+            if (child1[node] == NULL) {
+                double toi = items[node].getCollisionRectangle().timeOfImpact(x0, y0, x1, y1);
+                if (toi != Intersections.NO_HIT
+                        && (toi < closestToi || (toi == closestToi && sequence[node] < closestSequence))) {
+                    closestToi = toi;
+                    closestCollidable = items[node];
+                    closestSequence = sequence[node];
+                }
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        if (closestCollidable == null
+                || !closestCollidable.getCollisionRectangle().intersect(x0, y0, x1, y1, out)) {
+            return null;
+        }
+        return closestCollidable;
+    }
+
+    @Override
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        return root != NULL && anyHit(root, x0, y0, x1, y1);
+    }
+
+    @Override
+    public boolean containsAny(double x, double y) {
+        return root != NULL && anyContains(root, x, y);
+    }
+
+    @Override
+    public Collidable collidableAt(double x, double y) {
+        if (root == NULL) {
+            return null;
+        }
+        Collidable found = null;
+        long foundSequence = Long.MAX_VALUE;
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (x < minX[node] || x > maxX[node] || y < minY[node] || y > maxY[node]) {
+                continue;
+            }
+            if (child1[node] == NULL) {
+                if (sequence[node] < foundSequence && items[node].getCollisionRectangle().contains(x, y)) {
+                    found = items[node];
+                    foundSequence = sequence[node];
+                }
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Collects every collidable whose collision rectangle overlaps the given box.
+     *
+     * @param left   the left edge of the box
+     * @param top    the top edge of the box
+     * @param right  the right edge of the box
+     * @param bottom the bottom edge of the box
+     * @param out    the list that receives the overlapping collidables
+     */
+    public void queryBox(double left, double top, double right, double bottom, List<Collidable> out) {
+        if (root == NULL) {
+            return;
+        }
+        int sp = 0;
+        stack[sp++] = root;
+        while (sp > 0) {
+            int node = stack[--sp];
+            if (right < minX[node] || left > maxX[node] || bottom < minY[node] || top > maxY[node]) {
+                continue;
+            }
+            if (child1[node] == NULL) {
+                Rectangle rect = items[node].getCollisionRectangle();
+                double rl = rect.getUpperLeft().getX();
+                double rt = rect.getUpperLeft().getY();
+                if (right >= rl && left <= rl + rect.getWidth()
+                        && bottom >= rt && top <= rt + rect.getHeight()) {
+                    out.add(items[node]);
+                }
+            } else {
+                sp = push(sp, child1[node]);
+                sp = push(sp, child2[node]);
+            }
+        }
+    }
+
+    @Override
+    public Collidable[] toArray() {
+        return leaves.keySet().toArray(new Collidable[0]);
+    }
+
+    /**
+     * Returns the height of the tree (0 for a single leaf, -1 when empty).
+     *
+     * @return the height of the root node
+     */
+    public int getHeight() {
+        return root == NULL ? -1 : height[root];
+    }
+
+    /**
+     * Returns the number of indexed collidables.
+     *
+     * @return the leaf count
+     */
+    public int size() {
+        return leaves.size();
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    // The read-only queries recurse instead of using the shared stack, so that they are safe for concurrent readers
+    private boolean anyHit(int node, double x0, double y0, double x1, double y1) {
+        if (!segmentOverlapsBox(x0, y0, x1 - x0, y1 - y0, 1.0, node)) {
+            return false;
+        }
+        if (child1[node] == NULL) {
+            return items[node].getCollisionRectangle().timeOfImpact(x0, y0, x1, y1) != Intersections.NO_HIT;
+        }
+        return anyHit(child1[node], x0, y0, x1, y1) || anyHit(child2[node], x0, y0, x1, y1);
+    }
+
+    private boolean anyContains(int node, double x, double y) {
+        if (x < minX[node] || x > maxX[node] || y < minY[node] || y > maxY[node]) {
+            return false;
+        }
+        if (child1[node] == NULL) {
+            return items[node].getCollisionRectangle().contains(x, y);
+        }
+        return anyContains(child1[node], x, y) || anyContains(child2[node], x, y);
+    }
+
+    private boolean segmentOverlapsBox(double x0, double y0, double dx, double dy, double limit, int node) {
+        double tEnter = 0;
+        double tExit = limit;
+        if (dx == 0) {
+            if (x0 < minX[node] || x0 > maxX[node]) {
+                return false;
+            }
+        } else {
+            double t1 = (minX[node] - x0) / dx;
+            double t2 = (maxX[node] - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y0 < minY[node] || y0 > maxY[node]) {
+                return false;
+            }
+        } else {
+            double t1 = (minY[node] - y0) / dy;
+            double t2 = (maxY[node] - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        // Hits exactly on a box edge must not be pruned by rounding of the limit
+        return tEnter <= tExit + T_TOLERANCE;
+    }
+
+    private void setFatBounds(int leaf, Rectangle rect) {
+        double left = rect.getUpperLeft().getX();
+        double top = rect.getUpperLeft().getY();
+        minX[leaf] = left - FAT_MARGIN;
+        minY[leaf] = top - FAT_MARGIN;
+        maxX[leaf] = left + rect.getWidth() + FAT_MARGIN;
+        maxY[leaf] = top + rect.getHeight() + FAT_MARGIN;
+    }
+
+    private void grow(int newCapacity) {
+        minX = Arrays.copyOf(minX == null ? new double[0] : minX, newCapacity);
+        minY = Arrays.copyOf(minY == null ? new double[0] : minY, newCapacity);
+        maxX = Arrays.copyOf(maxX == null ? new double[0] : maxX, newCapacity);
+        maxY = Arrays.copyOf(maxY == null ? new double[0] : maxY, newCapacity);
+        parent = Arrays.copyOf(parent == null ? new int[0] : parent, newCapacity);
+        child1 = Arrays.copyOf(child1 == null ? new int[0] : child1, newCapacity);
+        child2 = Arrays.copyOf(child2 == null ? new int[0] : child2, newCapacity);
+        height = Arrays.copyOf(height == null ? new int[0] : height, newCapacity);
+        sequence = Arrays.copyOf(sequence == null ? new long[0] : sequence, newCapacity);
+        items = Arrays.copyOf(items == null ? new Collidable[0] : items, newCapacity);
+        // Link the new nodes into the free list (parent doubles as "next free")
+        for (int i = newCapacity - 1; i >= capacity; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+        capacity = newCapacity;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            grow(capacity * 2);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        items[node] = null;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        items[node] = null;
+        height[node] = -1;
+        parent[node] = freeList;
+        freeList = node;
+    }
+
+    private static double perimeter(double x1, double y1, double x2, double y2) {
+        return 2 * ((x2 - x1) + (y2 - y1));
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // Find the best sibling by descending with the perimeter (surface area) heuristic
+        double lx1 = minX[leaf];
+        double ly1 = minY[leaf];
+        double lx2 = maxX[leaf];
+        double ly2 = maxY[leaf];
+        int index = root;
+        while (child1[index] != NULL) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            double area = perimeter(minX[index], minY[index], maxX[index], maxY[index]);
+            double combinedArea = perimeter(Math.min(minX[index], lx1), Math.min(minY[index], ly1),
+                    Math.max(maxX[index], lx2), Math.max(maxY[index], ly2));
+            double cost = 2 * combinedArea;
+            double inheritanceCost = 2 * (combinedArea - area);
+
+            double cost1 = descendCost(c1, lx1, ly1, lx2, ly2) + inheritanceCost;
+            double cost2 = descendCost(c2, lx1, ly1, lx2, ly2) + inheritanceCost;
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        fixUpwards(parent[leaf]);
+    }
+
+    private double descendCost(int child, double lx1, double ly1, double lx2, double ly2) {
+        double union = perimeter(Math.min(minX[child], lx1), Math.min(minY[child], ly1),
+                Math.max(maxX[child], lx2), Math.max(maxY[child], ly2));
+        if (child1[child] == NULL) {
+            return union;
+        }
+        return union - perimeter(minX[child], minY[child], maxX[child], maxY[child]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            if (child1[grandParent] == p) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(p);
+            fixUpwards(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+        parent[leaf] = NULL;
+    }
+
+    private void fixUpwards(int start) {
+        int index = start;
+        while (index != NULL) {
+            index = balance(index);
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setUnion(index, c1, c2);
+            index = parent[index];
+        }
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    /**
+     * Performs a left or right rotation if node {@code a} is imbalanced.
+     *
+     * @param a the node to balance
+     * @return the new root of the balanced subtree
+     */
+    private int balance(int a) {
+        if (child1[a] == NULL || height[a] < 2) {
+            return a;
+        }
+        int b = child1[a];
+        int c = child2[a];
+        int diff = height[c] - height[b];
+        if (diff > 1) {
+            return rotate(a, c, b);
+        }
+        if (diff < -1) {
+            return rotate(a, b, c);
+        }
+        return a;
+    }
+
+    /**
+     * Promotes the taller child {@code up} of {@code a} to replace {@code a}.
+     *
+     * @param a     the imbalanced node
+     * @param up    the taller child of {@code a}
+     * @param other the shorter child of {@code a}
+     * @return the promoted node
+     */
+    private int rotate(int a, int up, int other) {
+        int f = child1[up];
+        int g = child2[up];
+
+        child1[up] = a;
+        parent[up] = parent[a];
+        parent[a] = up;
+
+        if (parent[up] != NULL) {
+            if (child1[parent[up]] == a) {
+                child1[parent[up]] = up;
+            } else {
+                child2[parent[up]] = up;
+            }
+        } else {
+            root = up;
+        }
+
+        // Keep the taller grandchild under the promoted node, move the other under a
+        int keep = height[f] > height[g] ? f : g;
+        int move = keep == f ? g : f;
+        child2[up] = keep;
+        if (child1[a] == up) {
+            child1[a] = move;
+        } else {
+            child2[a] = move;
+        }
+        parent[move] = a;
+
+        setUnion(a, other, move);
+        height[a] = 1 + Math.max(height[other], height[move]);
+        setUnion(up, a, keep);
+        height[up] = 1 + Math.max(height[a], height[keep]);
+        return up;
+    }
+}
@@ -0,0 +1,74 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code FramePacer} class waits until a deadline given in
+ * {@link System#nanoTime()} units, accurately enough to hold 60, 120 or 144 Hz.
+ * Sleeping alone overshoots by up to a millisecond or more, depending on the
+ * operating system's timer, while spinning alone burns a whole core. The pacer
+ * therefore parks the thread until shortly before the deadline and spins for
+ * the rest.
+ */
+public class FramePacer {
+    /**
+     * Default time before the deadline at which the pacer stops sleeping and starts spinning.
+     */
+    public static final long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(1500);
+
+    private final long spinNanos;
+
+    /**
+     * Constructs a pacer that spins for the last {@link #DEFAULT_SPIN_NANOS}.
+     */
+    public FramePacer() {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    /**
+     * Constructs a pacer that spins for the last {@code spinNanos} before each deadline.
+     *
+     * @param spinNanos how long before the deadline to start spinning (0 to only sleep)
+     */
+    public FramePacer(long spinNanos) {
+        if (spinNanos < 0) {
+            throw new IllegalArgumentException("spinNanos must not be negative");
+        }
+        this.spinNanos = spinNanos;
+    }
+
+    /**
+     * Returns the length of one period at the given rate.
+     *
+     * @param hertz the rate in periods per second
+     * @return the period in nanoseconds
+     */
+    public static long periodOf(int hertz) {
+        if (hertz <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        return TimeUnit.SECONDS.toNanos(1) / hertz;
+    }
+
+    /**
+     * Blocks until {@link System#nanoTime()} reaches the deadline. Returns at once
+     * if the deadline has already passed.
+     *
+     * @param deadline the time to wait for, in {@link System#nanoTime()} units
+     */
+    public void sleepUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > spinNanos) {
+            LockSupport.parkNanos(remaining - spinNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -9,16 +9,31 @@ import geometry.Rectangle;
 import geometry.Velocity;
 import listeners.BallRemover;
 import listeners.Counter;
+import listeners.HitEventBus;
+import listeners.HitListener;
+import listeners.HitNotifier;
 import listeners.BlockRemover;
 import listeners.ScoreTrackingListener;
 import sprites.Ball;
+import sprites.BallSystem;
 import sprites.Block;
+import sprites.BlockStore;
+import sprites.BlockTable;
+import sprites.TileMapCollidable;
 import sprites.Paddle;
 import sprites.Background;
 import sprites.ScoreIndicator;
 //import sprites.FireDeathRegion;
 import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The {@code Game} class is responsible for setting up and running the game
@@ -32,8 +47,38 @@ public class Game {
     private Counter remainingBalls;
     private Counter score;
     private final SpriteCollection sprites;
-    private final GameEnvironment environment;
+    private final StaticLayer staticLayer;
+    private AssetCache assets;
+    private GameEnvironment environment;
+    private final BallSystem balls;
+    private PartitionedWorld world;
     private final GUI gui;
+    private KeyboardSensor keyboard;
+    private final GameMetrics metrics;
+    private final HitEventBus hitEvents;
+    private final List<HitNotifier> hitNotifiers;
+    private long seed;
+    private Level level;
+    private Block[] walls;
+    private Block[] deathRegions;
+    private TileMapCollidable bricks;
+    private BlockTable blockTable;
+    private int[] blockSlots;
+    private BallRemover ballRemover;
+    private final List<HitListener> subscribers;
+    private final ConcurrentLinkedQueue<LevelDiff> reloads;
+    private LevelWatcher watcher;
+    private long levelReloads;
+    private long reloadNanos;
+    private RecordingKeyboard recorder;
+    private Paddle paddle;
+    private HitListener hitCounter;
+    private long ballsPlaced;
+    private long blocksPlaced;
+    private boolean over;
+    private boolean won;
+    private int tickRate;
+    private int renderRate;
 
     /**
      * Width of the game screen in pixels.
@@ -60,19 +105,277 @@ public class Game {
      */
     public static final int BALL_RADIUS = 3;
 
+    /**
+     * The image drawn behind the level.
+     */
+    public static final String BACKGROUND_IMAGE = "background1.jpg";
+
+    /**
+     * The level played when no other level is set.
+     */
+    public static final String DEFAULT_LEVEL = "levels/level1.txt";
+
     /**
      * Number of balls to be generated in the game.
      */
     public static final int BALL_COUNT = 3;
 
+    /**
+     * The keys that affect the game, and therefore are recorded for replays.
+     */
+    public static final List<String> RECORDED_KEYS =
+            List.of(KeyboardSensor.LEFT_KEY, KeyboardSensor.RIGHT_KEY);
+
+    /**
+     * Default number of game updates per second.
+     */
+    public static final int DEFAULT_TICK_RATE = 60;
+
+    /**
+     * Default number of frames drawn per second.
+     */
+    public static final int DEFAULT_RENDER_RATE = 60;
+
+    /**
+     * Most updates run before a frame is drawn. When the game falls further behind,
+     * the extra time is dropped and the game slows down instead of freezing.
+     */
+    public static final int MAX_TICKS_PER_FRAME = 5;
+
     /**
      * Constructs a new {@code Game} instance.
      * Initializes the sprite collection, environment, and GUI.
      */
     public Game() {
+        this(new GUI("Game", SCREEN_WIDTH, SCREEN_HEIGHT), null);
+    }
+
+    /**
+     * Constructs a game that shows in a window that is already open, for
+     * example the next level of a {@link Campaign}.
+     *
+     * @param gui the window to show the game in
+     */
+    public Game(GUI gui) {
+        this(gui, null);
+    }
+
+    /**
+     * Constructs a headless {@code Game} that opens no window. The game is driven
+     * with {@link #tick()} (for example by a {@link HeadlessRunner}) and reads the
+     * paddle controls from the given keyboard.
+     *
+     * @param keyboard the keyboard that controls the paddle
+     */
+    public Game(KeyboardSensor keyboard) {
+        this(null, keyboard);
+    }
+
+    /**
+     * Constructs a game that either shows a window or, when {@code gui} is
+     * {@code null}, runs headless with the given keyboard.
+     *
+     * @param gui      the window to show, or {@code null} for a headless game
+     * @param keyboard the keyboard of a headless game
+     */
+    private Game(GUI gui, KeyboardSensor keyboard) {
         this.sprites = new SpriteCollection();
-        this.environment = new GameEnvironment();
-        this.gui = new GUI("Game", SCREEN_WIDTH, SCREEN_HEIGHT);
+        this.staticLayer = new StaticLayer(SCREEN_WIDTH, SCREEN_HEIGHT);
+        this.assets = AssetCache.shared();
+        this.environment = new GameEnvironment(new DynamicAabbTree());
+        this.balls = new BallSystem(environment);
+        this.balls.setPool(ForkJoinPool.commonPool());
+        this.gui = gui;
+        this.keyboard = gui != null ? gui.getKeyboardSensor() : keyboard;
+        this.metrics = new GameMetrics();
+        this.hitEvents = new HitEventBus();
+        this.hitNotifiers = new ArrayList<>();
+        this.subscribers = new ArrayList<>();
+        this.reloads = new ConcurrentLinkedQueue<>();
+        this.seed = System.nanoTime();
+        this.tickRate = DEFAULT_TICK_RATE;
+        this.renderRate = DEFAULT_RENDER_RATE;
+    }
+
+    /**
+     * Returns the cache the game loads its images from.
+     *
+     * @return the asset cache
+     */
+    public AssetCache getAssets() {
+        return this.assets;
+    }
+
+    /**
+     * Sets the cache the game loads its images from. By default, every game
+     * shares {@link AssetCache#shared()}. Must be called before {@link #initialize()}.
+     *
+     * @param assets the asset cache
+     */
+    public void setAssets(AssetCache assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Returns the level the game plays.
+     *
+     * @return the level, or {@code null} before {@link #initialize()} if none was set
+     */
+    public Level getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Sets the level the game plays, for example one loaded with
+     * {@link LevelFile#load(Path)}. By default, the game plays {@link #DEFAULT_LEVEL}.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param level the level
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Queues a change to the level being played, to be applied at the start of
+     * the next tick. Only the walls, death regions, blocks and bricks that
+     * changed are removed and added; the balls, the paddle and the score are
+     * left as they are, and blocks that were removed in play stay removed
+     * unless the change places them again. May be called from any thread;
+     * the diffs must follow one another, starting from {@link #getLevel()}.
+     * A recorded game cannot be changed, since its recording would not replay it.
+     *
+     * @param diff the change, from the level as it is when the change is applied
+     */
+    public void reload(LevelDiff diff) {
+        if (recorder != null) {
+            throw new IllegalStateException("a recorded game cannot reload its level");
+        }
+        reloads.add(diff);
+    }
+
+    /**
+     * Watches the file the level was loaded from, and applies its changes to
+     * the level being played whenever it is saved (see {@link LevelWatcher}).
+     * The watch stops when the game ends. Must be called after {@link #initialize()},
+     * and not on a recorded game (see {@link #reload(LevelDiff)}).
+     *
+     * @param file the level file
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public void watchLevel(Path file) throws IOException {
+        if (recorder != null) {
+            throw new IllegalStateException("a recorded game cannot watch its level");
+        }
+        if (watcher != null) {
+            watcher.close();
+        }
+        watcher = new LevelWatcher(file, level, this::reload);
+    }
+
+    /**
+     * Sets the counter the game adds its points to, so that the levels of a
+     * {@link Campaign} keep one score. By default, every game starts from zero.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param score the score counter
+     */
+    public void setScore(Counter score) {
+        this.score = score;
+    }
+
+    /**
+     * Adds a sprite that rarely changes, such as a wall, to the cached static
+     * layer drawn beneath every other sprite (see {@link StaticLayer}).
+     *
+     * @param s the sprite to add
+     */
+    public void addStaticSprite(Sprite s) {
+        this.staticLayer.addSprite(s);
+    }
+
+    /**
+     * Redraws an area of the static layer before the next frame, after something
+     * drawn there has changed, for example when a block of a tile map is removed.
+     *
+     * @param area the area to redraw
+     */
+    public void redraw(Rectangle area) {
+        this.staticLayer.invalidate(area);
+    }
+
+    /**
+     * Adds a listener to every block and death region of the game. The game's
+     * own listeners are called synchronously; a listener that does not affect
+     * the game, such as a {@link listeners.PrintingHitListener}, can be called at
+     * the end of the tick or on a background thread instead, keeping it out of
+     * the physics step. Must be called after {@link #initialize()}.
+     *
+     * @param hl       the listener to add
+     * @param delivery when and where the listener is called
+     */
+    public void addHitListener(HitListener hl, HitEventBus.Delivery delivery) {
+        HitListener subscriber = hitEvents.subscribe(hl, delivery);
+        subscribers.add(subscriber);
+        for (HitNotifier notifier : hitNotifiers) {
+            notifier.addHitListener(subscriber);
+        }
+    }
+
+    /**
+     * Returns the bus that delivers the hits of deferred listeners.
+     *
+     * @return the hit event bus
+     */
+    public HitEventBus getHitEvents() {
+        return this.hitEvents;
+    }
+
+    /**
+     * Returns the number of game updates per second.
+     *
+     * @return the tick rate in Hz
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Sets the number of game updates per second. Velocities are given per
+     * update at {@link #DEFAULT_TICK_RATE} and scaled to the tick rate, so it
+     * changes how finely the game is simulated but not how fast it runs.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param hertz the tick rate in Hz
+     */
+    public void setTickRate(int hertz) {
+        if (hertz <= 0) {
+            throw new IllegalArgumentException("tick rate must be positive");
+        }
+        this.tickRate = hertz;
+    }
+
+    /**
+     * Returns the number of frames drawn per second.
+     *
+     * @return the render rate in Hz
+     */
+    public int getRenderRate() {
+        return renderRate;
+    }
+
+    /**
+     * Sets the number of frames drawn per second, for example 60, 120 or 144 to
+     * match the display. The render rate is independent of the tick rate: frames
+     * drawn between two updates are interpolated.
+     *
+     * @param hertz the render rate in Hz
+     */
+    public void setRenderRate(int hertz) {
+        if (hertz <= 0) {
+            throw new IllegalArgumentException("render rate must be positive");
+        }
+        this.renderRate = hertz;
     }
 
     /**
@@ -84,6 +387,24 @@ public class Game {
         this.environment.addCollidable(c);
     }
 
+    /**
+     * Notifies the game environment that a {@link Collidable} has moved.
+     *
+     * @param c the collidable whose collision rectangle changed
+     */
+    public void updateCollidable(Collidable c) {
+        this.environment.updateCollidable(c);
+    }
+
+    /**
+     * Adds a {@link CollidableGroup} to the game environment.
+     *
+     * @param group the group of collidables to add
+     */
+    public void addCollidableGroup(CollidableGroup group) {
+        this.environment.addCollidableGroup(group);
+    }
+
     /**
      * Adds a {@link Sprite} object to the sprite collection.
      *
@@ -93,75 +414,347 @@ public class Game {
         this.sprites.addSprite(s);
     }
 
+    /**
+     * Adds a {@link Sprite} object to the sprite collection, in the given drawing layer.
+     *
+     * @param s     the sprite to add
+     * @param layer the layer to draw the sprite in
+     */
+    public void addSprite(Sprite s, Layer layer) {
+        this.sprites.addSprite(s, layer);
+    }
+
+    /**
+     * Returns the seed of the game's random number generator.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the game's random number generator, which places the balls.
+     * Two games with the same seed and the same input play out identically.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Starts recording the game's input and state hashes, so that the game can
+     * be replayed (see {@link ReplayRunner}). Must be called before
+     * {@link #initialize()}, with the seed already set.
+     *
+     * @return the keyboard that records the input
+     */
+    public RecordingKeyboard startRecording() {
+        recorder = new RecordingKeyboard(keyboard, seed, RECORDED_KEYS);
+        keyboard = recorder;
+        return recorder;
+    }
+
+    /**
+     * Returns the recording started by {@link #startRecording()}.
+     *
+     * @return the recording, or {@code null} if the game is not recorded
+     */
+    public InputRecording getRecording() {
+        return recorder == null ? null : recorder.getRecording();
+    }
+
+    /**
+     * Returns a hash of the game state: the balls, the paddle, the score and the
+     * remaining blocks and balls. Replays compare it tick by tick to detect
+     * where a replayed game diverges from the recorded one.
+     *
+     * @return the state hash
+     */
+    public int stateHash() {
+        int h = world != null ? world.stateHash() : balls.stateHash();
+        h = 31 * h + (paddle == null ? 0 : Double.hashCode(paddle.getCollisionRectangle().getUpperLeft().getX()));
+        h = 31 * h + score.getValue();
+        h = 31 * h + remainingBlocks.getValue();
+        h = 31 * h + remainingBalls.getValue();
+        return h;
+    }
+
+    /**
+     * Returns the frame timings and event counters of the game. Call
+     * {@link GameMetrics#setDumpFile} to have them written to a file while the game runs.
+     *
+     * @return the game's metrics
+     */
+    public GameMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns the system that stores and steps the game's balls.
+     *
+     * @return the ball system
+     */
+    public BallSystem getBallSystem() {
+        return this.balls;
+    }
+
+    /**
+     * Splits the arena into vertical strips whose balls are stepped on worker
+     * threads by a {@link PartitionedWorld}, instead of by the game's
+     * {@link BallSystem}. With a single strip the game plays exactly as it does
+     * without. Must be called before {@link #initialize()}.
+     *
+     * @param strips the number of strips (at least 1)
+     */
+    public void setStrips(int strips) {
+        if (world != null) {
+            world.close();
+        }
+        this.world = new PartitionedWorld(0, SCREEN_WIDTH, strips, BLOCK_WIDTH, DynamicAabbTree::new);
+        this.environment = world.getEnvironment();
+    }
+
+    /**
+     * Returns the strips the balls are stepped in, if {@link #setStrips(int)} was called.
+     *
+     * @return the partitioned world, or {@code null} if the game's {@link BallSystem} steps the balls
+     */
+    public PartitionedWorld getWorld() {
+        return this.world;
+    }
+
     /**
      * Initializes the game by creating all components (balls, paddle, walls,
-     * blocks, etc.).
+     * blocks, etc.) of its level.
+     *
+     * @throws UncheckedIOException if no level was set and {@link #DEFAULT_LEVEL} cannot be loaded
      */
     public void initialize() {
-        Background bg = new Background("background1.jpg");
-        this.addSprite(bg);
+        if (level == null) {
+            try {
+                level = LevelFile.load(Path.of(DEFAULT_LEVEL));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        // The image decodes in the background while the level is built, and is first needed by the first frame
+        String image = level.getBackground() != null ? level.getBackground() : BACKGROUND_IMAGE;
+        Background bg = new Background(assets.request(image, SCREEN_WIDTH, SCREEN_HEIGHT));
+        this.addSprite(staticLayer, Layer.BACKGROUND);
+        this.addStaticSprite(bg);
 
         this.remainingBalls = new Counter();
         this.remainingBlocks = new Counter();
-        this.score = new Counter();
+        if (this.score == null) {
+            this.score = new Counter();
+        }
+        this.hitCounter = hitEvents.subscribe(metrics.countingListener("hits"), HitEventBus.Delivery.END_OF_TICK);
+        metrics.addCounter("events.dropped", hitEvents::getDropped);
+        metrics.addCounter("events.backlog", hitEvents::getBacklog);
+        metrics.addCounter("static.redraws", staticLayer::getRedrawCount);
+        metrics.addCounter("level.reloads", () -> levelReloads);
+        metrics.addCounter("level.reload_micros", () -> reloadNanos / 1000);
+        metrics.addCounter("collisions", () -> environment.getCcdStatistics().getIterations());
+        metrics.addCounter("removals", () -> blocksPlaced - remainingBlocks.getValue()
+                + ballsPlaced - remainingBalls.getValue());
 
-        addBalls();
-        Paddle paddle = new Paddle(gui.getKeyboardSensor());
+        if (world != null) {
+            world.addToGame(this);
+        } else {
+            this.addSprite(balls, Layer.BALLS);
+        }
+        if (level.getBalls().size() > 0) {
+            addLevelBalls();
+        } else {
+            addBalls();
+        }
+        paddle = new Paddle(keyboard, Paddle.DEFAULT_SPEED * stepScale());
         paddle.addToGame(this);
 
         createWalls();
-        createBlockGrid();
-        createDeathRegion();
+        createBlocks();
+        createDeathRegions();
 
         ScoreIndicator scoreIndicator = new ScoreIndicator(score);
-        this.addSprite(scoreIndicator);
+        this.addSprite(scoreIndicator, Layer.HUD);
     }
 
     /**
-     * Starts the game loop, repeatedly updating and rendering all elements.
-     * Ends when the player wins (all blocks removed) or loses (all balls lost).
+     * Does ahead of time the work that the first tick and the first frames would
+     * otherwise do: builds the spatial indexes that are built lazily, waits for
+     * the background image, and draws the static layer. A game prepared on a
+     * background thread, while another level is played, then starts without a
+     * stall. Must be called after {@link #initialize()}.
+     */
+    public void prepare() {
+        environment.prepare();
+        staticLayer.prepare();
+    }
+
+    /**
+     * Plays the game, then shows the end screen and closes the window
+     * (see {@link #play()} and {@link #showEndScreen()}).
      */
     public void run() {
-        Sleeper sleeper = new Sleeper();
-        int framesPerSecond = 60;
-        int millisecondsPerFrame = 1000 / framesPerSecond;
+        play();
+        showEndScreen();
+    }
+
+    /**
+     * Runs the game loop, updating the game in fixed steps of {@code 1 / tickRate}
+     * seconds and drawing interpolated frames {@code renderRate} times per second,
+     * until the player wins (all blocks removed) or loses (all balls lost).
+     * The window stays open.
+     *
+     * @return true if the player won
+     */
+    public boolean play() {
+        if (gui == null) {
+            throw new IllegalStateException("a headless game is driven with tick()");
+        }
+        FramePacer pacer = new FramePacer();
+        long tickNanos = FramePacer.periodOf(tickRate);
+        long frameNanos = FramePacer.periodOf(renderRate);
+        long previous = System.nanoTime();
+        long nextFrame = previous;
+        long accumulator = 0;
 
         while (true) {
-            long startTime = System.currentTimeMillis();
+            long now = System.nanoTime();
+            accumulator = Math.min(accumulator + (now - previous), MAX_TICKS_PER_FRAME * tickNanos);
+            previous = now;
 
-            DrawSurface d = gui.getDrawSurface();
+            while (accumulator >= tickNanos) {
+                accumulator -= tickNanos;
+                if (!tick()) {
+                    return won;
+                }
+            }
 
-            this.sprites.drawAllOn(d);
+            double alpha = (double) accumulator / tickNanos;
+            DrawSurface d = gui.getDrawSurface();
+            drawFrame(d, alpha);
+            long showStart = System.nanoTime();
             gui.show(d);
-            this.sprites.notifyAllTimePassed();
-
-            long usedTime = System.currentTimeMillis() - startTime;
-            long milliSecondLeftToSleep = millisecondsPerFrame - usedTime;
-            if (milliSecondLeftToSleep > 0) {
-                sleeper.sleepFor(milliSecondLeftToSleep);
-            }
+            long shown = System.nanoTime();
+            metrics.record(GameMetrics.Phase.SHOW, shown - showStart);
+            metrics.maybeDump(shown);
 
-            if (gui.getKeyboardSensor().isPressed("p")) {
-                while (!gui.getKeyboardSensor().isPressed(KeyboardSensor.SPACE_KEY)) {
+            if (keyboard.isPressed("p")) {
+                while (!keyboard.isPressed(KeyboardSensor.SPACE_KEY)) {
                     DrawSurface pauseSurface = gui.getDrawSurface();
-                    this.sprites.drawAllOn(pauseSurface);
+                    this.sprites.drawAllOn(pauseSurface, alpha);
                     pauseSurface.setColor(Color.yellow);
                     pauseSurface.drawText(100, SCREEN_HEIGHT / 2, "PAUSED - Press Space to Continue", 40);
                     gui.show(pauseSurface);
-                    sleeper.sleepFor(millisecondsPerFrame);
+                    pacer.sleepUntil(System.nanoTime() + frameNanos);
                 }
+                // Time spent paused does not count towards the simulation
+                previous = System.nanoTime();
+                nextFrame = previous;
             }
 
-            if (remainingBlocks.getValue() <= 0) {
-                score.increase(100);
-                showEndScreen(true, score.getValue());
-                return;
-            } else if (remainingBalls.getValue() <= 0) {
-                showEndScreen(false, score.getValue());
-                return;
+            nextFrame += frameNanos;
+            long late = System.nanoTime() - nextFrame;
+            if (late > frameNanos) {
+                // Too far behind to catch up: start a new frame schedule from now
+                nextFrame += (late / frameNanos) * frameNanos;
             }
+            pacer.sleepUntil(nextFrame);
+        }
+    }
 
+    /**
+     * Updates every game element once, then checks whether the game has ended:
+     * it is won (with a bonus of 100 points) when all blocks are removed, and
+     * lost when all balls are lost.
+     *
+     * @return true if the game goes on, false once it has ended
+     */
+    public boolean tick() {
+        if (over) {
+            return false;
         }
+        if (recorder != null) {
+            recorder.beginTick();
+        }
+        long start = System.nanoTime();
+        if (!reloads.isEmpty()) {
+            applyReloads();
+        }
+        this.sprites.notifyAllTimePassed();
+        hitEvents.endTick();
+        metrics.record(GameMetrics.Phase.UPDATE, System.nanoTime() - start);
+        if (remainingBlocks.getValue() <= 0) {
+            score.increase(100);
+            over = true;
+            won = true;
+        } else if (remainingBalls.getValue() <= 0) {
+            over = true;
+        }
+        if (over) {
+            hitEvents.close();
+            if (watcher != null) {
+                watcher.close();
+            }
+            if (world != null) {
+                world.close();
+            }
+        }
+        if (recorder != null) {
+            recorder.endTick(stateHash());
+        }
+        return !over;
+    }
+
+    /**
+     * Draws every game element, interpolated between the last two updates.
+     *
+     * @param d     the surface to draw on
+     * @param alpha how far to interpolate, from 0 (previous update) to 1 (last update)
+     */
+    public void drawFrame(DrawSurface d, double alpha) {
+        long start = System.nanoTime();
+        this.sprites.drawAllOn(d, alpha);
+        metrics.record(GameMetrics.Phase.DRAW, System.nanoTime() - start);
+    }
+
+    /**
+     * @return true once the game has been won or lost
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * @return true if the game has ended with all blocks removed
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * @return the current score
+     */
+    public int getScore() {
+        return score.getValue();
+    }
+
+    /**
+     * @return the number of blocks left to remove
+     */
+    public int getRemainingBlocks() {
+        return remainingBlocks.getValue();
+    }
+
+    /**
+     * @return the number of balls still in play
+     */
+    public int getRemainingBalls() {
+        return remainingBalls.getValue();
     }
 
     /**
@@ -169,7 +762,7 @@ public class Game {
      * velocities.
      */
     private void addBalls() {
-        Random rand = new Random();
+        Random rand = new Random(seed);
         for (int i = 0; i < BALL_COUNT; i++) {
             int x = rand.nextInt(SCREEN_WIDTH - 2 * BALL_RADIUS - 40) + 20 + BALL_RADIUS;
             int y = rand.nextInt(400, 500);
@@ -178,75 +771,346 @@ public class Game {
             double speed = 5;
             double angle = rand.nextInt(360);
             ball.setVelocity(Velocity.fromAngleAndSpeed(angle, speed));
-            ball.setEnvironment(environment);
-            ball.addToGame(this);
-            remainingBalls.increase(1);
+            addBall(ball);
         }
     }
 
     /**
-     * Creates the four border walls and adds them to the game.
+     * Creates and adds the balls the level starts with.
+     */
+    private void addLevelBalls() {
+        Level.Spawns spawns = level.getBalls();
+        for (int i = 0; i < spawns.size(); i++) {
+            Ball ball = new Ball(new Point(spawns.getX(i), spawns.getY(i)), BALL_RADIUS,
+                    level.getPalette().get(spawns.getColor(i)));
+            ball.setVelocity(Velocity.fromAngleAndSpeed(spawns.getAngle(i), spawns.getSpeed(i)));
+            addBall(ball);
+        }
+    }
+
+    /**
+     * Puts a ball into play: it joins the game's {@link BallSystem} and counts
+     * towards the balls the player has left. The ball's velocity is taken per update
+     * at {@link #DEFAULT_TICK_RATE} and scaled to the tick rate. Must be called after
+     * {@link #initialize()}.
+     *
+     * @param ball the ball to add
+     */
+    public void addBall(Ball ball) {
+        Velocity v = ball.getVelocity();
+        ball.setVelocity(new Velocity(v.getDx() * stepScale(), v.getDy() * stepScale()));
+        ball.setEnvironment(environment);
+        if (world != null) {
+            world.addBall(ball);
+        } else {
+            balls.add(ball);
+        }
+        ball.addToGame(this);
+        remainingBalls.increase(1);
+        ballsPlaced++;
+    }
+
+    /**
+     * Returns the factor that turns a distance per update at {@link #DEFAULT_TICK_RATE}
+     * into a distance per update at the game's tick rate.
+     *
+     * @return the scale of one update
+     */
+    private double stepScale() {
+        return (double) DEFAULT_TICK_RATE / tickRate;
+    }
+
+    /**
+     * Creates the level's indestructible walls and adds them to the game.
      */
     private void createWalls() {
-        int[][] walls = {
-                { 0, 0, 820, 20 }, // Top wall
-                { 0, 0, 20, 620 }, // Left wall
-                { 780, 0, 20, 620 } // Right wall
-        };
-
-        for (int[] wall : walls) {
-            Block wallBlock = new Block(
-                    new Rectangle(new Point(wall[0], wall[1]), wall[2], wall[3], Color.DARK_GRAY),
-                    false,
-                    false);
-            wallBlock.addToGame(this);
-        }
-    }
-
-    /**
-     * Creates the level's grid of removable colored blocks.
-     */
-    private void createBlockGrid() {
-        int maxBlocksPerRow = 12;
-        int startY = 150;
-        int numRows = 6;
-        Color[] rowColors = {
-                Color.RED, Color.ORANGE, Color.YELLOW,
-                Color.GREEN, Color.CYAN, Color.BLUE
-        };
-
-        BlockRemover blockRemover = new BlockRemover(this, remainingBlocks);
-        ScoreTrackingListener scoreListener = new ScoreTrackingListener(score);
-
-        for (int row = 0; row < numRows; row++) {
-            int blocksInRow = maxBlocksPerRow - row;
-            int rowWidth = blocksInRow * BLOCK_WIDTH;
-            int startX = SCREEN_WIDTH - 20 - rowWidth;
-
-            for (int col = 0; col < blocksInRow; col++) {
-                int x = startX + col * BLOCK_WIDTH;
-                int y = startY + row * BLOCK_HEIGHT;
-                Rectangle rect = new Rectangle(new Point(x, y), BLOCK_WIDTH, BLOCK_HEIGHT, rowColors[row]);
-                Block block = new Block(rect, true, false);
-                block.addToGame(this);
-                block.addHitListener(blockRemover);
-                block.addHitListener(scoreListener);
-                remainingBlocks.increase(1);
+        Level.Rects rects = level.getWalls();
+        walls = new Block[rects.size()];
+        for (int i = 0; i < rects.size(); i++) {
+            walls[i] = addWall(rects, i);
+        }
+    }
+
+    /**
+     * Creates the level's removable blocks: the bricks of its grid, in a
+     * {@link TileMapCollidable}, and the other blocks, in a {@link BlockTable}.
+     * Both are filled in bulk from the level's columns.
+     */
+    private void createBlocks() {
+        int count = 0;
+        if (level.getGrid() != null) {
+            count += addGrid(level.getGrid());
+        }
+        Level.Rects rects = level.getBlocks();
+        blockSlots = new int[rects.size()];
+        if (rects.size() > 0) {
+            int first = blockTable().addAll(rects, level.getPalette(), true, false);
+            for (int i = 0; i < rects.size(); i++) {
+                blockSlots[i] = first + i;
             }
+            count += rects.size();
         }
+        remainingBlocks.increase(count);
+        blocksPlaced += count;
     }
 
     /**
-     * Creates a special block at the bottom of the screen that removes balls upon
-     * collision.
+     * Creates the level's death regions, blocks that remove the balls that
+     * hit them.
      */
-    private void createDeathRegion() {
-        Block deathRegion = new Block(
-                new Rectangle((new Point(0, 580)), 820, 20, java.awt.Color.BLACK), false, true);
+    private void createDeathRegions() {
+        ballRemover = new BallRemover(this, remainingBalls);
+        Level.Rects rects = level.getDeathRegions();
+        deathRegions = new Block[rects.size()];
+        for (int i = 0; i < rects.size(); i++) {
+            deathRegions[i] = addDeathRegion(rects, i);
+        }
+    }
 
-        BallRemover ballRemover = new BallRemover(this, remainingBalls);
+    /**
+     * Adds one of the level's walls to the game.
+     *
+     * @param rects the walls
+     * @param i     the wall's index
+     * @return the wall
+     */
+    private Block addWall(Level.Rects rects, int i) {
+        Block wall = new Block(rectangleOf(rects, i), false, false);
+        this.addCollidable(wall);
+        this.addStaticSprite(wall);
+        return wall;
+    }
+
+    /**
+     * Adds one of the level's death regions to the game.
+     *
+     * @param rects the death regions
+     * @param i     the death region's index
+     * @return the death region
+     */
+    private Block addDeathRegion(Level.Rects rects, int i) {
+        Block deathRegion = new Block(rectangleOf(rects, i), false, true);
         deathRegion.addHitListener(ballRemover);
-        deathRegion.addToGame(this);
+        deathRegion.addHitListener(hitCounter);
+        addSubscribers(deathRegion);
+        this.addCollidable(deathRegion);
+        this.addStaticSprite(deathRegion);
+        return deathRegion;
+    }
+
+    /**
+     * Adds a grid of bricks to the game, in a {@link TileMapCollidable} filled in bulk.
+     *
+     * @param grid the grid
+     * @return the number of bricks
+     */
+    private int addGrid(Level.Grid grid) {
+        bricks = new TileMapCollidable(grid.getOriginX(), grid.getOriginY(),
+                grid.getTileWidth(), grid.getTileHeight(), grid.getColumns(), grid.getRows());
+        bricks.setTiles(grid.tiles(), level.getPalette(), true);
+        addBlockListeners(bricks);
+        this.addCollidableGroup(bricks);
+        this.addStaticSprite(bricks);
+        return bricks.getOccupiedCount();
+    }
+
+    /**
+     * Returns the table of the level's free blocks, creating it on first use.
+     *
+     * @return the block table
+     */
+    private BlockTable blockTable() {
+        if (blockTable == null) {
+            blockTable = new BlockTable();
+            addBlockListeners(blockTable);
+            this.addCollidableGroup(blockTable);
+            this.addStaticSprite(blockTable);
+        }
+        return blockTable;
+    }
+
+    /**
+     * Subscribes the listeners of every removable block to a group of blocks.
+     *
+     * @param blocks the blocks
+     */
+    private void addBlockListeners(HitNotifier blocks) {
+        blocks.addHitListener(new BlockRemover(this, remainingBlocks));
+        blocks.addHitListener(new ScoreTrackingListener(score));
+        blocks.addHitListener(hitCounter);
+        addSubscribers(blocks);
+    }
+
+    /**
+     * Subscribes the listeners added with {@link #addHitListener(HitListener, HitEventBus.Delivery)}
+     * to a new block or group of blocks, and remembers it for the listeners added later.
+     *
+     * @param notifier the block or group of blocks
+     */
+    private void addSubscribers(HitNotifier notifier) {
+        for (HitListener subscriber : subscribers) {
+            notifier.addHitListener(subscriber);
+        }
+        hitNotifiers.add(notifier);
+    }
+
+    /**
+     * Returns one of the level's rectangles, in its color.
+     *
+     * @param rects the rectangles
+     * @param i     the rectangle's index
+     * @return the rectangle
+     */
+    private Rectangle rectangleOf(Level.Rects rects, int i) {
+        return new Rectangle(new Point(rects.getLeft(i), rects.getTop(i)), rects.getWidth(i), rects.getHeight(i),
+                level.getPalette().get(rects.getColor(i)));
+    }
+
+    /**
+     * Applies the queued level reloads, in order, to the live level.
+     */
+    private void applyReloads() {
+        LevelDiff diff;
+        while ((diff = reloads.poll()) != null) {
+            long start = System.nanoTime();
+            if (diff.getFrom() != level) {
+                System.err.println("Skipped a level reload that does not follow the level being played");
+                continue;
+            }
+            level = diff.getTo();
+            walls = applyChanges(diff.getWalls(), walls, level.getWalls(), false);
+            deathRegions = applyChanges(diff.getDeathRegions(), deathRegions, level.getDeathRegions(), true);
+            applyBlockChanges(diff.getBlocks());
+            if (diff.isGridReplaced()) {
+                replaceGrid();
+            } else {
+                applyTileChanges(diff.getChangedTiles());
+            }
+            levelReloads++;
+            reloadNanos += diff.getLoadNanos() + System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Removes the walls or death regions that a reload removed, adds those it
+     * added, and keeps the others.
+     *
+     * @param changes     the changes
+     * @param live        the blocks of the old version, by index
+     * @param rects       the rectangles of the new version
+     * @param deathRegion true for death regions, false for walls
+     * @return the blocks of the new version, by index
+     */
+    private Block[] applyChanges(LevelDiff.Changes changes, Block[] live, Level.Rects rects, boolean deathRegion) {
+        Block[] updated = new Block[rects.size()];
+        int[] keptFrom = changes.getKeptFrom();
+        int[] keptTo = changes.getKeptTo();
+        for (int k = 0; k < keptFrom.length; k++) {
+            updated[keptTo[k]] = live[keptFrom[k]];
+        }
+        for (int i : changes.getRemoved()) {
+            removeCollidable(live[i]);
+            removeSprite(live[i]);
+            hitNotifiers.remove(live[i]);
+        }
+        for (int j : changes.getAdded()) {
+            updated[j] = deathRegion ? addDeathRegion(rects, j) : addWall(rects, j);
+        }
+        return updated;
+    }
+
+    /**
+     * Removes the free blocks that a reload removed, if they are still in play,
+     * and adds those it added in the slots of the removed ones.
+     *
+     * @param changes the changes
+     */
+    private void applyBlockChanges(LevelDiff.Changes changes) {
+        Level.Rects rects = level.getBlocks();
+        int[] updated = new int[rects.size()];
+        int[] keptFrom = changes.getKeptFrom();
+        int[] keptTo = changes.getKeptTo();
+        for (int k = 0; k < keptFrom.length; k++) {
+            updated[keptTo[k]] = blockSlots[keptFrom[k]];
+        }
+        for (int i : changes.getRemoved()) {
+            int slot = blockSlots[i];
+            if (blockTable.isAlive(slot)) {
+                remainingBlocks.decrease(1);
+                redraw(blockTable, slot);
+            }
+            blockTable.release(slot);
+        }
+        for (int j : changes.getAdded()) {
+            Rectangle r = rectangleOf(rects, j);
+            updated[j] = blockTable().add(r.getUpperLeft().getX(), r.getUpperLeft().getY(), r.getWidth(),
+                    r.getHeight(), r.getColor(), true, false);
+            remainingBlocks.increase(1);
+            blocksPlaced++;
+            redraw(r);
+        }
+        blockSlots = updated;
+    }
+
+    /**
+     * Places, removes or recolors the bricks of the tiles that a reload changed.
+     * A recolored brick is put back in play even if it had been removed.
+     *
+     * @param slots the changed tiles
+     */
+    private void applyTileChanges(int[] slots) {
+        if (slots.length == 0) {
+            return;
+        }
+        Level.Grid grid = level.getGrid();
+        IntBuffer tiles = grid.tiles();
+        for (int slot : slots) {
+            int color = tiles.get(tiles.position() + slot);
+            boolean occupied = bricks.isOccupied(slot);
+            if (color == Level.Grid.EMPTY) {
+                if (occupied) {
+                    bricks.remove(slot);
+                    remainingBlocks.decrease(1);
+                }
+            } else {
+                if (!occupied) {
+                    remainingBlocks.increase(1);
+                    blocksPlaced++;
+                }
+                bricks.setTile(slot % grid.getColumns(), slot / grid.getColumns(),
+                        level.getPalette().get(color), true);
+            }
+            redraw(bricks, slot);
+        }
+    }
+
+    /**
+     * Redraws the area of a block of a store in the static layer.
+     *
+     * @param store the store
+     * @param slot  the slot of the block
+     */
+    private void redraw(BlockStore store, int slot) {
+        redraw(new Rectangle(new Point(store.getX(slot), store.getY(slot)), store.getWidth(slot),
+                store.getHeight(slot), Color.BLACK));
+    }
+
+    /**
+     * Replaces the grid of bricks as a whole, after a reload changed its shape.
+     */
+    private void replaceGrid() {
+        if (bricks != null) {
+            remainingBlocks.decrease(bricks.getOccupiedCount());
+            environment.removeCollidableGroup(bricks);
+            removeSprite(bricks);
+            hitNotifiers.remove(bricks);
+            bricks = null;
+        }
+        if (level.getGrid() != null) {
+            int count = addGrid(level.getGrid());
+            remainingBlocks.increase(count);
+            blocksPlaced += count;
+        }
     }
 
     /**
@@ -265,23 +1129,22 @@ public class Game {
      */
     public void removeSprite(Sprite s) {
         sprites.removeSprite(s);
+        staticLayer.removeSprite(s);
     }
 
     /**
-     * Displays a full-screen end screen with win/lose message and score.
-     *
-     * @param win   true if the player won, false if lost
-     * @param score the final score to display
+     * Displays a full-screen end screen with the win/lose message and the score
+     * for a few seconds, then closes the window.
      */
-    private void showEndScreen(boolean win, int score) {
+    public void showEndScreen() {
         DrawSurface d = gui.getDrawSurface();
 
-        d.setColor(win ? new Color(0, 150, 50) : new Color(200, 0, 0));
+        d.setColor(won ? new Color(0, 150, 50) : new Color(200, 0, 0));
         d.fillRectangle(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
 
         d.setColor(Color.WHITE);
-        d.drawText(250, 250, win ? "YOU WIN!" : "GAME OVER", 64);
-        d.drawText(290, 320, "Final Score: " + score, 32);
+        d.drawText(250, 250, won ? "YOU WIN!" : "GAME OVER", 64);
+        d.drawText(290, 320, "Final Score: " + score.getValue(), 32);
 
         gui.show(d);
 
@@ -2,7 +2,7 @@ package game;
 
 import geometry.Line;
 import geometry.Point;
-import geometry.Rectangle;
+import geometry.SegmentHit;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,16 +11,71 @@ import java.util.List;
  * The {@code GameEnvironment} class manages all the {@link Collidable} objects in the game.
  * It is responsible for detecting collisions between a moving object and the collidables
  * it maintains, and returning information about the closest collision (if any).
+ * The collidables are stored in a {@link CollidableIndex}, which can be selected
+ * when the environment is constructed. Large sets of static collidables can
+ * instead be registered as a {@link CollidableGroup}, which is queried next to the index.
  */
 public class GameEnvironment {
-    private final List<Collidable> collidables;
+    /**
+     * Default cap on the number of bounces a ball may resolve in one step.
+     */
+    public static final int DEFAULT_MAX_BOUNCES = 4;
+
+    private final CollidableIndex collidables;
+    private final List<CollidableGroup> groups;
+    private int maxBounces;
+    private CcdStatistics ccdStatistics;
 
     /**
-     * Constructs an empty {@code GameEnvironment}.
-     * Initializes the internal list of collidable objects.
+     * Constructs an empty {@code GameEnvironment} backed by the reference
+     * {@link LinearCollidableIndex}.
      */
     public GameEnvironment() {
-        this.collidables = new ArrayList<>();
+        this(new LinearCollidableIndex());
+    }
+
+    /**
+     * Constructs an empty {@code GameEnvironment} backed by the given index.
+     *
+     * @param index the index used to store and query the collidables
+     */
+    public GameEnvironment(CollidableIndex index) {
+        this.collidables = index;
+        this.groups = new ArrayList<>();
+        this.maxBounces = DEFAULT_MAX_BOUNCES;
+        this.ccdStatistics = new CcdStatistics(DEFAULT_MAX_BOUNCES);
+    }
+
+    /**
+     * Returns the cap on the number of bounces a ball may resolve in one step.
+     *
+     * @return the bounce cap
+     */
+    public int getMaxBounces() {
+        return maxBounces;
+    }
+
+    /**
+     * Sets the cap on the number of bounces a ball may resolve in one step.
+     * Resets the collision statistics.
+     *
+     * @param maxBounces the bounce cap (at least 1)
+     */
+    public void setMaxBounces(int maxBounces) {
+        if (maxBounces < 1) {
+            throw new IllegalArgumentException("maxBounces must be at least 1");
+        }
+        this.maxBounces = maxBounces;
+        this.ccdStatistics = new CcdStatistics(maxBounces);
+    }
+
+    /**
+     * Returns the counters of how many bounces the ball steps used.
+     *
+     * @return the continuous collision detection statistics
+     */
+    public CcdStatistics getCcdStatistics() {
+        return ccdStatistics;
     }
 
     /**
@@ -41,6 +96,45 @@ public class GameEnvironment {
         collidables.remove(c);
     }
 
+    /**
+     * Notifies the environment that the collision rectangle of a collidable has changed.
+     *
+     * @param c the collidable that moved or resized
+     */
+    public void updateCollidable(Collidable c) {
+        collidables.update(c);
+    }
+
+    /**
+     * Adds a {@link CollidableGroup} to the environment.
+     *
+     * @param group the group to add
+     */
+    public void addCollidableGroup(CollidableGroup group) {
+        if (!groups.contains(group)) {
+            groups.add(group);
+        }
+    }
+
+    /**
+     * Builds the lazily built indexes of every {@link CollidableGroup} (see
+     * {@link CollidableGroup#prepare()}).
+     */
+    public void prepare() {
+        for (CollidableGroup group : groups) {
+            group.prepare();
+        }
+    }
+
+    /**
+     * Removes a {@link CollidableGroup} from the environment.
+     *
+     * @param group the group to remove
+     */
+    public void removeCollidableGroup(CollidableGroup group) {
+        groups.remove(group);
+    }
+
     /**
      * Given a trajectory (movement line), returns the {@link CollisionInfo}
      * about the closest collision that is going to occur with any of the collidables.
@@ -50,41 +144,114 @@ public class GameEnvironment {
      * @return collision information, or {@code null} if there is no collision
      */
     public CollisionInfo getClosestCollision(Line trajectory) {
-        if (collidables.isEmpty()) {
-            return null;
+        if (groups.isEmpty()) {
+            return collidables.closestCollision(trajectory);
+        }
+        SegmentHit hit = new SegmentHit();
+        Collidable c = castSegment(trajectory.start().getX(), trajectory.start().getY(),
+                trajectory.end().getX(), trajectory.end().getY(), hit);
+        return c == null ? null : CollisionInfo.of(hit, c);
+    }
+
+    /**
+     * Finds the collidable that a segment hits first, without allocating.
+     *
+     * @param x0  x of the segment start
+     * @param y0  y of the segment start
+     * @param x1  x of the segment end
+     * @param y1  y of the segment end
+     * @param out receives the hit point, normal, face and time of impact
+     * @return the collidable hit first, or {@code null} if there is no collision
+     */
+    public Collidable castSegment(double x0, double y0, double x1, double y1, SegmentHit out) {
+        Collidable closest = collidables.castSegment(x0, y0, x1, y1, out);
+        double limit = closest == null ? Double.POSITIVE_INFINITY : out.getToi();
+        for (int i = 0; i < groups.size(); i++) {
+            Collidable c = groups.get(i).castSegment(x0, y0, x1, y1, limit, out);
+            if (c != null) {
+                closest = c;
+                limit = out.getToi();
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Checks whether a segment hits anything, without modifying the environment or
+     * any of its indexes. Any number of threads may run this query at the same
+     * time, as long as nothing is added, removed or moved meanwhile.
+     *
+     * @param x0 x of the segment start
+     * @param y0 y of the segment start
+     * @param x1 x of the segment end
+     * @param y1 y of the segment end
+     * @return true if {@link #castSegment} would report a collision
+     */
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        if (collidables.intersectsAny(x0, y0, x1, y1)) {
+            return true;
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).intersectsAny(x0, y0, x1, y1)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        Point closestPoint = null;
-        Collidable closestCollidable = null;
-        double closestDistance = Double.MAX_VALUE;
-
-        for (Collidable c : new ArrayList<>(collidables)) {
-            Rectangle rect = c.getCollisionRectangle();
-            Point intersection = trajectory.closestIntersectionToStartOfLine(rect);
-
-            if (intersection != null) {
-                double distance = trajectory.start().distance(intersection);
-                if (distance < closestDistance) {
-                    closestDistance = distance;
-                    closestPoint = intersection;
-                    closestCollidable = c;
-                }
+    /**
+     * Checks whether any collidable contains the given point. Like
+     * {@link #intersectsAny}, this query is safe for concurrent readers.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return true if {@link #getCollidableAt(double, double)} would find a collidable
+     */
+    public boolean containsAny(double x, double y) {
+        if (collidables.containsAny(x, y)) {
+            return true;
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).containsAny(x, y)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        if (closestPoint == null) {
-            return null;
+    /**
+     * Returns the collidable whose collision rectangle contains the given coordinates.
+     *
+     * @param x x of the point to test
+     * @param y y of the point to test
+     * @return the containing collidable, or {@code null} if there is none
+     */
+    public Collidable getCollidableAt(double x, double y) {
+        Collidable c = collidables.collidableAt(x, y);
+        for (int i = 0; c == null && i < groups.size(); i++) {
+            c = groups.get(i).collidableAt(x, y);
         }
+        return c;
+    }
 
-        return new CollisionInfo(closestPoint, closestCollidable);
+    /**
+     * Returns the collidable whose collision rectangle contains the given point.
+     * When several do, the one that was added to the environment first is returned.
+     *
+     * @param p the point to test
+     * @return the containing collidable, or {@code null} if there is none
+     */
+    public Collidable getCollidableAt(Point p) {
+        return getCollidableAt(p.getX(), p.getY());
     }
 
     /**
-     * Returns all the collidable objects currently in the environment.
+     * Returns all the collidable objects that were added to the environment
+     * individually (members of a {@link CollidableGroup} are not listed).
      *
      * @return an array of {@link Collidable} objects
      */
     public Collidable[] getCollidables() {
-        return collidables.toArray(new Collidable[0]);
+        return collidables.toArray();
     }
 }
@@ -0,0 +1,194 @@
+package game;
+
+import listeners.HitListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code GameMetrics} class collects the timing of each phase of a frame
+ * and a few event counters while the game runs, and can write them to a text
+ * file at a fixed interval, so that they can be scraped during soak tests.
+ * Like the histograms, the metrics are recorded and dumped on the game thread.
+ */
+public class GameMetrics {
+
+    /**
+     * The phases of a frame that are timed.
+     */
+    public enum Phase {
+        /**
+         * Updating the sprites ({@code notifyAllTimePassed}).
+         */
+        UPDATE,
+        /**
+         * Drawing the sprites ({@code drawAllOn}).
+         */
+        DRAW,
+        /**
+         * Presenting the frame ({@code gui.show}).
+         */
+        SHOW
+    }
+
+    private final LatencyHistogram[] phases;
+    private final List<String> counterNames;
+    private final List<LongSupplier> counterTotals;
+    private long[] lastTotals;
+    private long start;
+    private long intervalStart;
+    private Path dumpFile;
+    private long dumpInterval;
+
+    /**
+     * Constructs metrics with no counters and no dump file.
+     */
+    public GameMetrics() {
+        this.phases = new LatencyHistogram[Phase.values().length];
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+        this.counterNames = new ArrayList<>();
+        this.counterTotals = new ArrayList<>();
+        this.lastTotals = new long[0];
+        this.start = System.nanoTime();
+        this.intervalStart = start;
+    }
+
+    /**
+     * Records how long a phase of a frame took.
+     *
+     * @param phase the phase
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of a phase for the current interval.
+     *
+     * @param phase the phase
+     * @return the phase's histogram
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Adds a counter whose running total is read from the given supplier.
+     *
+     * @param name  the name of the counter in the report
+     * @param total supplies the total count so far
+     */
+    public void addCounter(String name, LongSupplier total) {
+        counterNames.add(name);
+        counterTotals.add(total);
+        lastTotals = Arrays.copyOf(lastTotals, counterNames.size());
+        lastTotals[lastTotals.length - 1] = total.getAsLong();
+    }
+
+    /**
+     * Adds a counter of hit events and returns a listener that increments it.
+     * The listener can be added to any number of blocks or block stores.
+     *
+     * @param name the name of the counter in the report
+     * @return the listener that counts the hits
+     */
+    public HitListener countingListener(String name) {
+        long[] total = new long[1];
+        addCounter(name, () -> total[0]);
+        return (beingHit, hitter) -> total[0]++;
+    }
+
+    /**
+     * Writes the metrics to a file every {@code intervalMillis}, replacing the
+     * previous report. The file is written through a temporary file and moved
+     * into place, so readers never see a partial report.
+     *
+     * @param file           the file to write, or {@code null} to stop writing
+     * @param intervalMillis the time between two reports in milliseconds
+     */
+    public void setDumpFile(Path file, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.dumpFile = file;
+        this.dumpInterval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * Writes the report if a dump file is set and the interval has passed, then
+     * starts a new interval. A report that cannot be written is reported on the
+     * standard error stream. Meant to be called once per frame.
+     *
+     * @param now the current time from {@link System#nanoTime()}
+     */
+    public void maybeDump(long now) {
+        if (dumpFile == null || now - intervalStart < dumpInterval) {
+            return;
+        }
+        String report = report(now);
+        try {
+            Path temp = dumpFile.resolveSibling(dumpFile.getFileName() + ".tmp");
+            Files.write(temp, report.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, dumpFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // A failed dump must not stop the game; the next interval tries again
+            System.err.println("Could not write metrics to " + dumpFile + ": " + e.getMessage());
+        }
+        startInterval(now);
+    }
+
+    /**
+     * Formats the metrics of the current interval as text, one metric per line.
+     *
+     * @param now the current time from {@link System#nanoTime()}
+     * @return the report
+     */
+    public String report(long now) {
+        double interval = Math.max(1, now - intervalStart) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "uptime_seconds %.3f%n", (now - start) / 1e9));
+        sb.append(String.format(Locale.ROOT, "interval_seconds %.3f%n", interval));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = phases[phase.ordinal()];
+            String name = "phase_" + phase.name().toLowerCase(Locale.ROOT);
+            sb.append(String.format(Locale.ROOT, "%s_count %d%n", name, h.getCount()));
+            sb.append(String.format(Locale.ROOT, "%s_p50_us %.1f%n", name, h.getPercentile(50) / 1e3));
+            sb.append(String.format(Locale.ROOT, "%s_p99_us %.1f%n", name, h.getPercentile(99) / 1e3));
+            sb.append(String.format(Locale.ROOT, "%s_max_us %.1f%n", name, h.getMax() / 1e3));
+        }
+        for (int i = 0; i < counterNames.size(); i++) {
+            long total = counterTotals.get(i).getAsLong();
+            sb.append(String.format(Locale.ROOT, "%s_total %d%n", counterNames.get(i), total));
+            sb.append(String.format(Locale.ROOT, "%s_per_second %.1f%n", counterNames.get(i),
+                    (total - lastTotals[i]) / interval));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Clears the histograms and starts measuring counter rates from now on.
+     *
+     * @param now the current time from {@link System#nanoTime()}
+     */
+    public void startInterval(long now) {
+        for (LatencyHistogram h : phases) {
+            h.reset();
+        }
+        for (int i = 0; i < counterNames.size(); i++) {
+            lastTotals[i] = counterTotals.get(i).getAsLong();
+        }
+        intervalStart = now;
+    }
+}
@@ -0,0 +1,155 @@
+package game;
+
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.Polygon;
+
+/**
+ * The {@code HeadlessDrawSurface} class is a {@link DrawSurface} that draws
+ * nothing. It only counts the calls made to it, so a game can be rendered
+ * without a window (for example on a build server) and the amount of drawing
+ * work per frame can still be measured.
+ */
+public class HeadlessDrawSurface implements DrawSurface {
+    private final int width;
+    private final int height;
+    private long shapes;
+    private long colorChanges;
+    private long texts;
+    private long images;
+
+    /**
+     * Constructs a surface the size of the game screen.
+     */
+    public HeadlessDrawSurface() {
+        this(Game.SCREEN_WIDTH, Game.SCREEN_HEIGHT);
+    }
+
+    /**
+     * Constructs a surface of the given size.
+     *
+     * @param width  the width reported by {@link #getWidth()}
+     * @param height the height reported by {@link #getHeight()}
+     */
+    public HeadlessDrawSurface(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the number of lines, ovals, circles, rectangles and polygons drawn
+     */
+    public long getShapeCount() {
+        return shapes;
+    }
+
+    /**
+     * @return the number of calls to {@link #setColor(Color)}
+     */
+    public long getColorChangeCount() {
+        return colorChanges;
+    }
+
+    /**
+     * @return the number of texts drawn
+     */
+    public long getTextCount() {
+        return texts;
+    }
+
+    /**
+     * @return the number of images drawn
+     */
+    public long getImageCount() {
+        return images;
+    }
+
+    /**
+     * @return the total number of drawing calls, including color changes
+     */
+    public long getCallCount() {
+        return shapes + colorChanges + texts + images;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        shapes = 0;
+        colorChanges = 0;
+        texts = 0;
+        images = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        colorChanges++;
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        shapes++;
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        shapes++;
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        shapes++;
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        shapes++;
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        shapes++;
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image image) {
+        images++;
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        shapes++;
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        shapes++;
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        texts++;
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        shapes++;
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        shapes++;
+    }
+}
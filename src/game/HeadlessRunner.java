@@ -0,0 +1,104 @@
+package game;
+
+import biuoop.DrawSurface;
+
+/**
+ * The {@code HeadlessRunner} class drives a headless {@link Game} tick by tick,
+ * as fast as the CPU allows, and measures how many ticks per second the
+ * simulation reaches. Frames can optionally be drawn on a surface that needs
+ * no window, such as a {@link HeadlessDrawSurface}, to include rendering work
+ * in the measurement.
+ */
+public class HeadlessRunner {
+    private final Game game;
+    private final ScriptedKeyboard keyboard;
+    private DrawSurface surface;
+    private int renderEvery;
+    private long ticks;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a runner for a game created with {@link Game#Game(biuoop.KeyboardSensor)}.
+     *
+     * @param game     the game to drive; it must already be initialized
+     * @param keyboard the scripted keyboard the game reads, moved forward every tick
+     *                 (may be {@code null} if the game uses another keyboard)
+     */
+    public HeadlessRunner(Game game, ScriptedKeyboard keyboard) {
+        this.game = game;
+        this.keyboard = keyboard;
+    }
+
+    /**
+     * Draws a frame on the given surface after every {@code every} ticks.
+     *
+     * @param d     the surface to draw on, or {@code null} to never draw
+     * @param every the number of ticks between two frames (at least 1)
+     */
+    public void setRendering(DrawSurface d, int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("every must be at least 1");
+        }
+        this.surface = d;
+        this.renderEvery = every;
+    }
+
+    /**
+     * Runs the game until it ends or until {@code maxTicks} ticks have run.
+     *
+     * @param maxTicks the most ticks to run in this call
+     * @return the number of ticks that ran
+     */
+    public long run(long maxTicks) {
+        long ran = 0;
+        long start = System.nanoTime();
+        while (ran < maxTicks && !game.isOver()) {
+            game.tick();
+            ran++;
+            ticks++;
+            if (keyboard != null) {
+                keyboard.advance();
+            }
+            if (surface != null && ticks % renderEvery == 0) {
+                game.drawFrame(surface, 1.0);
+            }
+            game.getMetrics().maybeDump(System.nanoTime());
+        }
+        elapsedNanos += System.nanoTime() - start;
+        return ran;
+    }
+
+    /**
+     * @return the total number of ticks run so far
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the total time spent running ticks, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the average number of ticks per second so far
+     */
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the run: ticks, time, ticks per second and
+     * the state of the game.
+     *
+     * @return the report
+     */
+    public String report() {
+        return String.format("ticks=%d time=%.3fs ticks/s=%.0f score=%d blocks=%d balls=%d%s",
+                ticks, elapsedNanos / 1e9, getTicksPerSecond(), game.getScore(),
+                game.getRemainingBlocks(), game.getRemainingBalls(),
+                game.isOver() ? (game.isWon() ? " (won)" : " (lost)") : "");
+    }
+}
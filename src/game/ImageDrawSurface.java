@@ -0,0 +1,129 @@
+package game;
+
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+
+/**
+ * The {@code ImageDrawSurface} class is a {@link DrawSurface} that draws straight
+ * into an off-screen image, such as the one kept by a {@link StaticLayer}.
+ * Rectangles that lie entirely outside its clip rectangle are skipped.
+ */
+public class ImageDrawSurface implements DrawSurface {
+    private final Graphics2D g;
+    private final int width;
+    private final int height;
+    private final int clipLeft;
+    private final int clipTop;
+    private final int clipRight;
+    private final int clipBottom;
+
+    /**
+     * Constructs a surface that draws with the given graphics context, limited to a clip rectangle.
+     *
+     * @param g      the graphics context of the image
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @param clip   the area to draw in
+     */
+    public ImageDrawSurface(Graphics2D g, int width, int height, Rectangle clip) {
+        this.g = g;
+        this.width = width;
+        this.height = height;
+        this.clipLeft = clip.x;
+        this.clipTop = clip.y;
+        this.clipRight = clip.x + clip.width;
+        this.clipBottom = clip.y + clip.height;
+        g.setClip(clip);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        g.setColor(color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        g.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        g.drawOval(x, y, width, height);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        g.fillOval(x, y, width, height);
+    }
+
+    @Override
+    public void drawRectangle(int x, int y, int width, int height) {
+        // An outline covers one pixel more than the rectangle in each direction
+        if (isClipped(x, y, width + 1, height + 1)) {
+            return;
+        }
+        g.drawRect(x, y, width, height);
+    }
+
+    @Override
+    public void fillRectangle(int x, int y, int width, int height) {
+        if (isClipped(x, y, width, height)) {
+            return;
+        }
+        g.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawImage(int x, int y, Image image) {
+        g.drawImage(image, x, y, null);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int r) {
+        g.drawOval(x - r, y - r, 2 * r, 2 * r);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int r) {
+        g.fillOval(x - r, y - r, 2 * r, 2 * r);
+    }
+
+    @Override
+    public void drawText(int x, int y, String text, int fontSize) {
+        Font font = g.getFont();
+        g.setFont(new Font(font.getFontName(), font.getStyle(), fontSize));
+        g.drawString(text, x, y);
+    }
+
+    @Override
+    public void drawPolygon(Polygon polygon) {
+        g.drawPolygon(polygon);
+    }
+
+    @Override
+    public void fillPolygon(Polygon polygon) {
+        g.fillPolygon(polygon);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private boolean isClipped(int x, int y, int w, int h) {
+        return x >= clipRight || y >= clipBottom || x + w <= clipLeft || y + h <= clipTop;
+    }
+}
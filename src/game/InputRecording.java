@@ -0,0 +1,273 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code InputRecording} class holds everything needed to reproduce a game:
+ * the seed of its random number generator, the level file it was played on, the
+ * state of the tracked keys on every tick (one bit per key), and the game's
+ * state hash after every tick. On disk the key states are run-length encoded.
+ */
+public class InputRecording {
+    /**
+     * The most keys a recording can track, one bit each in a mask byte.
+     */
+    public static final int MAX_KEYS = 8;
+
+    private static final int MAGIC = 0x41524B52;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_LEVEL = 1;
+
+    private final long seed;
+    private final List<String> keys;
+    private String level;
+    private long levelSize;
+    private long levelModified;
+    private byte[] masks;
+    private int[] hashes;
+    private int ticks;
+
+    /**
+     * Constructs an empty recording.
+     *
+     * @param seed the seed of the recorded game
+     * @param keys the tracked keys, at most {@link #MAX_KEYS}
+     */
+    public InputRecording(long seed, List<String> keys) {
+        if (keys.size() > MAX_KEYS) {
+            throw new IllegalArgumentException("at most " + MAX_KEYS + " keys can be recorded");
+        }
+        this.seed = seed;
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.masks = new byte[256];
+        this.hashes = new int[256];
+    }
+
+    /**
+     * Returns the seed of the recorded game.
+     *
+     * @return the seed of the recorded game
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Records the level file the game is played on, with its size and modification
+     * time, so that a replay plays the same level and can tell if it has changed.
+     *
+     * @param source the level file
+     * @throws IOException if the file's attributes cannot be read
+     */
+    public void setLevel(Path source) throws IOException {
+        this.levelSize = Files.size(source);
+        this.levelModified = Files.getLastModifiedTime(source).toMillis();
+        this.level = source.toString();
+    }
+
+    /**
+     * Returns the level file the game was played on.
+     *
+     * @return the level file, or {@code null} if none was recorded (the game's default level)
+     */
+    public String getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns whether the recorded level file still has the size and modification
+     * time it had when the game was recorded.
+     *
+     * @return true if the level file is unchanged, or if no level was recorded
+     * @throws IOException if the file's attributes cannot be read
+     */
+    public boolean isLevelUnchanged() throws IOException {
+        if (level == null) {
+            return true;
+        }
+        Path source = Paths.get(level);
+        return Files.size(source) == levelSize && Files.getLastModifiedTime(source).toMillis() == levelModified;
+    }
+
+    /**
+     * Returns the tracked keys; bit {@code i} of a mask is key {@code i}.
+     *
+     * @return the tracked keys; bit {@code i} of a mask is key {@code i}
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the number of recorded ticks.
+     *
+     * @return the number of recorded ticks
+     */
+    public int getTickCount() {
+        return ticks;
+    }
+
+    /**
+     * Appends one tick.
+     *
+     * @param mask the key mask of the tick
+     * @param hash the game's state hash after the tick
+     */
+    public void append(int mask, int hash) {
+        if (ticks == masks.length) {
+            masks = Arrays.copyOf(masks, ticks * 2);
+            hashes = Arrays.copyOf(hashes, ticks * 2);
+        }
+        masks[ticks] = (byte) mask;
+        hashes[ticks] = hash;
+        ticks++;
+    }
+
+    /**
+     * Returns the key mask of the tick.
+     *
+     * @param tick the tick
+     * @return the key mask of the tick
+     */
+    public int getMask(int tick) {
+        return masks[tick] & 0xFF;
+    }
+
+    /**
+     * Returns the game's state hash after the tick.
+     *
+     * @param tick the tick
+     * @return the game's state hash after the tick
+     */
+    public int getHash(int tick) {
+        return hashes[tick];
+    }
+
+    /**
+     * Writes the recording to a file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeBoolean(level != null);
+            if (level != null) {
+                out.writeUTF(level);
+                out.writeLong(levelSize);
+                out.writeLong(levelModified);
+            }
+            out.writeByte(keys.size());
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            out.writeInt(ticks);
+            int t = 0;
+            while (t < ticks) {
+                int run = 1;
+                while (t + run < ticks && masks[t + run] == masks[t]) {
+                    run++;
+                }
+                out.writeByte(masks[t]);
+                writeVarInt(out, run);
+                t += run;
+            }
+            for (int i = 0; i < ticks; i++) {
+                out.writeInt(hashes[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a recording from a file.
+     *
+     * @param file the file to read
+     * @return the recording
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public static InputRecording read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an input recording");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != VERSION_WITHOUT_LEVEL) {
+                throw new IOException("Unsupported recording version " + version + " in " + file);
+            }
+            long seed = in.readLong();
+            String level = null;
+            long levelSize = 0;
+            long levelModified = 0;
+            if (version != VERSION_WITHOUT_LEVEL && in.readBoolean()) {
+                level = in.readUTF();
+                levelSize = in.readLong();
+                levelModified = in.readLong();
+            }
+            int keyCount = in.readUnsignedByte();
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < keyCount; i++) {
+                keys.add(in.readUTF());
+            }
+            InputRecording recording = new InputRecording(seed, keys);
+            recording.level = level;
+            recording.levelSize = levelSize;
+            recording.levelModified = levelModified;
+            int ticks = in.readInt();
+            recording.masks = new byte[Math.max(1, ticks)];
+            recording.hashes = new int[Math.max(1, ticks)];
+            int t = 0;
+            while (t < ticks) {
+                byte mask = in.readByte();
+                int run = readVarInt(in);
+                if (run <= 0 || t + run > ticks) {
+                    throw new IOException("Corrupt key run in " + file);
+                }
+                Arrays.fill(recording.masks, t, t + run, mask);
+                t += run;
+            }
+            for (int i = 0; i < ticks; i++) {
+                recording.hashes[i] = in.readInt();
+            }
+            recording.ticks = ticks;
+            return recording;
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Seven bits per byte, low bits first; the high bit marks that more bytes follow
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt variable-length integer");
+    }
+}
@@ -0,0 +1,141 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The {@code LatencyHistogram} class counts durations in nanoseconds in
+ * log-linear buckets: every power of two is split into
+ * {@value #SUB_BUCKETS} equal sub-buckets, so a percentile is reported with a
+ * relative error below {@code 1/SUB_BUCKETS} while recording stays a couple of
+ * arithmetic operations and one array increment, without allocating.
+ * The exact maximum is kept next to the buckets.
+ * A histogram is not thread-safe; it is meant to be recorded and read on the
+ * game thread.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private long count;
+    private long max;
+    private long sum;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the longest recorded duration, in nanoseconds.
+     *
+     * @return the longest recorded duration, in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average recorded duration, in nanoseconds.
+     *
+     * @return the average recorded duration, in nanoseconds
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the duration below which the given share of the recorded durations
+     * fall, rounded up to the end of its bucket (but never above the maximum).
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(max, upperBoundOf(b));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds the durations recorded in another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] += other.counts[b];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets all recorded durations.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Values below SUB_BUCKETS get a bucket each; above that, the top SUB_BITS + 1 bits pick the bucket
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The largest value that falls into a bucket
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << exponent) - 1;
+    }
+}
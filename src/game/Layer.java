@@ -0,0 +1,25 @@
+package game;
+
+/**
+ * The {@code Layer} enum lists the drawing layers of a {@link SpriteCollection},
+ * from the bottom up. Sprites are updated and drawn one layer after another,
+ * in this order; the order of the sprites within a layer is not specified.
+ */
+public enum Layer {
+    /**
+     * The background image.
+     */
+    BACKGROUND,
+    /**
+     * The balls.
+     */
+    BALLS,
+    /**
+     * The walls, blocks and paddle; the default layer.
+     */
+    WORLD,
+    /**
+     * Overlays such as the score indicator.
+     */
+    HUD
+}
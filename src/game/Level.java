@@ -0,0 +1,474 @@
+package game;
+
+import java.awt.Color;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code Level} class describes the layout of a level: its walls, death
+ * regions and blocks, an optional grid of bricks, the balls it starts with, and
+ * the palette all of them take their colors from. The layout is stored column
+ * by column in read-only buffers, and colors are indexes into {@link #getPalette()}.
+ */
+public class Level {
+    private final String background;
+    private final List<Color> palette;
+    private final Rects walls;
+    private final Rects deathRegions;
+    private final Rects blocks;
+    private final Grid grid;
+    private final Spawns balls;
+
+    /**
+     * Constructs a level.
+     *
+     * @param background   the background image file, or {@code null} for the game's default
+     * @param palette      the colors of the level
+     * @param walls        the indestructible walls
+     * @param deathRegions the regions that remove the balls that hit them
+     * @param blocks       the removable blocks outside the grid
+     * @param grid         the grid of removable bricks, or {@code null} for none
+     * @param balls        the balls to start with; if there are none, the game places its own
+     */
+    public Level(String background, List<Color> palette, Rects walls, Rects deathRegions, Rects blocks, Grid grid,
+                 Spawns balls) {
+        this.background = background;
+        this.palette = Collections.unmodifiableList(palette);
+        this.walls = walls;
+        this.deathRegions = deathRegions;
+        this.blocks = blocks;
+        this.grid = grid;
+        this.balls = balls;
+    }
+
+    /**
+     * Returns the background image file, or {@code null} for the game's default.
+     *
+     * @return the background image file, or {@code null} for the game's default
+     */
+    public String getBackground() {
+        return background;
+    }
+
+    /**
+     * Returns the colors of the level, indexed by the color indexes of its parts.
+     *
+     * @return the colors of the level, indexed by the color indexes of its parts
+     */
+    public List<Color> getPalette() {
+        return palette;
+    }
+
+    /**
+     * Returns the indestructible walls.
+     *
+     * @return the indestructible walls
+     */
+    public Rects getWalls() {
+        return walls;
+    }
+
+    /**
+     * Returns the regions that remove the balls that hit them.
+     *
+     * @return the regions that remove the balls that hit them
+     */
+    public Rects getDeathRegions() {
+        return deathRegions;
+    }
+
+    /**
+     * Returns the removable blocks outside the grid.
+     *
+     * @return the removable blocks outside the grid
+     */
+    public Rects getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the grid of removable bricks, or {@code null} if the level has none.
+     *
+     * @return the grid of removable bricks, or {@code null} if the level has none
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the balls to start with.
+     *
+     * @return the balls to start with
+     */
+    public Spawns getBalls() {
+        return balls;
+    }
+
+    /**
+     * Returns the number of removable blocks, in the grid and outside it.
+     *
+     * @return the block count
+     */
+    public int getBlockCount() {
+        return blocks.size() + (grid == null ? 0 : grid.getBrickCount());
+    }
+
+    /**
+     * The {@code Rects} class holds a list of colored rectangles, stored as
+     * columns of left, top, right and bottom edges and color indexes.
+     */
+    public static final class Rects {
+        private final FloatBuffer left;
+        private final FloatBuffer top;
+        private final FloatBuffer right;
+        private final FloatBuffer bottom;
+        private final IntBuffer colors;
+
+        /**
+         * Constructs a list of rectangles over buffers of equal length.
+         *
+         * @param left   x of the left edges
+         * @param top    y of the top edges
+         * @param right  x of the right edges
+         * @param bottom y of the bottom edges
+         * @param colors the color indexes
+         */
+        public Rects(FloatBuffer left, FloatBuffer top, FloatBuffer right, FloatBuffer bottom, IntBuffer colors) {
+            int n = colors.remaining();
+            if (left.remaining() != n || top.remaining() != n || right.remaining() != n || bottom.remaining() != n) {
+                throw new IllegalArgumentException("rectangle columns differ in length");
+            }
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.colors = colors;
+        }
+
+        /**
+         * Returns the number of rectangles.
+         *
+         * @return the number of rectangles
+         */
+        public int size() {
+            return colors.remaining();
+        }
+
+        /**
+         * Returns x of a rectangle's left edge.
+         *
+         * @param i the rectangle's index
+         * @return x of its left edge
+         */
+        public float getLeft(int i) {
+            return left.get(left.position() + i);
+        }
+
+        /**
+         * Returns y of a rectangle's top edge.
+         *
+         * @param i the rectangle's index
+         * @return y of its top edge
+         */
+        public float getTop(int i) {
+            return top.get(top.position() + i);
+        }
+
+        /**
+         * Returns a rectangle's width.
+         *
+         * @param i the rectangle's index
+         * @return its width
+         */
+        public float getWidth(int i) {
+            return right.get(right.position() + i) - getLeft(i);
+        }
+
+        /**
+         * Returns a rectangle's height.
+         *
+         * @param i the rectangle's index
+         * @return its height
+         */
+        public float getHeight(int i) {
+            return bottom.get(bottom.position() + i) - getTop(i);
+        }
+
+        /**
+         * Returns a rectangle's color index.
+         *
+         * @param i the rectangle's index
+         * @return its color index
+         */
+        public int getColor(int i) {
+            return colors.get(colors.position() + i);
+        }
+
+        /**
+         * Returns a view of the left edges.
+         *
+         * @return a view of the left edges
+         */
+        public FloatBuffer lefts() {
+            return left.duplicate();
+        }
+
+        /**
+         * Returns a view of the top edges.
+         *
+         * @return a view of the top edges
+         */
+        public FloatBuffer tops() {
+            return top.duplicate();
+        }
+
+        /**
+         * Returns a view of the right edges.
+         *
+         * @return a view of the right edges
+         */
+        public FloatBuffer rights() {
+            return right.duplicate();
+        }
+
+        /**
+         * Returns a view of the bottom edges.
+         *
+         * @return a view of the bottom edges
+         */
+        public FloatBuffer bottoms() {
+            return bottom.duplicate();
+        }
+
+        /**
+         * Returns a view of the color indexes.
+         *
+         * @return a view of the color indexes
+         */
+        public IntBuffer colors() {
+            return colors.duplicate();
+        }
+    }
+
+    /**
+     * The {@code Grid} class holds a grid of equally sized bricks, stored row by
+     * row as color indexes, with {@link #EMPTY} for a tile without a brick.
+     */
+    public static final class Grid {
+        /**
+         * The color index of an empty tile.
+         */
+        public static final int EMPTY = -1;
+
+        private final float originX;
+        private final float originY;
+        private final float tileWidth;
+        private final float tileHeight;
+        private final int columns;
+        private final int rows;
+        private final IntBuffer tiles;
+        private int bricks = -1;
+
+        /**
+         * Constructs a grid.
+         *
+         * @param originX    x of the grid's upper-left corner
+         * @param originY    y of the grid's upper-left corner
+         * @param tileWidth  the width of every tile
+         * @param tileHeight the height of every tile
+         * @param columns    the number of columns
+         * @param rows       the number of rows
+         * @param tiles      the color index of every tile, row by row
+         */
+        public Grid(float originX, float originY, float tileWidth, float tileHeight, int columns, int rows,
+                    IntBuffer tiles) {
+            if (tiles.remaining() != columns * rows) {
+                throw new IllegalArgumentException("grid has " + tiles.remaining() + " tiles, expected "
+                        + columns * rows);
+            }
+            this.originX = originX;
+            this.originY = originY;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.columns = columns;
+            this.rows = rows;
+            this.tiles = tiles;
+        }
+
+        /**
+         * Returns x of the grid's upper-left corner.
+         *
+         * @return x of the grid's upper-left corner
+         */
+        public float getOriginX() {
+            return originX;
+        }
+
+        /**
+         * Returns y of the grid's upper-left corner.
+         *
+         * @return y of the grid's upper-left corner
+         */
+        public float getOriginY() {
+            return originY;
+        }
+
+        /**
+         * Returns the width of every tile.
+         *
+         * @return the width of every tile
+         */
+        public float getTileWidth() {
+            return tileWidth;
+        }
+
+        /**
+         * Returns the height of every tile.
+         *
+         * @return the height of every tile
+         */
+        public float getTileHeight() {
+            return tileHeight;
+        }
+
+        /**
+         * Returns the number of columns.
+         *
+         * @return the number of columns
+         */
+        public int getColumns() {
+            return columns;
+        }
+
+        /**
+         * Returns the number of rows.
+         *
+         * @return the number of rows
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the number of tiles that hold a brick. The tiles are counted
+         * on the first call, so a level can be loaded without reading them.
+         *
+         * @return the number of bricks
+         */
+        public int getBrickCount() {
+            if (bricks < 0) {
+                int count = 0;
+                for (int i = tiles.position(); i < tiles.limit(); i++) {
+                    if (tiles.get(i) != EMPTY) {
+                        count++;
+                    }
+                }
+                bricks = count;
+            }
+            return bricks;
+        }
+
+        /**
+         * Returns a view of the color indexes of the tiles, row by row.
+         *
+         * @return a view of the color indexes of the tiles, row by row
+         */
+        public IntBuffer tiles() {
+            return tiles.duplicate();
+        }
+    }
+
+    /**
+     * The {@code Spawns} class holds the starting position, direction, speed
+     * and color index of each ball.
+     */
+    public static final class Spawns {
+        private final FloatBuffer x;
+        private final FloatBuffer y;
+        private final FloatBuffer angle;
+        private final FloatBuffer speed;
+        private final IntBuffer colors;
+
+        /**
+         * Constructs a list of ball spawns over buffers of equal length.
+         *
+         * @param x      x of the balls' centers
+         * @param y      y of the balls' centers
+         * @param angle  the directions, in degrees (see {@link geometry.Velocity#fromAngleAndSpeed})
+         * @param speed  the speeds
+         * @param colors the color indexes
+         */
+        public Spawns(FloatBuffer x, FloatBuffer y, FloatBuffer angle, FloatBuffer speed, IntBuffer colors) {
+            int n = colors.remaining();
+            if (x.remaining() != n || y.remaining() != n || angle.remaining() != n || speed.remaining() != n) {
+                throw new IllegalArgumentException("spawn columns differ in length");
+            }
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+            this.speed = speed;
+            this.colors = colors;
+        }
+
+        /**
+         * Returns the number of balls.
+         *
+         * @return the number of balls
+         */
+        public int size() {
+            return colors.remaining();
+        }
+
+        /**
+         * Returns x of a ball's center.
+         *
+         * @param i the ball's index
+         * @return x of its center
+         */
+        public float getX(int i) {
+            return x.get(x.position() + i);
+        }
+
+        /**
+         * Returns y of a ball's center.
+         *
+         * @param i the ball's index
+         * @return y of its center
+         */
+        public float getY(int i) {
+            return y.get(y.position() + i);
+        }
+
+        /**
+         * Returns a ball's direction in degrees.
+         *
+         * @param i the ball's index
+         * @return its direction in degrees
+         */
+        public float getAngle(int i) {
+            return angle.get(angle.position() + i);
+        }
+
+        /**
+         * Returns a ball's speed.
+         *
+         * @param i the ball's index
+         * @return its speed
+         */
+        public float getSpeed(int i) {
+            return speed.get(speed.position() + i);
+        }
+
+        /**
+         * Returns a ball's color index.
+         *
+         * @param i the ball's index
+         * @return its color index
+         */
+        public int getColor(int i) {
+            return colors.get(colors.position() + i);
+        }
+    }
+}
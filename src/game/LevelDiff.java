@@ -0,0 +1,338 @@
+package game;
+
+import java.awt.Color;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code LevelDiff} class holds the differences between two versions of a
+ * {@link Level}, so that a level being played can be updated in place (see
+ * {@link Game#reload(LevelDiff)}) instead of being built again. Rectangles are
+ * matched by their bounds and color, and the bricks of the grid tile by tile;
+ * the balls and the background are not compared.
+ */
+public class LevelDiff {
+    private final Level from;
+    private final Level to;
+    private final Changes walls;
+    private final Changes deathRegions;
+    private final Changes blocks;
+    private final boolean gridReplaced;
+    private final int[] changedTiles;
+    private long loadNanos;
+
+    /**
+     * Computes the differences between two versions of a level.
+     *
+     * @param from the old version
+     * @param to   the new version
+     */
+    public LevelDiff(Level from, Level to) {
+        this.from = from;
+        this.to = to;
+        this.walls = new Changes(from.getWalls(), from.getPalette(), to.getWalls(), to.getPalette());
+        this.deathRegions = new Changes(from.getDeathRegions(), from.getPalette(),
+                to.getDeathRegions(), to.getPalette());
+        this.blocks = new Changes(from.getBlocks(), from.getPalette(), to.getBlocks(), to.getPalette());
+        Level.Grid a = from.getGrid();
+        Level.Grid b = to.getGrid();
+        if (a == null && b == null) {
+            this.gridReplaced = false;
+            this.changedTiles = new int[0];
+        } else if (a == null || b == null || a.getOriginX() != b.getOriginX() || a.getOriginY() != b.getOriginY()
+                || a.getTileWidth() != b.getTileWidth() || a.getTileHeight() != b.getTileHeight()
+                || a.getColumns() != b.getColumns() || a.getRows() != b.getRows()) {
+            this.gridReplaced = true;
+            this.changedTiles = new int[0];
+        } else {
+            this.gridReplaced = false;
+            this.changedTiles = changedTiles(a, from, b, to);
+        }
+    }
+
+    /**
+     * Returns the old version of the level.
+     *
+     * @return the old version of the level
+     */
+    public Level getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns the new version of the level.
+     *
+     * @return the new version of the level
+     */
+    public Level getTo() {
+        return to;
+    }
+
+    /**
+     * Returns how long loading the new version and computing the differences took.
+     *
+     * @return the time in nanoseconds, or 0 if it was not measured
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * Sets how long loading the new version and computing the differences took.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    void setLoadNanos(long nanos) {
+        this.loadNanos = nanos;
+    }
+
+    /**
+     * Returns the changes to the walls.
+     *
+     * @return the changes to the walls
+     */
+    public Changes getWalls() {
+        return walls;
+    }
+
+    /**
+     * Returns the changes to the death regions.
+     *
+     * @return the changes to the death regions
+     */
+    public Changes getDeathRegions() {
+        return deathRegions;
+    }
+
+    /**
+     * Returns the changes to the free blocks.
+     *
+     * @return the changes to the free blocks
+     */
+    public Changes getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns whether the grid was added, removed, or changed its position,
+     * tile size or number of tiles, in which case it is replaced as a whole.
+     *
+     * @return true if the grid is replaced
+     */
+    public boolean isGridReplaced() {
+        return gridReplaced;
+    }
+
+    /**
+     * Returns the tiles of a grid that keeps its shape whose brick was added,
+     * removed or recolored.
+     *
+     * @return the slots ({@code row * columns + column}) of the changed tiles
+     */
+    public int[] getChangedTiles() {
+        return changedTiles.clone();
+    }
+
+    /**
+     * Returns whether the two versions have the same walls, death regions and blocks.
+     *
+     * @return true if the two versions have the same walls, death regions and blocks
+     */
+    public boolean isEmpty() {
+        return walls.isEmpty() && deathRegions.isEmpty() && blocks.isEmpty() && !gridReplaced
+                && changedTiles.length == 0;
+    }
+
+    /**
+     * Returns a one-line summary of the differences.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return "walls " + walls + ", death regions " + deathRegions + ", blocks " + blocks + ", grid "
+                + (gridReplaced ? "replaced" : changedTiles.length + " tiles changed");
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private static int[] changedTiles(Level.Grid a, Level from, Level.Grid b, Level to) {
+        IntBuffer oldTiles = a.tiles();
+        IntBuffer newTiles = b.tiles();
+        int[] changed = new int[16];
+        int count = 0;
+        for (int slot = 0; slot < oldTiles.remaining(); slot++) {
+            int p = oldTiles.get(oldTiles.position() + slot);
+            int q = newTiles.get(newTiles.position() + slot);
+            Color before = p < 0 ? null : from.getPalette().get(p);
+            Color after = q < 0 ? null : to.getPalette().get(q);
+            if (!Objects.equals(before, after)) {
+                if (count == changed.length) {
+                    changed = Arrays.copyOf(changed, count * 2);
+                }
+                changed[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * The {@code Changes} class matches the rectangles of one part of a level,
+     * such as its walls, between two versions: the rectangles kept, with their
+     * index in each version, and the indexes of those removed and added.
+     */
+    public static final class Changes {
+        private final int[] keptFrom;
+        private final int[] keptTo;
+        private final int[] removed;
+        private final int[] added;
+        private final int changed;
+
+        /**
+         * Matches the rectangles of two versions.
+         *
+         * @param from        the old rectangles
+         * @param fromPalette the colors of the old rectangles
+         * @param to          the new rectangles
+         * @param toPalette   the colors of the new rectangles
+         */
+        private Changes(Level.Rects from, List<Color> fromPalette, Level.Rects to, List<Color> toPalette) {
+            Map<Bounds, ArrayDeque<Integer>> byBounds = new HashMap<>();
+            for (int i = 0; i < from.size(); i++) {
+                byBounds.computeIfAbsent(new Bounds(from, i), k -> new ArrayDeque<>()).add(i);
+            }
+            int[] matched = new int[to.size()];
+            Arrays.fill(matched, -1);
+            boolean[] keptOld = new boolean[from.size()];
+            int kept = 0;
+            int recolored = 0;
+            for (int j = 0; j < to.size(); j++) {
+                ArrayDeque<Integer> candidates = byBounds.get(new Bounds(to, j));
+                if (candidates == null || candidates.isEmpty()) {
+                    continue;
+                }
+                int i = candidates.poll();
+                if (fromPalette.get(from.getColor(i)).equals(toPalette.get(to.getColor(j)))) {
+                    matched[j] = i;
+                    keptOld[i] = true;
+                    kept++;
+                } else {
+                    recolored++;
+                }
+            }
+            this.keptFrom = new int[kept];
+            this.keptTo = new int[kept];
+            this.added = new int[to.size() - kept];
+            this.removed = new int[from.size() - kept];
+            int k = 0;
+            int a = 0;
+            for (int j = 0; j < to.size(); j++) {
+                if (matched[j] >= 0) {
+                    keptFrom[k] = matched[j];
+                    keptTo[k++] = j;
+                } else {
+                    added[a++] = j;
+                }
+            }
+            int r = 0;
+            for (int i = 0; i < from.size(); i++) {
+                if (!keptOld[i]) {
+                    removed[r++] = i;
+                }
+            }
+            this.changed = recolored;
+        }
+
+        /**
+         * Returns the indexes, in the old version, of the rectangles kept.
+         *
+         * @return the indexes, in the old version, of the rectangles kept
+         */
+        public int[] getKeptFrom() {
+            return keptFrom.clone();
+        }
+
+        /**
+         * Returns the indexes, in the new version, of the rectangles kept, in the order of {@link #getKeptFrom()}.
+         *
+         * @return the indexes, in the new version, of the rectangles kept, in the order of {@link #getKeptFrom()}
+         */
+        public int[] getKeptTo() {
+            return keptTo.clone();
+        }
+
+        /**
+         * Returns the indexes, in the old version, of the rectangles removed or changed.
+         *
+         * @return the indexes, in the old version, of the rectangles removed or changed
+         */
+        public int[] getRemoved() {
+            return removed.clone();
+        }
+
+        /**
+         * Returns the indexes, in the new version, of the rectangles added or changed.
+         *
+         * @return the indexes, in the new version, of the rectangles added or changed
+         */
+        public int[] getAdded() {
+            return added.clone();
+        }
+
+        /**
+         * Returns whether every rectangle is kept.
+         *
+         * @return true if every rectangle is kept
+         */
+        public boolean isEmpty() {
+            return removed.length == 0 && added.length == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "+" + (added.length - changed) + " -" + (removed.length - changed) + " ~" + changed;
+        }
+    }
+
+    /**
+     * The {@code Bounds} class identifies a rectangle of a level by its edges.
+     */
+    private static final class Bounds {
+        private final float left;
+        private final float top;
+        private final float right;
+        private final float bottom;
+
+        /**
+         * Constructs the bounds of one of the rectangles.
+         *
+         * @param rects the rectangles
+         * @param i     the rectangle's index
+         */
+        private Bounds(Level.Rects rects, int i) {
+            this.left = rects.getLeft(i);
+            this.top = rects.getTop(i);
+            this.right = left + rects.getWidth(i);
+            this.bottom = top + rects.getHeight(i);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Bounds)) {
+                return false;
+            }
+            Bounds other = (Bounds) o;
+            return left == other.left && top == other.top && right == other.right && bottom == other.bottom;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(left, top, right, bottom);
+        }
+    }
+}
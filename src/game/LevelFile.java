@@ -0,0 +1,278 @@
+package game;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code LevelFile} class loads levels, keeping a compiled binary copy of
+ * each text level (see {@link LevelParser}) next to it, named after it with a
+ * {@code .bin} suffix. The compiled file is memory-mapped when it is loaded, and
+ * compiled again when the text file has changed since.
+ */
+public final class LevelFile {
+    /**
+     * The suffix of compiled level files.
+     */
+    public static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x41524B4C;
+    private static final int VERSION = 1;
+
+    // Loads through the static methods
+    private LevelFile() {
+    }
+
+    /**
+     * Loads a text level, from its compiled copy if that is up to date.
+     * Otherwise the text is parsed and compiled again; if the compiled copy
+     * cannot be written, the parsed level is still returned.
+     *
+     * @param source the text level file
+     * @return the level
+     * @throws IOException if the level cannot be read or is not a valid level
+     */
+    public static Level load(Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        Path compiled = compiledPath(source);
+        if (Files.isRegularFile(compiled)) {
+            try {
+                Level level = map(compiled, size, modified);
+                if (level != null) {
+                    return level;
+                }
+            } catch (IOException e) {
+                System.err.println("Recompiling " + source + ": " + e.getMessage());
+            }
+        }
+        Level level = LevelParser.parse(source);
+        try {
+            compile(level, compiled, size, modified);
+        } catch (IOException e) {
+            System.err.println("Could not write " + compiled + ": " + e.getMessage());
+        }
+        return level;
+    }
+
+    /**
+     * Returns the compiled copy of a text level file.
+     *
+     * @param source the text level file
+     * @return the path of its compiled copy
+     */
+    public static Path compiledPath(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Writes a level in the compiled form. The file is written under a
+     * temporary name and then renamed, so a concurrent {@link #load(Path)} never
+     * maps a half-written file.
+     *
+     * @param level          the level to write
+     * @param target         the compiled file
+     * @param sourceSize     the size of the text file the level was read from
+     * @param sourceModified the modification time of that file, in milliseconds
+     * @throws IOException if the file cannot be written
+     */
+    public static void compile(Level level, Path target, long sourceSize, long sourceModified) throws IOException {
+        byte[] background = level.getBackground() == null
+                ? null : level.getBackground().getBytes(StandardCharsets.UTF_8);
+        Level.Grid grid = level.getGrid();
+        long bytes = 4L * 2 + 8L * 2
+                + 4 + (background == null ? 0 : pad(background.length))
+                + 4 + 4L * level.getPalette().size()
+                + rectsBytes(level.getWalls()) + rectsBytes(level.getDeathRegions()) + rectsBytes(level.getBlocks())
+                + 4 + (grid == null ? 0 : 4L * 6 + 4L * grid.getColumns() * grid.getRows())
+                + 4 + 4L * 5 * level.getBalls().size();
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Level too large to compile: " + bytes + " bytes");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(sourceSize);
+        out.putLong(sourceModified);
+        if (background == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(background.length);
+            out.put(background);
+            out.position(out.position() + pad(background.length) - background.length);
+        }
+        out.putInt(level.getPalette().size());
+        for (Color c : level.getPalette()) {
+            out.putInt(c.getRGB());
+        }
+        putRects(out, level.getWalls());
+        putRects(out, level.getDeathRegions());
+        putRects(out, level.getBlocks());
+        if (grid == null) {
+            out.putInt(0);
+        } else {
+            out.putInt(1);
+            out.putFloat(grid.getOriginX());
+            out.putFloat(grid.getOriginY());
+            out.putFloat(grid.getTileWidth());
+            out.putFloat(grid.getTileHeight());
+            out.putInt(grid.getColumns());
+            out.putInt(grid.getRows());
+            out.asIntBuffer().put(grid.tiles());
+            out.position(out.position() + 4 * grid.getColumns() * grid.getRows());
+        }
+        Level.Spawns balls = level.getBalls();
+        int n = balls.size();
+        out.putInt(n);
+        for (int i = 0; i < n; i++) {
+            out.putFloat(balls.getX(i));
+        }
+        for (int i = 0; i < n; i++) {
+            out.putFloat(balls.getY(i));
+        }
+        for (int i = 0; i < n; i++) {
+            out.putFloat(balls.getAngle(i));
+        }
+        for (int i = 0; i < n; i++) {
+            out.putFloat(balls.getSpeed(i));
+        }
+        for (int i = 0; i < n; i++) {
+            out.putInt(balls.getColor(i));
+        }
+        out.flip();
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Maps a compiled level, or returns null if it was compiled from another version of the text file
+    private static Level map(Path compiled, long sourceSize, long sourceModified) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException(compiled + " is not a compiled level");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported level version " + version + " in " + compiled);
+            }
+            if (in.getLong() != sourceSize || in.getLong() != sourceModified) {
+                return null;
+            }
+            String background = null;
+            int length = in.getInt();
+            if (length >= 0) {
+                byte[] text = new byte[length];
+                in.get(text);
+                in.position(in.position() + pad(length) - length);
+                background = new String(text, StandardCharsets.UTF_8);
+            }
+            int colors = count(in, 1);
+            List<Color> palette = new ArrayList<>(colors);
+            for (int i = 0; i < colors; i++) {
+                palette.add(new Color(in.getInt()));
+            }
+            Level.Rects walls = rects(in);
+            Level.Rects deathRegions = rects(in);
+            Level.Rects blocks = rects(in);
+            Level.Grid grid = null;
+            if (in.getInt() != 0) {
+                float x = in.getFloat();
+                float y = in.getFloat();
+                float tileWidth = in.getFloat();
+                float tileHeight = in.getFloat();
+                int columns = in.getInt();
+                int rows = in.getInt();
+                if (columns <= 0 || rows <= 0 || (long) columns * rows > in.remaining() / 4) {
+                    throw new IOException("Corrupt grid in " + compiled);
+                }
+                grid = new Level.Grid(x, y, tileWidth, tileHeight, columns, rows, ints(in, columns * rows));
+            }
+            int n = count(in, 5);
+            Level.Spawns balls = new Level.Spawns(floats(in, n), floats(in, n), floats(in, n), floats(in, n),
+                    ints(in, n));
+            return new Level(background, palette, walls, deathRegions, blocks, grid, balls);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt compiled level " + compiled, e);
+        }
+    }
+
+    // Reads a count of entries of the given number of ints each, checking that they fit in the rest of the file
+    private static int count(ByteBuffer in, int intsPerEntry) throws IOException {
+        int n = in.getInt();
+        if (n < 0 || (long) n * intsPerEntry > in.remaining() / 4) {
+            throw new IOException("Corrupt count " + n);
+        }
+        return n;
+    }
+
+    private static Level.Rects rects(ByteBuffer in) throws IOException {
+        int n = count(in, 5);
+        return new Level.Rects(floats(in, n), floats(in, n), floats(in, n), floats(in, n), ints(in, n));
+    }
+
+    // A view of the next n floats of the mapping, which are skipped
+    private static FloatBuffer floats(ByteBuffer in, int n) {
+        FloatBuffer column = in.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        column.limit(n);
+        in.position(in.position() + 4 * n);
+        return column;
+    }
+
+    // A view of the next n ints of the mapping, which are skipped
+    private static IntBuffer ints(ByteBuffer in, int n) {
+        IntBuffer column = in.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        column.limit(n);
+        in.position(in.position() + 4 * n);
+        return column;
+    }
+
+    private static long rectsBytes(Level.Rects rects) {
+        return 4 + 4L * 5 * rects.size();
+    }
+
+    private static void putRects(ByteBuffer out, Level.Rects rects) {
+        out.putInt(rects.size());
+        out.asFloatBuffer().put(rects.lefts());
+        out.position(out.position() + 4 * rects.size());
+        out.asFloatBuffer().put(rects.tops());
+        out.position(out.position() + 4 * rects.size());
+        out.asFloatBuffer().put(rects.rights());
+        out.position(out.position() + 4 * rects.size());
+        out.asFloatBuffer().put(rects.bottoms());
+        out.position(out.position() + 4 * rects.size());
+        out.asIntBuffer().put(rects.colors());
+        out.position(out.position() + 4 * rects.size());
+    }
+
+    // Rounds a byte count up to a whole number of ints, so the columns stay aligned
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+}
@@ -0,0 +1,141 @@
+package game;
+
+import java.awt.Color;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code LevelGenerator} class builds stress levels from a seed: a closed
+ * arena with a given number of non-overlapping blocks of mixed sizes and a given
+ * number of balls, used to measure how the game scales (see {@code StressBenchmark}).
+ * The same seed and counts always give the same level. In a lasting level the
+ * blocks and balls share one color, so no block is ever removed.
+ */
+public final class LevelGenerator {
+    private static final float WALL = 20;
+    private static final float BLOCK_AREA_TOP = 40;
+    private static final float BLOCK_AREA_BOTTOM = 400;
+    private static final float BALL_AREA_TOP = 420;
+    private static final float BALL_AREA_BOTTOM = 540;
+    private static final float BALL_SPEED = 5;
+    private static final int CELLS_PER_BLOCK = 3;
+    private static final int MAX_SPAN = 3;
+    private static final float GAP = 0.1f;
+    private static final List<Color> PALETTE = List.of(Color.GRAY, Color.WHITE, Color.RED, Color.ORANGE,
+            Color.YELLOW, Color.GREEN, Color.CYAN, Color.MAGENTA);
+    private static final int WALL_COLOR = 0;
+    private static final int BALL_COLOR = 1;
+
+    // Generates through the static method
+    private LevelGenerator() {
+    }
+
+    /**
+     * Generates a stress level.
+     *
+     * @param seed    the seed of the layout
+     * @param blocks  the number of blocks
+     * @param balls   the number of balls
+     * @param lasting true for blocks that are never removed, false for blocks of random colors
+     * @return the level
+     */
+    public static Level generate(long seed, int blocks, int balls, boolean lasting) {
+        if (blocks < 0 || balls < 0) {
+            throw new IllegalArgumentException("the counts of blocks and balls cannot be negative");
+        }
+        Random random = new Random(seed);
+        float width = Game.SCREEN_WIDTH;
+        float height = Game.SCREEN_HEIGHT;
+        Level.Rects walls = rects(new float[][] {
+                {0, 0, width, WALL}, {0, 0, WALL, height},
+                {width - WALL, 0, width, height}, {0, height - WALL, width, height}
+        }, new int[] {WALL_COLOR, WALL_COLOR, WALL_COLOR, WALL_COLOR});
+        Level.Rects noRegions = rects(new float[0][], new int[0]);
+        return new Level(null, PALETTE, walls, noRegions, blocks(random, blocks, lasting), null,
+                balls(random, balls));
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private static Level.Rects blocks(Random random, int count, boolean lasting) {
+        float[][] edges = new float[count][];
+        int[] colors = new int[count];
+        if (count == 0) {
+            return rects(edges, colors);
+        }
+        // Cells about twice as wide as they are high, at least three per block
+        float areaWidth = Game.SCREEN_WIDTH - 2 * WALL;
+        float areaHeight = BLOCK_AREA_BOTTOM - BLOCK_AREA_TOP;
+        long cells = (long) CELLS_PER_BLOCK * count;
+        int columns = (int) Math.max(1, Math.ceil(Math.sqrt(cells * areaWidth / (2 * areaHeight))));
+        int rows = (int) ((cells + columns - 1) / columns);
+        float cellWidth = areaWidth / columns;
+        float cellHeight = areaHeight / rows;
+
+        int[] order = new int[columns * rows];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        boolean[] taken = new boolean[order.length];
+        int placed = 0;
+        for (int k = 0; k < order.length && placed < count; k++) {
+            int cell = order[k];
+            if (taken[cell]) {
+                continue;
+            }
+            int column = cell % columns;
+            int span = 1 + random.nextInt(MAX_SPAN);
+            int free = 1;
+            while (free < span && column + free < columns && !taken[cell + free]) {
+                free++;
+            }
+            for (int i = 0; i < free; i++) {
+                taken[cell + i] = true;
+            }
+            float left = WALL + column * cellWidth + GAP * cellWidth / 2;
+            float top = BLOCK_AREA_TOP + (cell / columns) * cellHeight + GAP * cellHeight / 2;
+            float blockHeight = cellHeight * (1 - GAP) * (0.5f + 0.5f * random.nextFloat());
+            edges[placed] = new float[] {left, top, left + free * cellWidth - GAP * cellWidth, top + blockHeight};
+            colors[placed] = lasting ? BALL_COLOR : 2 + random.nextInt(PALETTE.size() - 2);
+            placed++;
+        }
+        return rects(edges, colors);
+    }
+
+    private static Level.Spawns balls(Random random, int count) {
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] angle = new float[count];
+        float[] speed = new float[count];
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = WALL + 10 + random.nextFloat() * (Game.SCREEN_WIDTH - 2 * WALL - 20);
+            y[i] = BALL_AREA_TOP + random.nextFloat() * (BALL_AREA_BOTTOM - BALL_AREA_TOP);
+            angle[i] = random.nextInt(360);
+            speed[i] = BALL_SPEED;
+            colors[i] = BALL_COLOR;
+        }
+        return new Level.Spawns(FloatBuffer.wrap(x), FloatBuffer.wrap(y), FloatBuffer.wrap(angle),
+                FloatBuffer.wrap(speed), IntBuffer.wrap(colors));
+    }
+
+    // Columns of rectangles given as rows of left, top, right and bottom edges
+    private static Level.Rects rects(float[][] edges, int[] colors) {
+        float[][] columns = new float[4][edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            for (int j = 0; j < 4; j++) {
+                columns[j][i] = edges[i][j];
+            }
+        }
+        return new Level.Rects(FloatBuffer.wrap(columns[0]), FloatBuffer.wrap(columns[1]),
+                FloatBuffer.wrap(columns[2]), FloatBuffer.wrap(columns[3]), IntBuffer.wrap(colors));
+    }
+}
@@ -0,0 +1,304 @@
+package game;
+
+import java.awt.Color;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code LevelParser} class reads a {@link Level} from its text form. Each
+ * line holds one directive; blank lines and lines starting with {@code #} are
+ * ignored:
+ * <pre>
+ * background &lt;file&gt;                          the background image
+ * color &lt;key&gt; &lt;red&gt; &lt;green&gt; &lt;blue&gt;           a palette color, named by one character
+ * wall &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt; &lt;key&gt;       an indestructible wall
+ * death &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt; &lt;key&gt;      a region that removes the balls hitting it
+ * block &lt;x&gt; &lt;y&gt; &lt;width&gt; &lt;height&gt; &lt;key&gt;      a removable block
+ * grid &lt;x&gt; &lt;y&gt; &lt;tileWidth&gt; &lt;tileHeight&gt; &lt;columns&gt; &lt;rows&gt;
+ * row &lt;keys&gt;                                one row of the grid, one key or '.' per tile
+ * ball &lt;x&gt; &lt;y&gt; &lt;angle&gt; &lt;speed&gt; &lt;key&gt;      a ball to start with
+ * </pre>
+ * A {@code grid} line is followed by exactly {@code rows} {@code row} lines.
+ * Colors must be defined before they are used.
+ */
+public final class LevelParser {
+    private static final char EMPTY_TILE = '.';
+
+    private final Path file;
+    private final List<Color> palette;
+    private final Map<Character, Integer> keys;
+    private final Columns walls;
+    private final Columns deathRegions;
+    private final Columns blocks;
+    private final Columns balls;
+    private String background;
+    private float[] gridShape;
+    private int gridColumns;
+    private int gridRows;
+    private int[] tiles;
+    private int gridRowsRead;
+    private int lineNumber;
+
+    // Parses one file; use parse(Path)
+    private LevelParser(Path file) {
+        this.file = file;
+        this.palette = new ArrayList<>();
+        this.keys = new HashMap<>();
+        this.walls = new Columns();
+        this.deathRegions = new Columns();
+        this.blocks = new Columns();
+        this.balls = new Columns();
+    }
+
+    /**
+     * Reads a level from a text file.
+     *
+     * @param file the level file
+     * @return the level
+     * @throws IOException if the file cannot be read or is not a valid level
+     */
+    public static Level parse(Path file) throws IOException {
+        LevelParser parser = new LevelParser(file);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                parser.lineNumber++;
+                parser.parseLine(line.trim());
+            }
+        }
+        return parser.build();
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private void parseLine(String line) throws IOException {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return;
+        }
+        String[] words = line.split("\\s+");
+        if (tiles != null && gridRowsRead < gridRows && !words[0].equals("row")) {
+            throw error("expected " + gridRows + " rows after grid, found " + gridRowsRead);
+        }
+        switch (words[0]) {
+            case "background":
+                expect(words, 2);
+                background = words[1];
+                break;
+            case "color":
+                parseColor(words);
+                break;
+            case "wall":
+                parseRect(words, walls);
+                break;
+            case "death":
+                parseRect(words, deathRegions);
+                break;
+            case "block":
+                parseRect(words, blocks);
+                break;
+            case "grid":
+                parseGrid(words);
+                break;
+            case "row":
+                parseRow(words);
+                break;
+            case "ball":
+                expect(words, 6);
+                balls.add(number(words[1]), number(words[2]), number(words[3]), number(words[4]), color(words[5]));
+                break;
+            default:
+                throw error("unknown directive '" + words[0] + "'");
+        }
+    }
+
+    private void parseColor(String[] words) throws IOException {
+        expect(words, 5);
+        if (words[1].length() != 1 || words[1].charAt(0) == EMPTY_TILE) {
+            throw error("a color key is a single character other than '" + EMPTY_TILE + "'");
+        }
+        if (keys.containsKey(words[1].charAt(0))) {
+            throw error("color '" + words[1] + "' is defined twice");
+        }
+        Color c;
+        try {
+            c = new Color(integer(words[2]), integer(words[3]), integer(words[4]));
+        } catch (IllegalArgumentException e) {
+            throw error("color components must be between 0 and 255");
+        }
+        keys.put(words[1].charAt(0), palette.size());
+        palette.add(c);
+    }
+
+    private void parseRect(String[] words, Columns rects) throws IOException {
+        expect(words, 6);
+        float x = number(words[1]);
+        float y = number(words[2]);
+        float w = number(words[3]);
+        float h = number(words[4]);
+        if (w <= 0 || h <= 0) {
+            throw error("width and height must be positive");
+        }
+        rects.add(x, y, x + w, y + h, color(words[5]));
+    }
+
+    private void parseGrid(String[] words) throws IOException {
+        expect(words, 7);
+        if (tiles != null) {
+            throw error("a level has at most one grid");
+        }
+        float[] shape = {number(words[1]), number(words[2]), number(words[3]), number(words[4])};
+        int columns = integer(words[5]);
+        int rows = integer(words[6]);
+        if (shape[2] <= 0 || shape[3] <= 0 || columns <= 0 || rows <= 0) {
+            throw error("grid dimensions must be positive");
+        }
+        gridShape = shape;
+        gridColumns = columns;
+        gridRows = rows;
+        tiles = new int[columns * rows];
+    }
+
+    private void parseRow(String[] words) throws IOException {
+        expect(words, 2);
+        if (tiles == null || gridRowsRead == gridRows) {
+            throw error("row outside of a grid");
+        }
+        String row = words[1];
+        if (row.length() != gridColumns) {
+            throw error("row has " + row.length() + " tiles, expected " + gridColumns);
+        }
+        int start = gridRowsRead * gridColumns;
+        for (int column = 0; column < gridColumns; column++) {
+            char key = row.charAt(column);
+            tiles[start + column] = key == EMPTY_TILE ? Level.Grid.EMPTY : color(key);
+        }
+        gridRowsRead++;
+    }
+
+    private Level build() throws IOException {
+        if (tiles != null && gridRowsRead < gridRows) {
+            throw error("expected " + gridRows + " rows after grid, found " + gridRowsRead);
+        }
+        Level.Grid grid = null;
+        if (tiles != null) {
+            grid = new Level.Grid(gridShape[0], gridShape[1], gridShape[2], gridShape[3],
+                    gridColumns, gridRows, IntBuffer.wrap(tiles));
+        }
+        return new Level(background, palette, walls.toRects(), deathRegions.toRects(), blocks.toRects(), grid,
+                balls.toSpawns());
+    }
+
+    private void expect(String[] words, int count) throws IOException {
+        if (words.length != count) {
+            throw error("'" + words[0] + "' takes " + (count - 1) + " values");
+        }
+    }
+
+    private int color(String key) throws IOException {
+        if (key.length() != 1) {
+            throw error("unknown color '" + key + "'");
+        }
+        return color(key.charAt(0));
+    }
+
+    private int color(char key) throws IOException {
+        Integer index = keys.get(key);
+        if (index == null) {
+            throw error("unknown color '" + key + "'");
+        }
+        return index;
+    }
+
+    private float number(String word) throws IOException {
+        try {
+            return Float.parseFloat(word);
+        } catch (NumberFormatException e) {
+            throw error("'" + word + "' is not a number");
+        }
+    }
+
+    private int integer(String word) throws IOException {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw error("'" + word + "' is not an integer");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(file + ":" + lineNumber + ": " + message);
+    }
+
+    /**
+     * The {@code Columns} class collects rows of four numbers and a color index
+     * (the edges of a rectangle, or the position, direction and speed of a
+     * ball) into growing columns.
+     */
+    private static final class Columns {
+        private float[][] values = new float[4][16];
+        private int[] colors = new int[16];
+        private int count;
+
+        /**
+         * Appends a row.
+         *
+         * @param a the first value
+         * @param b the second value
+         * @param c the third value
+         * @param d the fourth value
+         * @param color the color index
+         */
+        private void add(float a, float b, float c, float d, int color) {
+            if (count == colors.length) {
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = Arrays.copyOf(values[j], count * 2);
+                }
+                colors = Arrays.copyOf(colors, count * 2);
+            }
+            values[0][count] = a;
+            values[1][count] = b;
+            values[2][count] = c;
+            values[3][count] = d;
+            colors[count] = color;
+            count++;
+        }
+
+        /**
+         * Returns the rows collected so far, as left, top, right and bottom edges.
+         *
+         * @return the rows collected so far, as left, top, right and bottom edges
+         */
+        private Level.Rects toRects() {
+            return new Level.Rects(column(0), column(1), column(2), column(3), IntBuffer.wrap(colors, 0, count));
+        }
+
+        /**
+         * Returns the rows collected so far, as x, y, angle and speed.
+         *
+         * @return the rows collected so far, as x, y, angle and speed
+         */
+        private Level.Spawns toSpawns() {
+            return new Level.Spawns(column(0), column(1), column(2), column(3), IntBuffer.wrap(colors, 0, count));
+        }
+
+        /**
+         * Returns a view of the column's values.
+         *
+         * @param j the column
+         * @return a view of the column's values
+         */
+        private FloatBuffer column(int j) {
+            return FloatBuffer.wrap(values[j], 0, count);
+        }
+    }
+}
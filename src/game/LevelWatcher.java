@@ -0,0 +1,115 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The {@code LevelWatcher} class reloads a level file whenever it is saved,
+ * and hands the differences from the previous version (see {@link LevelDiff})
+ * to the game playing it, typically {@link Game#reload(LevelDiff)}. The file is
+ * watched, loaded and compared on a daemon thread; a version that cannot be
+ * loaded is reported and skipped.
+ */
+public class LevelWatcher implements AutoCloseable {
+    /**
+     * How long the file must go without changes before it is loaded, in milliseconds.
+     */
+    public static final long QUIET_MILLIS = 50;
+
+    private final Path file;
+    private final WatchService service;
+    private final Consumer<LevelDiff> changes;
+    private final Thread thread;
+    private Level current;
+    private volatile boolean closed;
+
+    /**
+     * Starts watching a level file.
+     *
+     * @param file    the level file
+     * @param level   the version of the level being played
+     * @param changes receives the differences of every new version, on the watcher's thread
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public LevelWatcher(Path file, Level level, Consumer<LevelDiff> changes) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.current = level;
+        this.changes = changes;
+        this.service = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "level-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            service.close();
+        } catch (IOException e) {
+            // The watcher thread stops either way
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private void watch() {
+        try {
+            while (!closed) {
+                if (!touched(service.take())) {
+                    continue;
+                }
+                // Wait for the writes of one save to settle
+                WatchKey key;
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    touched(key);
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        }
+    }
+
+    // Consumes the events of a key and tells whether any of them is about the level file
+    private boolean touched(WatchKey key) {
+        boolean found = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (file.getFileName().equals(event.context())) {
+                found = true;
+            }
+        }
+        key.reset();
+        return found;
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        Level next;
+        try {
+            next = LevelFile.load(file);
+        } catch (IOException e) {
+            System.err.println("Could not reload the level: " + e.getMessage());
+            return;
+        }
+        LevelDiff diff = new LevelDiff(current, next);
+        if (diff.isEmpty() || closed) {
+            return;
+        }
+        diff.setLoadNanos(System.nanoTime() - start);
+        current = next;
+        changes.accept(diff);
+    }
+}
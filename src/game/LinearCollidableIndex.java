@@ -0,0 +1,131 @@
+package game;
+
+import geometry.Intersections;
+import geometry.SegmentHit;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code LinearCollidableIndex} is the reference {@link CollidableIndex}.
+ * It keeps the collidables in an array and tests every one of them against
+ * each trajectory. Other indexes are expected to give the same answers,
+ * including breaking ties toward the collidable added first.
+ */
+public class LinearCollidableIndex implements CollidableIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Collidable, Integer> slots;
+    private Collidable[] items;
+    private long[] sequence;
+    private int count;
+    private long nextSequence;
+
+    /**
+     * Constructs an empty linear index.
+     */
+    public LinearCollidableIndex() {
+        this.slots = new LinkedHashMap<>();
+        this.items = new Collidable[INITIAL_CAPACITY];
+        this.sequence = new long[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public void add(Collidable c) {
+        if (slots.containsKey(c)) {
+            return;
+        }
+        if (count == items.length) {
+            items = Arrays.copyOf(items, count * 2);
+            sequence = Arrays.copyOf(sequence, count * 2);
+        }
+        items[count] = c;
+        sequence[count] = nextSequence++;
+        slots.put(c, count);
+        count++;
+    }
+
+    @Override
+    public void remove(Collidable c) {
+        Integer slot = slots.remove(c);
+        if (slot == null) {
+            return;
+        }
+        int last = --count;
+        if (slot != last) {
+            items[slot] = items[last];
+            sequence[slot] = sequence[last];
+            slots.put(items[slot], slot);
+        }
+        items[last] = null;
+    }
+
+    @Override
+    public void update(Collidable c) {
+        // Nothing is cached, so there is nothing to refresh
+    }
+
+    @Override
+    public Collidable castSegment(double x0, double y0, double x1, double y1, SegmentHit out) {
+        out.clear();
+        Collidable closestCollidable = null;
+        double closestToi = Double.MAX_VALUE;
+        long closestSequence = Long.MAX_VALUE;
+
+        // No collidable is hit during the scan, so nothing can change the array meanwhile
+        for (int i = 0; i < count; i++) {
+            double toi = items[i].getCollisionRectangle().timeOfImpact(x0, y0, x1, y1);
+            if (toi != Intersections.NO_HIT
+                    && (toi < closestToi || (toi == closestToi && sequence[i] < closestSequence))) {
+                closestToi = toi;
+                closestSequence = sequence[i];
+                closestCollidable = items[i];
+            }
+        }
+
+        if (closestCollidable == null
+                || !closestCollidable.getCollisionRectangle().intersect(x0, y0, x1, y1, out)) {
+            return null;
+        }
+        return closestCollidable;
+    }
+
+    @Override
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        for (int i = 0; i < count; i++) {
+            if (items[i].getCollisionRectangle().timeOfImpact(x0, y0, x1, y1) != Intersections.NO_HIT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAny(double x, double y) {
+        for (int i = 0; i < count; i++) {
+            if (items[i].getCollisionRectangle().contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Collidable collidableAt(double x, double y) {
+        Collidable found = null;
+        long foundSequence = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (sequence[i] < foundSequence && items[i].getCollisionRectangle().contains(x, y)) {
+                found = items[i];
+                foundSequence = sequence[i];
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Collidable[] toArray() {
+        return slots.keySet().toArray(new Collidable[0]);
+    }
+}
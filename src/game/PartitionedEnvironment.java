@@ -0,0 +1,188 @@
+package game;
+
+import geometry.Rectangle;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The {@code PartitionedEnvironment} class is the {@link GameEnvironment} facade
+ * of a {@link PartitionedWorld}. It answers queries for the whole arena, adds
+ * each {@link Collidable} to the strips it overlaps, and gives each strip its
+ * own {@link CollidableGroup#slice slice} of every collidable group, so that the
+ * strips share no index that they query.
+ */
+class PartitionedEnvironment extends GameEnvironment {
+    private final GameEnvironment[] strips;
+    private final double minX;
+    private final double stripWidth;
+    private final double ghostWidth;
+    private final Map<Collidable, int[]> spans;
+    private final Map<CollidableGroup, CollidableGroup[]> slices;
+
+    /**
+     * Constructs the facade and one empty environment per strip.
+     *
+     * @param minX       x of the left edge of the first strip
+     * @param stripWidth the width of each strip
+     * @param strips     the number of strips
+     * @param ghostWidth how far each strip sees into its neighbors
+     * @param indexes    creates the index of the facade and of each strip
+     */
+    PartitionedEnvironment(double minX, double stripWidth, int strips, double ghostWidth,
+                           Supplier<CollidableIndex> indexes) {
+        super(indexes.get());
+        this.strips = new GameEnvironment[strips];
+        for (int i = 0; i < strips; i++) {
+            this.strips[i] = new GameEnvironment(indexes.get());
+        }
+        this.minX = minX;
+        this.stripWidth = stripWidth;
+        this.ghostWidth = ghostWidth;
+        this.spans = new HashMap<>();
+        this.slices = new HashMap<>();
+    }
+
+    /**
+     * Returns the environment that the balls of a strip collide against.
+     *
+     * @param strip the strip index
+     * @return the strip's environment
+     */
+    GameEnvironment strip(int strip) {
+        return strips[strip];
+    }
+
+    /**
+     * Returns the strip that owns the given x-coordinate. Coordinates outside the
+     * world belong to the first or the last strip.
+     *
+     * @param x the x-coordinate
+     * @return the strip index
+     */
+    int stripOf(double x) {
+        int strip = (int) Math.floor((x - minX) / stripWidth);
+        return Math.max(0, Math.min(strips.length - 1, strip));
+    }
+
+    @Override
+    public void addCollidable(Collidable c) {
+        super.addCollidable(c);
+        int[] old = spans.remove(c);
+        if (old != null) {
+            for (int s = old[0]; s <= old[1]; s++) {
+                strips[s].removeCollidable(c);
+            }
+        }
+        int[] span = span(c);
+        spans.put(c, span);
+        for (int s = span[0]; s <= span[1]; s++) {
+            strips[s].addCollidable(c);
+        }
+    }
+
+    @Override
+    public void removeCollidable(Collidable c) {
+        super.removeCollidable(c);
+        int[] span = spans.remove(c);
+        if (span != null) {
+            for (int s = span[0]; s <= span[1]; s++) {
+                strips[s].removeCollidable(c);
+            }
+        }
+    }
+
+    @Override
+    public void updateCollidable(Collidable c) {
+        super.updateCollidable(c);
+        int[] old = spans.get(c);
+        if (old == null) {
+            return;
+        }
+        int[] span = span(c);
+        spans.put(c, span);
+        for (int s = Math.min(old[0], span[0]); s <= Math.max(old[1], span[1]); s++) {
+            boolean before = s >= old[0] && s <= old[1];
+            boolean after = s >= span[0] && s <= span[1];
+            if (before && after) {
+                strips[s].updateCollidable(c);
+            } else if (before) {
+                strips[s].removeCollidable(c);
+            } else if (after) {
+                strips[s].addCollidable(c);
+            }
+        }
+    }
+
+    @Override
+    public void addCollidableGroup(CollidableGroup group) {
+        super.addCollidableGroup(group);
+        if (slices.containsKey(group)) {
+            return;
+        }
+        CollidableGroup[] parts = new CollidableGroup[strips.length];
+        for (int s = 0; s < strips.length; s++) {
+            // The outer strips reach past the arena, as stripOf does
+            double from = s == 0 ? Double.NEGATIVE_INFINITY : minX + s * stripWidth - ghostWidth;
+            double to = s == strips.length - 1 ? Double.POSITIVE_INFINITY : minX + (s + 1) * stripWidth + ghostWidth;
+            parts[s] = group.slice(from, to);
+            if (parts[s] != null) {
+                strips[s].addCollidableGroup(parts[s]);
+            }
+        }
+        slices.put(group, parts);
+    }
+
+    @Override
+    public void removeCollidableGroup(CollidableGroup group) {
+        super.removeCollidableGroup(group);
+        CollidableGroup[] parts = slices.remove(group);
+        if (parts != null) {
+            for (int s = 0; s < strips.length; s++) {
+                if (parts[s] != null) {
+                    strips[s].removeCollidableGroup(parts[s]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void prepare() {
+        super.prepare();
+        for (GameEnvironment strip : strips) {
+            strip.prepare();
+        }
+    }
+
+    @Override
+    public void setMaxBounces(int maxBounces) {
+        super.setMaxBounces(maxBounces);
+        for (GameEnvironment strip : strips) {
+            strip.setMaxBounces(maxBounces);
+        }
+    }
+
+    /**
+     * Returns the combined bounce counters of all strips.
+     *
+     * @return a snapshot of the continuous collision detection statistics
+     */
+    @Override
+    public CcdStatistics getCcdStatistics() {
+        CcdStatistics total = new CcdStatistics(getMaxBounces());
+        for (GameEnvironment strip : strips) {
+            total.add(strip.getCcdStatistics());
+        }
+        return total;
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // The first and last strips whose extended range (the strip plus its ghost zones) the collidable overlaps
+    private int[] span(Collidable c) {
+        Rectangle r = c.getCollisionRectangle();
+        return new int[] {stripOf(r.getUpperLeft().getX() - ghostWidth),
+                stripOf(r.getUpperLeft().getX() + r.getWidth() + ghostWidth)};
+    }
+}
@@ -0,0 +1,302 @@
+package game;
+
+import biuoop.DrawSurface;
+import geometry.Point;
+import sprites.Ball;
+import sprites.BallSystem;
+
+import java.awt.Color;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The {@code PartitionedWorld} class simulates a wide arena split into vertical
+ * strips, each with its own {@link BallSystem} and its own {@link GameEnvironment}.
+ * A tick runs in two phases. First, every strip's worker thread moves the balls
+ * of the strip that hit nothing ({@link BallSystem#stepFree()}), which only
+ * reads the strip's environment. Then, once all workers are done, the game
+ * thread steps the balls that hit something, strip by strip
+ * ({@link BallSystem#stepContacts()}), and hands each ball that ended up in
+ * another strip to that strip. Hits and the changes they make therefore never
+ * run next to a worker, and the result is deterministic for a given number of
+ * strips; with one strip it is the same as a serial {@link BallSystem}.
+ */
+public class PartitionedWorld implements Sprite, AutoCloseable {
+    private final PartitionedEnvironment environment;
+    private final Strip[] strips;
+    private final Phaser phaser;
+    private final Thread[] workers;
+    private final AtomicReference<Throwable> failure;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a world of {@code strips} strips covering {@code [minX, maxX)},
+     * and starts one worker thread per strip.
+     *
+     * @param minX       x of the left edge of the arena
+     * @param maxX       x of the right edge of the arena
+     * @param strips     the number of strips (at least 1)
+     * @param ghostWidth how far each strip sees into its neighbors; at least the largest
+     *                   distance a ball travels in one step plus its radius
+     * @param indexes    creates the index of the facade and of each strip
+     */
+    public PartitionedWorld(double minX, double maxX, int strips, double ghostWidth,
+                            Supplier<CollidableIndex> indexes) {
+        if (strips < 1) {
+            throw new IllegalArgumentException("strips must be at least 1");
+        }
+        if (maxX <= minX) {
+            throw new IllegalArgumentException("maxX must be greater than minX");
+        }
+        this.environment = new PartitionedEnvironment(minX, (maxX - minX) / strips, strips, ghostWidth, indexes);
+        this.strips = new Strip[strips];
+        for (int i = 0; i < strips; i++) {
+            this.strips[i] = new Strip(environment.strip(i));
+        }
+        this.failure = new AtomicReference<>();
+        this.phaser = new Phaser(strips + 1);
+        this.workers = new Thread[strips];
+        for (int i = 0; i < strips; i++) {
+            Strip strip = this.strips[i];
+            workers[i] = new Thread(() -> work(strip), "strip-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Returns the environment facade of the whole arena. Collidables and
+     * collidable groups added to it are seen by every strip they reach.
+     *
+     * @return the environment facade
+     */
+    public GameEnvironment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Returns the number of strips.
+     *
+     * @return the strip count
+     */
+    public int getStripCount() {
+        return strips.length;
+    }
+
+    /**
+     * Adds a ball to the strip that contains its center. Must be called on the
+     * game thread; a ball added by a hit listener during a tick is stepped in
+     * the same tick if its strip has not been stepped yet.
+     *
+     * @param ball the ball to add
+     */
+    public void addBall(Ball ball) {
+        strips[environment.stripOf(ball.getCenter().getX())].balls.add(ball);
+    }
+
+    /**
+     * Adds a ball, given by its state, to the strip that contains its center.
+     *
+     * @param cx the x-coordinate of the center
+     * @param cy the y-coordinate of the center
+     * @param vx the horizontal velocity
+     * @param vy the vertical velocity
+     * @param r  the radius
+     * @param c  the color
+     */
+    public void addBall(double cx, double cy, double vx, double vy, int r, Color c) {
+        Ball ball = new Ball(new Point(cx, cy), r, c);
+        ball.setVelocity(vx, vy);
+        addBall(ball);
+    }
+
+    /**
+     * Returns the number of balls in play.
+     *
+     * @return the ball count
+     */
+    public int getBallCount() {
+        int total = 0;
+        for (Strip strip : strips) {
+            total += strip.balls.size();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of balls currently owned by a strip.
+     *
+     * @param strip the strip index
+     * @return the strip's ball count
+     */
+    public int getBallCount(int strip) {
+        return strips[strip].balls.size();
+    }
+
+    /**
+     * Returns how many times a ball has crossed from one strip to another.
+     *
+     * @return the total number of handoffs
+     */
+    public long getHandoffs() {
+        long total = 0;
+        for (Strip strip : strips) {
+            total += strip.handoffs;
+        }
+        return total;
+    }
+
+    /**
+     * Returns a hash of the balls of every strip, strip by strip (see
+     * {@link BallSystem#stateHash()}). With one strip it equals the hash of a
+     * {@link BallSystem} holding the same balls.
+     *
+     * @return the state hash
+     */
+    public int stateHash() {
+        if (strips.length == 1) {
+            return strips[0].balls.stateHash();
+        }
+        int h = strips.length;
+        for (Strip strip : strips) {
+            h = 31 * h + strip.balls.stateHash();
+        }
+        return h;
+    }
+
+    /**
+     * Runs one tick: the workers move the balls that hit nothing, then the game
+     * thread steps the others and hands the balls over between strips.
+     */
+    @Override
+    public void timePassed() {
+        if (closed) {
+            throw new IllegalStateException("world is closed");
+        }
+        phaser.arriveAndAwaitAdvance();
+        phaser.arriveAndAwaitAdvance();
+        rethrow();
+        for (Strip strip : strips) {
+            strip.balls.stepContacts();
+        }
+        for (Strip strip : strips) {
+            strip.handOff();
+        }
+    }
+
+    /**
+     * Draws the balls of every strip.
+     *
+     * @param d the {@link DrawSurface} to draw on
+     */
+    @Override
+    public void drawOn(DrawSurface d) {
+        drawOn(d, 1.0);
+    }
+
+    /**
+     * Draws the balls of every strip, interpolated between their previous and
+     * current positions.
+     *
+     * @param d     the {@link DrawSurface} to draw on
+     * @param alpha how far to interpolate, from 0 (previous state) to 1 (current state)
+     */
+    @Override
+    public void drawOn(DrawSurface d, double alpha) {
+        for (Strip strip : strips) {
+            strip.balls.drawOn(d, alpha);
+        }
+    }
+
+    /**
+     * Adds the world to the game as a single sprite.
+     *
+     * @param game the game to add the world to
+     */
+    public void addToGame(Game game) {
+        game.addSprite(this, Layer.BALLS);
+    }
+
+    /**
+     * Stops the worker threads. The world can no longer be stepped afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        phaser.arriveAndAwaitAdvance();
+        phaser.arriveAndDeregister();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // The worker loop: wait for a tick to start, move the strip's free balls, and report that it is done.
+    private void work(Strip strip) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            if (closed) {
+                phaser.arriveAndDeregister();
+                return;
+            }
+            try {
+                strip.balls.stepFree();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    // Throws the first failure of a worker during the tick, if any
+    private void rethrow() {
+        Throwable t = failure.getAndSet(null);
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * The {@code Strip} class holds the balls of one strip.
+     */
+    private final class Strip {
+        private final BallSystem balls;
+        private long handoffs;
+
+        /**
+         * @param environment the environment of the strip
+         */
+        private Strip(GameEnvironment environment) {
+            this.balls = new BallSystem(environment);
+        }
+
+        /**
+         * Hands each ball that ended up in another strip to that strip.
+         */
+        private void handOff() {
+            for (int i = balls.size() - 1; i >= 0; i--) {
+                Strip owner = strips[environment.stripOf(balls.getX(i))];
+                if (owner != this) {
+                    Ball ball = balls.handle(i);
+                    balls.remove(i);
+                    owner.balls.add(ball);
+                    handoffs++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package game;
+
+import biuoop.KeyboardSensor;
+
+import java.util.List;
+
+/**
+ * The {@code RecordingKeyboard} class wraps a live {@link KeyboardSensor} and
+ * records the tracked keys into an {@link InputRecording}. The tracked keys are
+ * sampled once at the start of each tick, and every query during the tick
+ * answers from that sample, so the game sees exactly what is recorded even if
+ * a key changes in the middle of the tick. Other keys (such as pause) are read
+ * live and are not recorded.
+ */
+public class RecordingKeyboard implements KeyboardSensor {
+    private final KeyboardSensor live;
+    private final InputRecording recording;
+    private int mask;
+
+    /**
+     * Constructs a recording keyboard.
+     *
+     * @param live the keyboard to read
+     * @param seed the seed of the game being recorded
+     * @param keys the keys that affect the game, to sample and record
+     */
+    public RecordingKeyboard(KeyboardSensor live, long seed, List<String> keys) {
+        this.live = live;
+        this.recording = new InputRecording(seed, keys);
+    }
+
+    /**
+     * Returns the recording made so far.
+     *
+     * @return the recording made so far
+     */
+    public InputRecording getRecording() {
+        return recording;
+    }
+
+    /**
+     * Samples the tracked keys for the coming tick.
+     */
+    public void beginTick() {
+        List<String> keys = recording.getKeys();
+        mask = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (live.isPressed(keys.get(i))) {
+                mask |= 1 << i;
+            }
+        }
+    }
+
+    /**
+     * Records the tick that just ended.
+     *
+     * @param stateHash the game's state hash after the tick
+     */
+    public void endTick(int stateHash) {
+        recording.append(mask, stateHash);
+    }
+
+    @Override
+    public boolean isPressed(String key) {
+        int index = recording.getKeys().indexOf(key);
+        if (index < 0) {
+            return live.isPressed(key);
+        }
+        return (mask & (1 << index)) != 0;
+    }
+}
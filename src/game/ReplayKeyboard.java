@@ -0,0 +1,47 @@
+package game;
+
+import biuoop.KeyboardSensor;
+
+/**
+ * The {@code ReplayKeyboard} class is a {@link KeyboardSensor} that plays back
+ * the keys of an {@link InputRecording}, one tick at a time. Keys that were not
+ * recorded are never pressed, and after the last recorded tick no key is pressed.
+ */
+public class ReplayKeyboard implements KeyboardSensor {
+    private final InputRecording recording;
+    private int tick;
+
+    /**
+     * Constructs a keyboard that plays back the given recording from its first tick.
+     *
+     * @param recording the recording to play back
+     */
+    public ReplayKeyboard(InputRecording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Returns the tick being played back.
+     *
+     * @return the tick being played back
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Moves on to the next recorded tick.
+     */
+    public void advance() {
+        tick++;
+    }
+
+    @Override
+    public boolean isPressed(String key) {
+        if (tick >= recording.getTickCount()) {
+            return false;
+        }
+        int index = recording.getKeys().indexOf(key);
+        return index >= 0 && (recording.getMask(tick) & (1 << index)) != 0;
+    }
+}
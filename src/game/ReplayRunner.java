@@ -0,0 +1,103 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The {@code ReplayRunner} class replays an {@link InputRecording} on a
+ * headless {@link Game} as fast as the CPU allows. The game is seeded like the
+ * recorded one, plays the recorded level, and is fed the recorded keys through a {@link ReplayKeyboard};
+ * after every tick its state hash is compared with the recorded hash, and the
+ * replay stops at the first tick where they differ.
+ */
+public class ReplayRunner {
+    private final InputRecording recording;
+    private int ticks;
+    private int divergedAt;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a runner for a recording.
+     *
+     * @param recording the recording to replay
+     */
+    public ReplayRunner(InputRecording recording) {
+        this.recording = recording;
+        this.divergedAt = -1;
+    }
+
+    /**
+     * Replays the whole recording. A level file that has changed since the game
+     * was recorded is reported on the standard error stream, and the replay is
+     * likely to diverge.
+     *
+     * @return true if every tick matched the recorded state hash
+     * @throws IOException if the recorded level cannot be loaded
+     */
+    public boolean run() throws IOException {
+        ReplayKeyboard keyboard = new ReplayKeyboard(recording);
+        Game game = new Game(keyboard);
+        game.setSeed(recording.getSeed());
+        if (recording.getLevel() != null) {
+            if (!recording.isLevelUnchanged()) {
+                System.err.println("The level " + recording.getLevel() + " has changed since it was recorded");
+            }
+            game.setLevel(LevelFile.load(Paths.get(recording.getLevel())));
+        }
+        game.initialize();
+
+        long start = System.nanoTime();
+        ticks = 0;
+        divergedAt = -1;
+        int total = recording.getTickCount();
+        while (ticks < total) {
+            boolean goesOn = game.tick();
+            if (game.stateHash() != recording.getHash(ticks) || (!goesOn && ticks < total - 1)) {
+                divergedAt = ticks;
+                break;
+            }
+            ticks++;
+            keyboard.advance();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return divergedAt < 0;
+    }
+
+    /**
+     * Returns the first tick whose state differed from the recording, or -1 if none did.
+     *
+     * @return the first tick whose state differed from the recording, or -1 if none did
+     */
+    public int getDivergedAt() {
+        return divergedAt;
+    }
+
+    /**
+     * Returns the number of ticks that matched the recording.
+     *
+     * @return the number of ticks that matched the recording
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the replay speed in ticks per second.
+     *
+     * @return the replay speed in ticks per second
+     */
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the replay.
+     *
+     * @return a one-line summary of the replay
+     */
+    public String report() {
+        String result = divergedAt < 0 ? "matched" : "DIVERGED at tick " + divergedAt;
+        return String.format("replay %s: %d/%d ticks, %.0f ticks/s, seed=%d",
+                result, ticks, recording.getTickCount(), getTicksPerSecond(), recording.getSeed());
+    }
+}
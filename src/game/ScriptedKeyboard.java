@@ -0,0 +1,97 @@
+package game;
+
+import biuoop.KeyboardSensor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code ScriptedKeyboard} class is a {@link KeyboardSensor} whose keys are
+ * pressed according to a script of tick ranges instead of by a person, so a
+ * game can be played without a window. The keyboard keeps its own tick
+ * counter, which the driver moves forward with {@link #advance()} after
+ * each game update.
+ */
+public class ScriptedKeyboard implements KeyboardSensor {
+    private final List<String> keys;
+    private final List<long[]> ranges;
+    private long tick;
+    private long period;
+
+    /**
+     * Constructs a keyboard on which no key is ever pressed.
+     */
+    public ScriptedKeyboard() {
+        this.keys = new ArrayList<>();
+        this.ranges = new ArrayList<>();
+    }
+
+    /**
+     * Holds a key down from one tick up to, but not including, another.
+     *
+     * @param key      the key, for example {@link KeyboardSensor#LEFT_KEY}
+     * @param fromTick the first tick on which the key is pressed
+     * @param toTick   the first tick on which the key is released again
+     * @return this keyboard, so that presses can be chained
+     */
+    public ScriptedKeyboard press(String key, long fromTick, long toTick) {
+        if (toTick < fromTick) {
+            throw new IllegalArgumentException("toTick must not be before fromTick");
+        }
+        keys.add(key);
+        ranges.add(new long[] {fromTick, toTick});
+        return this;
+    }
+
+    /**
+     * Repeats the script every {@code period} ticks: on tick {@code t} the keys
+     * are pressed as on tick {@code t % period}.
+     *
+     * @param period the length of the script in ticks, or 0 to play it once
+     * @return this keyboard
+     */
+    public ScriptedKeyboard loop(long period) {
+        if (period < 0) {
+            throw new IllegalArgumentException("period must not be negative");
+        }
+        this.period = period;
+        return this;
+    }
+
+    /**
+     * Returns the current tick of the script.
+     *
+     * @return the tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Moves the script to the given tick.
+     *
+     * @param tick the tick to move to
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Moves the script forward by one tick.
+     */
+    public void advance() {
+        tick++;
+    }
+
+    @Override
+    public boolean isPressed(String key) {
+        long t = period > 0 ? tick % period : tick;
+        for (int i = 0; i < keys.size(); i++) {
+            long[] range = ranges.get(i);
+            if (t >= range[0] && t < range[1] && keys.get(i).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
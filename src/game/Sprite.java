@@ -16,6 +16,35 @@ public interface Sprite {
      */
     void drawOn(DrawSurface d);
 
+    /**
+     * Draws the sprite part of the way between its state before and after the
+     * last {@link #timePassed()}, so that motion looks smooth when frames are
+     * drawn at a different rate than the game is updated.
+     * Sprites that keep no previous state simply draw their current state.
+     *
+     * @param d     the {@link DrawSurface} to draw the sprite on
+     * @param alpha how far to interpolate, from 0 (previous state) to 1 (current state)
+     */
+    default void drawOn(DrawSurface d, double alpha) {
+        drawOn(d);
+    }
+
+    /**
+     * Draws the part of the sprite that lies in an area of the surface, for a
+     * surface that only shows that area. Sprites made of many parts, such as a
+     * table of blocks, draw only the parts that overlap the area; the others
+     * draw everything and leave the clipping to the surface.
+     *
+     * @param d the {@link DrawSurface} to draw the sprite on
+     * @param x the x-coordinate of the area's upper-left corner
+     * @param y the y-coordinate of the area's upper-left corner
+     * @param w the width of the area
+     * @param h the height of the area
+     */
+    default void drawArea(DrawSurface d, int x, int y, int w, int h) {
+        drawOn(d);
+    }
+
     /**
      * Notifies the sprite that time has passed.
      * Used to update the sprite's state or position.
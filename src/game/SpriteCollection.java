@@ -3,47 +3,102 @@ package game;
 import biuoop.DrawSurface;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The {@code SpriteCollection} class manages a list of {@link Sprite} objects.
- * It is responsible for updating and drawing all sprites in the game.
+ * It is responsible for updating and drawing all sprites in the game, layer by
+ * layer from {@link Layer#BACKGROUND} up to {@link Layer#HUD}. Sprites added or
+ * removed while the collection is being iterated are queued and applied, in
+ * order, once the iteration is over.
  */
 public class SpriteCollection {
-    private final List<Sprite> sprites;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Layer[] LAYERS = Layer.values();
+
+    private final Sprite[][] layers;
+    private final int[] counts;
+    private final Map<Sprite, Slot> slots;
+    private final List<Sprite> pendingSprites;
+    private final List<Layer> pendingLayers;
+    private int iterating;
 
     /**
      * Constructs an empty {@code SpriteCollection}.
      */
     public SpriteCollection() {
-        this.sprites = new ArrayList<>();
+        this.layers = new Sprite[LAYERS.length][INITIAL_CAPACITY];
+        this.counts = new int[LAYERS.length];
+        this.slots = new HashMap<>();
+        this.pendingSprites = new ArrayList<>();
+        this.pendingLayers = new ArrayList<>();
     }
 
     /**
-     * Adds a sprite to the collection.
+     * Adds a sprite to the {@link Layer#WORLD} layer.
      *
      * @param s the {@link Sprite} to add
      */
     public void addSprite(Sprite s) {
-        this.sprites.add(s);
+        addSprite(s, Layer.WORLD);
+    }
+
+    /**
+     * Adds a sprite to a layer. A sprite that is already in the collection is
+     * not added again. During an update or a draw, the sprite is added once it is over.
+     *
+     * @param s     the {@link Sprite} to add
+     * @param layer the layer to draw the sprite in
+     */
+    public void addSprite(Sprite s, Layer layer) {
+        if (iterating > 0) {
+            defer(s, layer);
+        } else {
+            insert(s, layer);
+        }
     }
 
     /**
-     * Removes a sprite from the collection.
+     * Removes a sprite from the collection. During an update or a draw, the
+     * sprite is removed once it is over.
      *
      * @param s the {@link Sprite} to remove
      */
     public void removeSprite(Sprite s) {
-        this.sprites.remove(s);
+        if (iterating > 0) {
+            defer(s, null);
+        } else {
+            delete(s);
+        }
+    }
+
+    /**
+     * Returns the number of sprites in the collection.
+     *
+     * @return the sprite count
+     */
+    public int size() {
+        return slots.size();
     }
 
     /**
      * Notifies all sprites that time has passed by calling {@code timePassed()} on each.
+     * Sprites added or removed meanwhile are added or removed at the end of the tick.
      */
     public void notifyAllTimePassed() {
-        List<Sprite> spritesCopy = new ArrayList<>(this.sprites);
-        for (Sprite s : spritesCopy) {
-            s.timePassed();
+        iterating++;
+        try {
+            for (int layer = 0; layer < LAYERS.length; layer++) {
+                Sprite[] sprites = layers[layer];
+                for (int i = 0; i < counts[layer]; i++) {
+                    sprites[i].timePassed();
+                }
+            }
+        } finally {
+            endIteration();
         }
     }
 
@@ -53,9 +108,111 @@ public class SpriteCollection {
      * @param d the {@link DrawSurface} to draw on
      */
     public void drawAllOn(DrawSurface d) {
-        List<Sprite> spritesCopy = new ArrayList<>(this.sprites);
-        for (Sprite s : spritesCopy) {
-            s.drawOn(d);
+        iterating++;
+        try {
+            for (int layer = 0; layer < LAYERS.length; layer++) {
+                Sprite[] sprites = layers[layer];
+                for (int i = 0; i < counts[layer]; i++) {
+                    sprites[i].drawOn(d);
+                }
+            }
+        } finally {
+            endIteration();
+        }
+    }
+
+    /**
+     * Draws all sprites, interpolated between their previous and current states,
+     * by calling {@code drawOn(d, alpha)} on each.
+     *
+     * @param d     the {@link DrawSurface} to draw on
+     * @param alpha how far to interpolate, from 0 (previous state) to 1 (current state)
+     */
+    public void drawAllOn(DrawSurface d, double alpha) {
+        iterating++;
+        try {
+            for (int layer = 0; layer < LAYERS.length; layer++) {
+                Sprite[] sprites = layers[layer];
+                for (int i = 0; i < counts[layer]; i++) {
+                    sprites[i].drawOn(d, alpha);
+                }
+            }
+        } finally {
+            endIteration();
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private void insert(Sprite s, Layer layer) {
+        if (slots.containsKey(s)) {
+            return;
+        }
+        int l = layer.ordinal();
+        if (counts[l] == layers[l].length) {
+            layers[l] = Arrays.copyOf(layers[l], counts[l] * 2);
+        }
+        int index = counts[l]++;
+        layers[l][index] = s;
+        slots.put(s, new Slot(l, index));
+    }
+
+    // Moves the last sprite of the layer into the freed slot
+    private void delete(Sprite s) {
+        Slot slot = slots.remove(s);
+        if (slot == null) {
+            return;
+        }
+        Sprite[] sprites = layers[slot.layer];
+        int last = --counts[slot.layer];
+        if (slot.index != last) {
+            Sprite moved = sprites[last];
+            sprites[slot.index] = moved;
+            slots.get(moved).index = slot.index;
+        }
+        sprites[last] = null;
+    }
+
+    // A null layer marks a removal
+    private void defer(Sprite s, Layer layer) {
+        pendingSprites.add(s);
+        pendingLayers.add(layer);
+    }
+
+    // Applies the queued additions and removals once the outermost iteration ends
+    private void endIteration() {
+        iterating--;
+        if (iterating > 0 || pendingSprites.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < pendingSprites.size(); i++) {
+            Layer layer = pendingLayers.get(i);
+            if (layer != null) {
+                insert(pendingSprites.get(i), layer);
+            } else {
+                delete(pendingSprites.get(i));
+            }
+        }
+        pendingSprites.clear();
+        pendingLayers.clear();
+    }
+
+    /**
+     * The {@code Slot} class records where a sprite is stored.
+     */
+    private static final class Slot {
+        private final int layer;
+        private int index;
+
+        /**
+         * Constructs the record of a sprite's place.
+         *
+         * @param layer the layer's ordinal
+         * @param index the index within the layer
+         */
+        private Slot(int layer, int index) {
+            this.layer = layer;
+            this.index = index;
         }
     }
 }
@@ -0,0 +1,204 @@
+package game;
+
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code StaticLayer} class draws the sprites that rarely change, such as
+ * the background, the walls and the blocks, into a cached off-screen image, and
+ * draws the image in a single {@code drawImage} call per frame. Only the areas
+ * marked with {@link #invalidate(int, int, int, int)} are drawn again, each
+ * with {@link Sprite#drawArea}, so that a large table of blocks only draws the
+ * blocks of the area.
+ */
+public class StaticLayer implements Sprite {
+    private static final int BUFFERS = 2;
+    private static final int MAX_DIRTY_AREAS = 8;
+
+    private final int width;
+    private final int height;
+    private final List<Sprite> sprites;
+    private final BufferedImage[] images;
+    private final List<List<Rectangle>> dirty;
+    private int current;
+    private long redraws;
+
+    /**
+     * Constructs an empty layer of the given size.
+     *
+     * @param width  the width of the layer in pixels
+     * @param height the height of the layer in pixels
+     */
+    public StaticLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.sprites = new ArrayList<>();
+        this.images = new BufferedImage[BUFFERS];
+        this.dirty = new ArrayList<>();
+        for (int i = 0; i < BUFFERS; i++) {
+            images[i] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            dirty.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds a sprite on top of the sprites already in the layer, and marks the
+     * area it covers dirty: its collision rectangle when it is a {@link Collidable},
+     * and the whole layer otherwise.
+     *
+     * @param s the sprite to add
+     */
+    public void addSprite(Sprite s) {
+        sprites.add(s);
+        if (s instanceof Collidable) {
+            invalidate(((Collidable) s).getCollisionRectangle());
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Removes a sprite from the layer and marks the area it covered dirty.
+     *
+     * @param s the sprite to remove
+     * @return true if the sprite was in the layer
+     */
+    public boolean removeSprite(Sprite s) {
+        if (!sprites.remove(s)) {
+            return false;
+        }
+        if (s instanceof Collidable) {
+            invalidate(((Collidable) s).getCollisionRectangle());
+        } else {
+            invalidateAll();
+        }
+        return true;
+    }
+
+    /**
+     * Marks an area dirty, so it is drawn again before the next frame.
+     *
+     * @param x the x-coordinate of the area's upper-left corner
+     * @param y the y-coordinate of the area's upper-left corner
+     * @param w the width of the area
+     * @param h the height of the area
+     */
+    public void invalidate(int x, int y, int w, int h) {
+        Rectangle area = new Rectangle(x, y, w, h).intersection(new Rectangle(0, 0, width, height));
+        if (area.isEmpty()) {
+            return;
+        }
+        for (List<Rectangle> areas : dirty) {
+            areas.add(area);
+            if (areas.size() > MAX_DIRTY_AREAS) {
+                // Too many small areas: redraw their bounding box in one pass instead
+                Rectangle union = new Rectangle(areas.get(0));
+                for (Rectangle r : areas) {
+                    union.add(r);
+                }
+                areas.clear();
+                areas.add(union);
+            }
+        }
+    }
+
+    /**
+     * Marks the area of a rectangle dirty, including the outline drawn around it.
+     *
+     * @param r the rectangle
+     */
+    public void invalidate(geometry.Rectangle r) {
+        int x = (int) Math.floor(r.getUpperLeft().getX());
+        int y = (int) Math.floor(r.getUpperLeft().getY());
+        int right = (int) Math.ceil(r.getUpperLeft().getX() + r.getWidth());
+        int bottom = (int) Math.ceil(r.getUpperLeft().getY() + r.getHeight());
+        invalidate(x, y, right - x + 1, bottom - y + 1);
+    }
+
+    /**
+     * Marks the whole layer dirty.
+     */
+    public void invalidateAll() {
+        for (List<Rectangle> areas : dirty) {
+            areas.clear();
+            areas.add(new Rectangle(0, 0, width, height));
+        }
+    }
+
+    /**
+     * Brings every image up to date now, instead of before the frames that
+     * show them, so that a level prepared in advance draws its first frames
+     * with a single copy.
+     */
+    public void prepare() {
+        for (int i = 0; i < BUFFERS; i++) {
+            List<Rectangle> areas = dirty.get(i);
+            if (!areas.isEmpty()) {
+                repaint(images[i], areas);
+                areas.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns how many dirty areas have been drawn again so far.
+     *
+     * @return the number of redrawn areas
+     */
+    public long getRedrawCount() {
+        return redraws;
+    }
+
+    /**
+     * Brings the next image up to date and draws it.
+     *
+     * @param d the {@link DrawSurface} to draw on
+     */
+    @Override
+    public void drawOn(DrawSurface d) {
+        current = (current + 1) % BUFFERS;
+        List<Rectangle> areas = dirty.get(current);
+        if (!areas.isEmpty()) {
+            repaint(images[current], areas);
+            areas.clear();
+        }
+        d.drawImage(0, 0, images[current]);
+    }
+
+    /**
+     * Passes the time on to the sprites of the layer.
+     */
+    @Override
+    public void timePassed() {
+        for (int i = 0; i < sprites.size(); i++) {
+            sprites.get(i).timePassed();
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Clears each dirty area of the image and draws the part of every sprite that lies in it
+    private void repaint(BufferedImage image, List<Rectangle> areas) {
+        Graphics2D g = image.createGraphics();
+        try {
+            for (Rectangle area : areas) {
+                g.setClip(area);
+                g.setColor(Color.BLACK);
+                g.fillRect(area.x, area.y, area.width, area.height);
+                ImageDrawSurface surface = new ImageDrawSurface(g, width, height, area);
+                for (Sprite s : sprites) {
+                    s.drawArea(surface, area.x, area.y, area.width, area.height);
+                }
+                redraws++;
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package game;
+
+import geometry.Intersections;
+import geometry.Rectangle;
+import geometry.SegmentHit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code UniformGridIndex} is a {@link CollidableIndex} that buckets
+ * collidables into a uniform grid of square cells (a spatial hash).
+ * A trajectory query walks only the cells the trajectory passes through,
+ * in order, and stops as soon as the best hit found so far lies inside
+ * the cells already visited.
+ * Collidables that are not fully inside the grid area are kept in an
+ * overflow list that is tested on every query.
+ */
+public class UniformGridIndex implements CollidableIndex {
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<Entry>[] cells;
+    private final List<Entry> overflow;
+    private final Map<Collidable, Entry> entries;
+    private int queryStamp;
+    private final Best best;
+    private long nextSequence;
+
+    /**
+     * Holds the grid placement of a single collidable.
+     */
+    private static final class Entry {
+        private final Collidable collidable;
+        private int minCol;
+        private int minRow;
+        private int maxCol;
+        private int maxRow;
+        private boolean inOverflow;
+        private int stamp;
+        private final long sequence;
+
+        /**
+         * Constructs an entry for the given collidable.
+         *
+         * @param collidable the indexed collidable
+         * @param sequence   the insertion order of the collidable
+         */
+        private Entry(Collidable collidable, long sequence) {
+            this.collidable = collidable;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Constructs a grid index covering the given area.
+     *
+     * @param originX  x of the upper-left corner of the grid area
+     * @param originY  y of the upper-left corner of the grid area
+     * @param width    width of the grid area
+     * @param height   height of the grid area
+     * @param cellSize side length of each square cell
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public UniformGridIndex(double originX, double originY, double width, double height, double cellSize) {
+        if (cellSize <= 0 || width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Grid dimensions must be positive");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cells = new List[columns * rows];
+        this.overflow = new ArrayList<>();
+        this.entries = new LinkedHashMap<>();
+        this.best = new Best();
+    }
+
+    @Override
+    public void add(Collidable c) {
+        if (entries.containsKey(c)) {
+            return;
+        }
+        Entry entry = new Entry(c, nextSequence++);
+        entries.put(c, entry);
+        place(entry);
+    }
+
+    @Override
+    public void remove(Collidable c) {
+        Entry entry = entries.remove(c);
+        if (entry != null) {
+            unplace(entry);
+        }
+    }
+
+    @Override
+    public void update(Collidable c) {
+        Entry entry = entries.get(c);
+        if (entry != null) {
+            unplace(entry);
+            place(entry);
+        }
+    }
+
+    @Override
+    public Collidable castSegment(double x0, double y0, double x1, double y1, SegmentHit out) {
+        out.clear();
+        if (entries.isEmpty()) {
+            return null;
+        }
+        queryStamp++;
+        Best best = this.best;
+        best.reset();
+        traverse(x0, y0, x1, y1, best);
+        return best.finish(x0, y0, x1, y1, out);
+    }
+
+    @Override
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        return !entries.isEmpty() && traverse(x0, y0, x1, y1, null);
+    }
+
+    @Override
+    public boolean containsAny(double x, double y) {
+        return collidableAt(x, y) != null;
+    }
+
+    @Override
+    public Collidable collidableAt(double x, double y) {
+        Entry found = null;
+        for (Entry e : overflow) {
+            if ((found == null || e.sequence < found.sequence) && e.collidable.getCollisionRectangle().contains(x, y)) {
+                found = e;
+            }
+        }
+        int col = (int) Math.floor((x - originX) / cellSize);
+        int row = (int) Math.floor((y - originY) / cellSize);
+        // A point on a cell border may belong to the neighbouring cell as well
+        for (int r = row - 1; r <= row; r++) {
+            for (int c = col - 1; c <= col; c++) {
+                if (r < 0 || r >= rows || c < 0 || c >= columns || cells[r * columns + c] == null) {
+                    continue;
+                }
+                for (Entry e : cells[r * columns + c]) {
+                    if ((found == null || e.sequence < found.sequence)
+                            && e.collidable.getCollisionRectangle().contains(x, y)) {
+                        found = e;
+                    }
+                }
+            }
+        }
+        return found == null ? null : found.collidable;
+    }
+
+    @Override
+    public Collidable[] toArray() {
+        return entries.keySet().toArray(new Collidable[0]);
+    }
+
+    /**
+     * Returns the number of cells along the x-axis.
+     *
+     * @return the column count
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of cells along the y-axis.
+     *
+     * @return the row count
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Tracks the closest hit found during a single query.
+     */
+    private static final class Best {
+        private Collidable collidable;
+        private double toi;
+        private long sequence;
+
+        /**
+         * Clears the best hit before a new query.
+         */
+        private void reset() {
+            collidable = null;
+            toi = Double.MAX_VALUE;
+            sequence = Long.MAX_VALUE;
+        }
+
+        /**
+         * Fills in the full hit record for the winning collidable.
+         *
+         * @param x0  x of the trajectory start
+         * @param y0  y of the trajectory start
+         * @param x1  x of the trajectory end
+         * @param y1  y of the trajectory end
+         * @param out the record that receives the hit
+         * @return the winning collidable, or {@code null} if nothing was hit
+         */
+        private Collidable finish(double x0, double y0, double x1, double y1, SegmentHit out) {
+            if (collidable == null || !collidable.getCollisionRectangle().intersect(x0, y0, x1, y1, out)) {
+                return null;
+            }
+            return collidable;
+        }
+    }
+
+    /**
+     * Walks the cells along a segment with an Amanatides-Woo DDA.
+     * With a {@code best} record, the closest hit is collected into it and the
+     * walk stops once no later cell can hold a closer one. Without one, the walk
+     * only looks for any hit and changes no state, so it is safe for concurrent readers.
+     *
+     * @param x0   x of the segment start
+     * @param y0   y of the segment start
+     * @param x1   x of the segment end
+     * @param y1   y of the segment end
+     * @param best the record of the closest hit, or {@code null} to look for any hit
+     * @return true if a hit was found while looking for any hit
+     */
+    private boolean traverse(double x0, double y0, double x1, double y1, Best best) {
+        for (Entry e : overflow) {
+            if (visit(e, x0, y0, x1, y1, best)) {
+                return true;
+            }
+        }
+
+        // Clip the trajectory against the grid area (parametric t in [0, 1]), with the kernel's
+        // tolerance, so that a trajectory that only touches the grid's edge or corner still counts
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double span = Math.max(Math.abs(dx), Math.abs(dy));
+        if (span == 0) {
+            return false;
+        }
+        double tol = Intersections.EPSILON / span;
+        double tEnter = 0;
+        double tExit = 1;
+        double maxX = originX + columns * cellSize;
+        double maxY = originY + rows * cellSize;
+        if (dx == 0) {
+            if (x0 < originX - Intersections.EPSILON || x0 > maxX + Intersections.EPSILON) {
+                return false;
+            }
+        } else {
+            double t1 = (originX - x0) / dx;
+            double t2 = (maxX - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y0 < originY - Intersections.EPSILON || y0 > maxY + Intersections.EPSILON) {
+                return false;
+            }
+        } else {
+            double t1 = (originY - y0) / dy;
+            double t2 = (maxY - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit + tol) {
+            return false;
+        }
+
+        // Amanatides-Woo traversal of the cells along the clipped trajectory
+        int col = clamp((int) Math.floor((x0 + dx * tEnter - originX) / cellSize), columns);
+        int row = clamp((int) Math.floor((y0 + dy * tEnter - originY) / cellSize), rows);
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        double tDeltaX = stepX != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = stepY != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double tMaxX = stepX != 0
+                ? (originX + (col + (stepX > 0 ? 1 : 0)) * cellSize - x0) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = stepY != 0
+                ? (originY + (row + (stepY > 0 ? 1 : 0)) * cellSize - y0) / dy : Double.POSITIVE_INFINITY;
+
+        while (true) {
+            if (visitCell(col, row, x0, y0, x1, y1, best)) {
+                return true;
+            }
+            double tCellExit = Math.min(tMaxX, tMaxY);
+            // A later cell may still hold a hit at exactly tCellExit that was added earlier
+            if (best != null && best.collidable != null && best.toi < tCellExit) {
+                return false;
+            }
+            if (tCellExit > tExit + tol) {
+                return false;
+            }
+            if (tMaxX < tMaxY) {
+                col += stepX;
+                tMaxX += tDeltaX;
+            } else if (tMaxY < tMaxX) {
+                row += stepY;
+                tMaxY += tDeltaY;
+            } else {
+                // Exactly through a cell corner: the two side cells touch the trajectory too
+                if (visitCell(col + stepX, row, x0, y0, x1, y1, best)
+                        || visitCell(col, row + stepY, x0, y0, x1, y1, best)) {
+                    return true;
+                }
+                col += stepX;
+                row += stepY;
+                tMaxX += tDeltaX;
+                tMaxY += tDeltaY;
+            }
+            if (col < 0 || col >= columns || row < 0 || row >= rows) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Tests the entries of one cell during a traversal; cells outside the grid are skipped.
+     *
+     * @param col  the cell's column
+     * @param row  the cell's row
+     * @param x0   x of the segment start
+     * @param y0   y of the segment start
+     * @param x1   x of the segment end
+     * @param y1   y of the segment end
+     * @param best the record of the closest hit, or {@code null} to look for any hit
+     * @return true if there is no record and an entry of the cell is hit
+     */
+    private boolean visitCell(int col, int row, double x0, double y0, double x1, double y1, Best best) {
+        if (col < 0 || col >= columns || row < 0 || row >= rows) {
+            return false;
+        }
+        List<Entry> cell = cells[row * columns + col];
+        if (cell != null) {
+            for (Entry e : cell) {
+                if (visit(e, x0, y0, x1, y1, best)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests an entry during a traversal: either offers it to the closest-hit
+     * record, or, without a record, checks whether it is hit at all.
+     *
+     * @param e    the entry to test
+     * @param x0   x of the segment start
+     * @param y0   y of the segment start
+     * @param x1   x of the segment end
+     * @param y1   y of the segment end
+     * @param best the record of the closest hit, or {@code null}
+     * @return true if there is no record and the entry is hit
+     */
+    private boolean visit(Entry e, double x0, double y0, double x1, double y1, Best best) {
+        if (best == null) {
+            return e.collidable.getCollisionRectangle().timeOfImpact(x0, y0, x1, y1) != Intersections.NO_HIT;
+        }
+        test(e, x0, y0, x1, y1, best);
+        return false;
+    }
+
+    /**
+     * Tests an entry against the trajectory once per query and keeps the closer hit.
+     * Equally close hits are resolved in favour of the collidable added first.
+     *
+     * @param e    the entry to test
+     * @param x0   x of the trajectory start
+     * @param y0   y of the trajectory start
+     * @param x1   x of the trajectory end
+     * @param y1   y of the trajectory end
+     * @param best the best hit so far
+     */
+    private void test(Entry e, double x0, double y0, double x1, double y1, Best best) {
+        if (e.stamp == queryStamp) {
+            return;
+        }
+        e.stamp = queryStamp;
+        double toi = e.collidable.getCollisionRectangle().timeOfImpact(x0, y0, x1, y1);
+        if (toi != Intersections.NO_HIT
+                && (toi < best.toi || (toi == best.toi && e.sequence < best.sequence))) {
+            best.toi = toi;
+            best.collidable = e.collidable;
+            best.sequence = e.sequence;
+        }
+    }
+
+    /**
+     * Inserts an entry into the cells covered by its current collision rectangle.
+     *
+     * @param entry the entry to place
+     */
+    private void place(Entry entry) {
+        Rectangle rect = entry.collidable.getCollisionRectangle();
+        double left = rect.getUpperLeft().getX();
+        double top = rect.getUpperLeft().getY();
+        double right = left + rect.getWidth();
+        double bottom = top + rect.getHeight();
+
+        if (left < originX || top < originY
+                || right > originX + columns * cellSize || bottom > originY + rows * cellSize) {
+            entry.inOverflow = true;
+            overflow.add(entry);
+            return;
+        }
+
+        // Also place the entry in the cells it only touches within the kernel's tolerance
+        double pad = Intersections.EPSILON;
+        entry.inOverflow = false;
+        entry.minCol = clamp((int) Math.floor((left - pad - originX) / cellSize), columns);
+        entry.minRow = clamp((int) Math.floor((top - pad - originY) / cellSize), rows);
+        entry.maxCol = clamp((int) Math.floor((right + pad - originX) / cellSize), columns);
+        entry.maxRow = clamp((int) Math.floor((bottom + pad - originY) / cellSize), rows);
+        for (int r = entry.minRow; r <= entry.maxRow; r++) {
+            for (int c = entry.minCol; c <= entry.maxCol; c++) {
+                int index = r * columns + c;
+                if (cells[index] == null) {
+                    cells[index] = new ArrayList<>(4);
+                }
+                cells[index].add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from every cell (or the overflow list) it was placed in.
+     *
+     * @param entry the entry to remove
+     */
+    private void unplace(Entry entry) {
+        if (entry.inOverflow) {
+            overflow.remove(entry);
+            return;
+        }
+        for (int r = entry.minRow; r <= entry.maxRow; r++) {
+            for (int c = entry.minCol; c <= entry.maxCol; c++) {
+                cells[r * columns + c].remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Clamps a cell coordinate into {@code [0, limit)}.
+     *
+     * @param value the coordinate
+     * @param limit the number of cells along the axis
+     * @return the clamped coordinate
+     */
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+}
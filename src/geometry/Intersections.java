@@ -0,0 +1,239 @@
+package geometry;
+
+/**
+ * The {@code Intersections} class is the primitive geometry kernel used on the
+ * collision hot path. Every method works on plain {@code double} coordinates
+ * and allocates nothing; results are returned as a time of impact along the
+ * segment (a fraction in {@code [0, 1]}) or written into a caller-owned
+ * {@link SegmentHit}.
+ * Segments are given relative to their start, or held by the {@link SegmentHit}
+ * that receives the result; rectangles as {@code left, top, right, bottom}.
+ */
+public final class Intersections {
+    /**
+     * Returned (or stored) when there is no intersection.
+     */
+    public static final double NO_HIT = -1;
+
+    /**
+     * Distance tolerance, the same as the one used by {@code Ball.doubleEquals}.
+     */
+    public static final double EPSILON = 1e-5;
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private Intersections() {
+    }
+
+    /**
+     * Returns the time of impact of the first point where the segment crosses
+     * the boundary of the rectangle. If the segment starts outside, this is where
+     * it enters; if it starts inside, this is where it leaves. The rectangle is
+     * given relative to the segment start, so the segment runs from the origin
+     * to {@code (dx, dy)}.
+     *
+     * @param dx     x of the segment end, relative to its start
+     * @param dy     y of the segment end, relative to its start
+     * @param left   left edge of the rectangle, relative to the segment start
+     * @param top    top edge of the rectangle, relative to the segment start
+     * @param right  right edge of the rectangle, relative to the segment start
+     * @param bottom bottom edge of the rectangle, relative to the segment start
+     * @return the time of impact in {@code [0, 1]}, or {@link #NO_HIT}
+     */
+    public static double segmentRectangle(double dx, double dy, double left, double top, double right,
+                                          double bottom) {
+        double span = Math.max(Math.abs(dx), Math.abs(dy));
+        if (span == 0) {
+            return NO_HIT;
+        }
+        double tol = EPSILON / span;
+
+        double nearX = Double.NEGATIVE_INFINITY;
+        double farX = Double.POSITIVE_INFINITY;
+        if (dx != 0) {
+            double ta = left / dx;
+            double tb = right / dx;
+            nearX = Math.min(ta, tb);
+            farX = Math.max(ta, tb);
+        } else if (left > EPSILON || right < -EPSILON) {
+            return NO_HIT;
+        }
+
+        double nearY = Double.NEGATIVE_INFINITY;
+        double farY = Double.POSITIVE_INFINITY;
+        if (dy != 0) {
+            double ta = top / dy;
+            double tb = bottom / dy;
+            nearY = Math.min(ta, tb);
+            farY = Math.max(ta, tb);
+        } else if (top > EPSILON || bottom < -EPSILON) {
+            return NO_HIT;
+        }
+
+        double tNear = Math.max(nearX, nearY);
+        double tFar = Math.min(farX, farY);
+        if (tNear > tFar + tol) {
+            return NO_HIT;
+        }
+        if (tNear >= -tol) {
+            return tNear <= 1 + tol ? clamp01(tNear) : NO_HIT;
+        }
+        if (tFar >= -tol && tFar <= 1 + tol) {
+            return clamp01(tFar);
+        }
+        return NO_HIT;
+    }
+
+    /**
+     * Intersects the segment held by a hit record (see {@link SegmentHit#setSegment})
+     * with the boundary of a rectangle, like
+     * {@link #segmentRectangle(double, double, double, double, double, double)},
+     * and also fills in the hit point (snapped onto the hit edge), the hit face,
+     * its outward normal and the exit time.
+     *
+     * @param out    the record that holds the segment and receives the result (cleared on a miss)
+     * @param left   left edge of the rectangle
+     * @param top    top edge of the rectangle
+     * @param right  right edge of the rectangle
+     * @param bottom bottom edge of the rectangle
+     * @return true if the segment crosses the boundary of the rectangle
+     */
+    public static boolean segmentRectangle(SegmentHit out, double left, double top, double right, double bottom) {
+        double x0 = out.getStartX();
+        double y0 = out.getStartY();
+        double x1 = out.getEndX();
+        double y1 = out.getEndY();
+        out.clear();
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double span = Math.max(Math.abs(dx), Math.abs(dy));
+        if (span == 0) {
+            return false;
+        }
+        double tol = EPSILON / span;
+
+        double nearX = Double.NEGATIVE_INFINITY;
+        double farX = Double.POSITIVE_INFINITY;
+        if (dx != 0) {
+            double ta = (left - x0) / dx;
+            double tb = (right - x0) / dx;
+            nearX = Math.min(ta, tb);
+            farX = Math.max(ta, tb);
+        } else if (left - x0 > EPSILON || right - x0 < -EPSILON) {
+            return false;
+        }
+
+        double nearY = Double.NEGATIVE_INFINITY;
+        double farY = Double.POSITIVE_INFINITY;
+        if (dy != 0) {
+            double ta = (top - y0) / dy;
+            double tb = (bottom - y0) / dy;
+            nearY = Math.min(ta, tb);
+            farY = Math.max(ta, tb);
+        } else if (top - y0 > EPSILON || bottom - y0 < -EPSILON) {
+            return false;
+        }
+
+        double tNear = Math.max(nearX, nearY);
+        double tFar = Math.min(farX, farY);
+        if (tNear > tFar + tol) {
+            return false;
+        }
+
+        boolean exiting;
+        double t;
+        boolean onX;
+        boolean onY;
+        if (tNear >= -tol) {
+            if (tNear > 1 + tol) {
+                return false;
+            }
+            exiting = false;
+            t = clamp01(tNear);
+            onX = nearX >= nearY - tol;
+            onY = nearY >= nearX - tol;
+        } else if (tFar >= -tol && tFar <= 1 + tol) {
+            exiting = true;
+            t = clamp01(tFar);
+            onX = farX <= farY + tol;
+            onY = farY <= farX + tol;
+        } else {
+            return false;
+        }
+
+        // The side of the rectangle that is crossed depends on the direction of travel
+        boolean towardsMinX = exiting ? dx < 0 : dx > 0;
+        boolean towardsMinY = exiting ? dy < 0 : dy > 0;
+        double normalX = 0;
+        double normalY = 0;
+        int face;
+        if (onX) {
+            normalX = towardsMinX ? -1 : 1;
+        }
+        if (onY) {
+            normalY = towardsMinY ? -1 : 1;
+        }
+        if (onX && onY) {
+            face = SegmentHit.FACE_CORNER;
+        } else if (onX) {
+            face = towardsMinX ? SegmentHit.FACE_LEFT : SegmentHit.FACE_RIGHT;
+        } else {
+            face = towardsMinY ? SegmentHit.FACE_TOP : SegmentHit.FACE_BOTTOM;
+        }
+
+        double exitToi = !exiting && tFar <= 1 + tol && tFar > t + tol ? clamp01(tFar) : NO_HIT;
+        out.set(t, exitToi, face, normalX, normalY, exiting);
+        out.snapToEdges(towardsMinX ? left : right, towardsMinY ? top : bottom);
+        return true;
+    }
+
+    /**
+     * Returns the position along the first segment where it crosses the second one,
+     * for segments that are not parallel. Parallel (and degenerate) segments return
+     * {@link #NO_HIT}; callers handle overlap separately. The first segment runs
+     * from the origin to {@code (ax, ay)}; the second one from {@code (cx, cy)}
+     * to {@code (cx + bx, cy + by)}.
+     *
+     * @param ax x of the first segment end, relative to its start
+     * @param ay y of the first segment end, relative to its start
+     * @param bx x of the second segment end, relative to its start
+     * @param by y of the second segment end, relative to its start
+     * @param cx x of the second segment start, relative to the first segment start
+     * @param cy y of the second segment start, relative to the first segment start
+     * @return the fraction along the first segment in {@code [0, 1]}, or {@link #NO_HIT}
+     */
+    public static double segmentSegment(double ax, double ay, double bx, double by, double cx, double cy) {
+        double denom = ax * by - ay * bx;
+        if (denom == 0) {
+            return NO_HIT;
+        }
+        double t = (cx * by - cy * bx) / denom;
+        double u = (cx * ay - cy * ax) / denom;
+        double tolA = EPSILON / Math.max(Math.abs(ax), Math.abs(ay));
+        double tolB = EPSILON / Math.max(Math.abs(bx), Math.abs(by));
+        if (t < -tolA || t > 1 + tolA || u < -tolB || u > 1 + tolB) {
+            return NO_HIT;
+        }
+        return clamp01(t);
+    }
+
+    /**
+     * Checks whether a point lies inside (or on the edge of) a rectangle.
+     *
+     * @param x      x of the point
+     * @param y      y of the point
+     * @param left   left edge of the rectangle
+     * @param top    top edge of the rectangle
+     * @param right  right edge of the rectangle
+     * @param bottom bottom edge of the rectangle
+     * @return true if the point is inside or on the edge
+     */
+    public static boolean contains(double x, double y, double left, double top, double right, double bottom) {
+        return x >= left && x <= right && y >= top && y <= bottom;
+    }
+
+    private static double clamp01(double t) {
+        return t < 0 ? 0 : (t > 1 ? 1 : t);
+    }
+}
@@ -95,14 +95,22 @@ public class Line {
             return handleParallelIntersection(this.start, this.end, other.start, other.end, false);
         }
 
-        Double m1 = thisVertical ? null : (y2 - y1) / (x2 - x1);
-        Double m2 = otherVertical ? null : (y4 - y3) / (x4 - x3);
-
-        if (m1 != null && m2 != null && Ball.doubleEquals(m1, m2)) {
-            return handleCollinearIntersection(this.start, this.end, other.start, other.end, m1);
+        if (!thisVertical && !otherVertical) {
+            double m1 = (y2 - y1) / (x2 - x1);
+            double m2 = (y4 - y3) / (x4 - x3);
+            if (Ball.doubleEquals(m1, m2)) {
+                return handleCollinearIntersection(this.start, this.end, other.start, other.end, m1);
+            }
         }
 
-        return calculateIntersection(this, other, m1, m2, thisVertical, otherVertical);
+        double t = Intersections.segmentSegment(x2 - x1, y2 - y1, x4 - x3, y4 - y3, x3 - x1, y3 - y1);
+        if (t == Intersections.NO_HIT) {
+            return null;
+        }
+        // Snap onto axis-aligned segments so that edge coordinates stay exact
+        double x = thisVertical ? x1 : (otherVertical ? x3 : x1 + (x2 - x1) * t);
+        double y = thisHorizontal ? y1 : (otherHorizontal ? y3 : y1 + (y2 - y1) * t);
+        return new Point(x, y);
     }
 
     /**
@@ -144,17 +152,11 @@ public class Line {
      * @return closest intersection point or {@code null}
      */
     public Point closestIntersectionToStartOfLine(Rectangle rect) {
-        ArrayList<Point> intersections = (ArrayList<Point>) rect.intersectionPoints(this);
-        if (intersections.isEmpty()) {
+        SegmentHit hit = new SegmentHit();
+        if (!rect.intersect(start.getX(), start.getY(), end.getX(), end.getY(), hit)) {
             return null;
         }
-        Point closest = intersections.get(0);
-        for (Point p : intersections) {
-            if (p.distance(this.start) < closest.distance(this.start)) {
-                closest = p;
-            }
-        }
-        return closest;
+        return new Point(hit.getX(), hit.getY());
     }
 
     /**
@@ -257,35 +259,6 @@ public class Line {
         return null;
     }
 
-    private Point calculateIntersection(Line l1, Line l2, Double m1, Double m2,
-                                        boolean l1Vert, boolean l2Vert) {
-        double x1 = l1.start().getX(), y1 = l1.start().getY();
-        double x3 = l2.start().getX(), y3 = l2.start().getY();
-        double x, y;
-
-        if (l1Vert) {
-            x = x1;
-            y = m2 * x + (y3 - m2 * x3);
-        } else if (l2Vert) {
-            x = x3;
-            y = m1 * x + (y1 - m1 * x1);
-        } else {
-            double b1 = y1 - m1 * x1;
-            double b2 = y3 - m2 * x3;
-            x = (b2 - b1) / (m1 - m2);
-            y = m1 * x + b1;
-        }
-
-        if (isBetween(x, l1.start().getX(), l1.end().getX())
-                && isBetween(y, l1.start().getY(), l1.end().getY())
-                && isBetween(x, l2.start().getX(), l2.end().getX())
-                && isBetween(y, l2.start().getY(), l2.end().getY())) {
-            return new Point(x, y);
-        }
-
-        return null;
-    }
-
     private boolean checkOverlap(Line other) {
         boolean thisVert = Ball.doubleEquals(end.getX(), start.getX());
         boolean otherVert = Ball.doubleEquals(other.end.getX(), other.start.getX());
@@ -302,11 +275,13 @@ public class Line {
                     && rangesOverlap(start.getX(), end.getX(), other.start.getX(), other.end.getX());
         }
 
-        Double m1 = thisVert ? null : (end.getY() - start.getY()) / (end.getX() - start.getX());
-        Double m2 = otherVert ? null
-                : (other.end.getY() - other.start.getY()) / (other.end.getX() - other.start.getX());
+        if (thisVert || otherVert) {
+            return false;
+        }
+        double m1 = (end.getY() - start.getY()) / (end.getX() - start.getX());
+        double m2 = (other.end.getY() - other.start.getY()) / (other.end.getX() - other.start.getX());
 
-        if (m1 != null && m2 != null && Ball.doubleEquals(m1, m2)) {
+        if (Ball.doubleEquals(m1, m2)) {
             double b1 = start.getY() - m1 * start.getX();
             double b2 = other.start.getY() - m2 * other.start.getX();
             return Ball.doubleEquals(b1, b2)
@@ -321,9 +296,4 @@ public class Line {
         double minB = Math.min(b1, b2), maxB = Math.max(b1, b2);
         return maxA >= minB && maxB >= minA;
     }
-
-    private boolean isBetween(double val, double bound1, double bound2) {
-        return (val > Math.min(bound1, bound2) || Ball.doubleEquals(val, Math.min(bound1, bound2)))
-                && (val < Math.max(bound1, bound2) || Ball.doubleEquals(val, Math.max(bound1, bound2)));
-    }
 }
@@ -16,6 +16,7 @@ public class Rectangle {
     private final double width;
     private final double height;
     private final Color color;
+    private Color borderColor;
     private ArrayList<Line> borderLines;
 
     /**
@@ -97,19 +98,54 @@ public class Rectangle {
      * @return a list of {@link Point}s where the line intersects the rectangle
      */
     public List<Point> intersectionPoints(Line line) {
-        List<Point> points = new ArrayList<>();
-        ArrayList<Line> lines = getBorderLines();
-        for (Line l : lines) {
-            if (l.isIntersecting(line)) {
-                Point p = l.intersectionWith(line);
-                if (p != null) {
-                    points.add(p);
-                }
+        List<Point> points = new ArrayList<>(2);
+        SegmentHit hit = new SegmentHit();
+        if (intersect(line.start().getX(), line.start().getY(), line.end().getX(), line.end().getY(), hit)) {
+            points.add(new Point(hit.getX(), hit.getY()));
+            if (hit.getExitToi() != Intersections.NO_HIT) {
+                Point start = line.start();
+                double t = hit.getExitToi();
+                points.add(new Point(start.getX() + (line.end().getX() - start.getX()) * t,
+                        start.getY() + (line.end().getY() - start.getY()) * t));
             }
         }
         return points;
     }
 
+    /**
+     * Returns the time of impact of a segment with the boundary of this rectangle,
+     * without allocating. See {@link Intersections#segmentRectangle}.
+     *
+     * @param x0 x of the segment start
+     * @param y0 y of the segment start
+     * @param x1 x of the segment end
+     * @param y1 y of the segment end
+     * @return the time of impact in {@code [0, 1]}, or {@link Intersections#NO_HIT}
+     */
+    public double timeOfImpact(double x0, double y0, double x1, double y1) {
+        double left = upperLeft.getX();
+        double top = upperLeft.getY();
+        return Intersections.segmentRectangle(x1 - x0, y1 - y0, left - x0, top - y0, left + width - x0,
+                top + height - y0);
+    }
+
+    /**
+     * Intersects a segment with the boundary of this rectangle, without allocating.
+     *
+     * @param x0  x of the segment start
+     * @param y0  y of the segment start
+     * @param x1  x of the segment end
+     * @param y1  y of the segment end
+     * @param out the record that receives the hit point, face, normal and time of impact
+     * @return true if the segment crosses the boundary
+     */
+    public boolean intersect(double x0, double y0, double x1, double y1, SegmentHit out) {
+        double left = upperLeft.getX();
+        double top = upperLeft.getY();
+        out.setSegment(x0, y0, x1, y1);
+        return Intersections.segmentRectangle(out, left, top, left + width, top + height);
+    }
+
     /**
      * Checks whether the given point lies within the bounds of the rectangle.
      *
@@ -117,12 +153,20 @@ public class Rectangle {
      * @return true if the point is inside or on the edge of the rectangle
      */
     public boolean contains(Point p) {
-        double x = p.getX();
-        double y = p.getY();
-        return (x >= upperLeft.getX()
-                && x <= upperLeft.getX() + width
-                && y >= upperLeft.getY()
-                && y <= upperLeft.getY() + height);
+        return contains(p.getX(), p.getY());
+    }
+
+    /**
+     * Checks whether the given coordinates lie within the bounds of the rectangle.
+     *
+     * @param x the x-coordinate to check
+     * @param y the y-coordinate to check
+     * @return true if the point is inside or on the edge of the rectangle
+     */
+    public boolean contains(double x, double y) {
+        double left = upperLeft.getX();
+        double top = upperLeft.getY();
+        return Intersections.contains(x, y, left, top, left + width, top + height);
     }
 
     /**
@@ -141,8 +185,11 @@ public class Rectangle {
         d.setColor(color);
         d.fillRectangle(x, y, w, h);
 
-        // Draw border
-        d.setColor(color.darker());
+        // Draw border, in a darker color computed on the first draw
+        if (borderColor == null) {
+            borderColor = color.darker();
+        }
+        d.setColor(borderColor);
         d.drawRectangle(x, y, w, h);
     }
 }
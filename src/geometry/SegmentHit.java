@@ -0,0 +1,261 @@
+package geometry;
+
+/**
+ * The {@code SegmentHit} class is a mutable record filled in by the
+ * {@link Intersections} kernel. It is owned by the caller and can be reused
+ * for any number of queries, so that intersection tests allocate nothing.
+ * It also holds the segment being tested (see {@link #setSegment}).
+ * Face ids follow the order of {@link Rectangle#getBorderLines()}.
+ */
+public class SegmentHit {
+    /**
+     * No face was hit.
+     */
+    public static final int FACE_NONE = -1;
+
+    /**
+     * The top edge of the rectangle.
+     */
+    public static final int FACE_TOP = 0;
+
+    /**
+     * The left edge of the rectangle.
+     */
+    public static final int FACE_LEFT = 1;
+
+    /**
+     * The bottom edge of the rectangle.
+     */
+    public static final int FACE_BOTTOM = 2;
+
+    /**
+     * The right edge of the rectangle.
+     */
+    public static final int FACE_RIGHT = 3;
+
+    /**
+     * A corner of the rectangle (a horizontal and a vertical edge at once).
+     */
+    public static final int FACE_CORNER = 4;
+
+    private double startX;
+    private double startY;
+    private double endX;
+    private double endY;
+    private double toi;
+    private double exitToi;
+    private double x;
+    private double y;
+    private double normalX;
+    private double normalY;
+    private int face;
+    private boolean exiting;
+
+    /**
+     * Constructs an empty hit record.
+     */
+    public SegmentHit() {
+        clear();
+    }
+
+    /**
+     * Sets the segment that the next intersection tests are run along.
+     *
+     * @param x0 x of the segment start
+     * @param y0 y of the segment start
+     * @param x1 x of the segment end
+     * @param y1 y of the segment end
+     */
+    public void setSegment(double x0, double y0, double x1, double y1) {
+        this.startX = x0;
+        this.startY = y0;
+        this.endX = x1;
+        this.endY = y1;
+    }
+
+    /**
+     * Resets the record to "no hit". The segment is kept.
+     */
+    public void clear() {
+        this.toi = Intersections.NO_HIT;
+        this.exitToi = Intersections.NO_HIT;
+        this.x = 0;
+        this.y = 0;
+        this.normalX = 0;
+        this.normalY = 0;
+        this.face = FACE_NONE;
+        this.exiting = false;
+    }
+
+    /**
+     * Fills in the record. The hit point is computed from the segment and the
+     * time of impact.
+     *
+     * @param toi     the time of impact along the segment, in {@code [0, 1]}
+     * @param exitToi the time at which the segment leaves the rectangle, or {@code NO_HIT}
+     * @param face    the face id
+     * @param normalX x of the outward surface normal of the face
+     * @param normalY y of the outward surface normal of the face
+     * @param exiting true if the segment started inside and the hit is where it leaves
+     */
+    void set(double toi, double exitToi, int face, double normalX, double normalY, boolean exiting) {
+        this.toi = toi;
+        this.exitToi = exitToi;
+        this.x = startX + (endX - startX) * toi;
+        this.y = startY + (endY - startY) * toi;
+        this.face = face;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.exiting = exiting;
+    }
+
+    /**
+     * Moves the hit point exactly onto the edges it crossed, as told by the
+     * normal, which the computed point may miss by a rounding error.
+     *
+     * @param edgeX x of the vertical edge crossed, used if the normal has an x part
+     * @param edgeY y of the horizontal edge crossed, used if the normal has a y part
+     */
+    void snapToEdges(double edgeX, double edgeY) {
+        if (normalX != 0) {
+            this.x = edgeX;
+        }
+        if (normalY != 0) {
+            this.y = edgeY;
+        }
+    }
+
+    /**
+     * Copies another record into this one.
+     *
+     * @param other the record to copy
+     */
+    public void copyFrom(SegmentHit other) {
+        setSegment(other.startX, other.startY, other.endX, other.endY);
+        this.toi = other.toi;
+        this.exitToi = other.exitToi;
+        this.x = other.x;
+        this.y = other.y;
+        this.face = other.face;
+        this.normalX = other.normalX;
+        this.normalY = other.normalY;
+        this.exiting = other.exiting;
+    }
+
+    /**
+     * Returns the x coordinate of the segment start.
+     *
+     * @return x of the segment start
+     */
+    public double getStartX() {
+        return startX;
+    }
+
+    /**
+     * Returns the y coordinate of the segment start.
+     *
+     * @return y of the segment start
+     */
+    public double getStartY() {
+        return startY;
+    }
+
+    /**
+     * Returns the x coordinate of the segment end.
+     *
+     * @return x of the segment end
+     */
+    public double getEndX() {
+        return endX;
+    }
+
+    /**
+     * Returns the y coordinate of the segment end.
+     *
+     * @return y of the segment end
+     */
+    public double getEndY() {
+        return endY;
+    }
+
+    /**
+     * Returns whether the last query hit something.
+     *
+     * @return true if the last query hit something
+     */
+    public boolean isHit() {
+        return toi != Intersections.NO_HIT;
+    }
+
+    /**
+     * Returns the time of impact, as a fraction of the segment.
+     *
+     * @return the fractional time of impact along the segment, or {@code NO_HIT}
+     */
+    public double getToi() {
+        return toi;
+    }
+
+    /**
+     * Returns the time at which the segment leaves the rectangle it entered.
+     *
+     * @return the time at which the segment leaves the rectangle, or {@code NO_HIT}
+     */
+    public double getExitToi() {
+        return exitToi;
+    }
+
+    /**
+     * Returns the x coordinate of the hit point.
+     *
+     * @return x of the hit point
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of the hit point.
+     *
+     * @return y of the hit point
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the x part of the outward normal of the hit face.
+     *
+     * @return x of the outward normal of the hit face
+     */
+    public double getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * Returns the y part of the outward normal of the hit face.
+     *
+     * @return y of the outward normal of the hit face
+     */
+    public double getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * Returns the face that was hit.
+     *
+     * @return the id of the hit face, one of the {@code FACE_*} constants
+     */
+    public int getFace() {
+        return face;
+    }
+
+    /**
+     * Returns whether the segment started inside the rectangle, so that the hit is where it leaves.
+     *
+     * @return true if the segment started inside the rectangle and the hit is its exit point
+     */
+    public boolean isExiting() {
+        return exiting;
+    }
+}
@@ -1,6 +1,7 @@
 package listeners;
 
 import game.Game;
+import geometry.Rectangle;
 import sprites.Ball;
 import sprites.Block;
 
@@ -42,8 +43,12 @@ public class BlockRemover implements HitListener {
         beingHit.removeHitListener(this);
 
         // Remove the block from the game's environment and sprite collection
+        Rectangle area = beingHit.getCollisionRectangle();
         beingHit.removeFromGame(game); // This calls game.removeCollidable and game.removeSprite
 
+        // Redraw the area the block covered in the game's cached static layer
+        game.redraw(area);
+
         // Decrease the remaining blocks count
         remainingBlocks.decrease(1);
     }
@@ -0,0 +1,355 @@
+package listeners;
+
+import geometry.Point;
+import geometry.Rectangle;
+import geometry.Velocity;
+import sprites.Ball;
+import sprites.Block;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code HitEventBus} class takes expensive {@link HitListener}s, such as
+ * logging or analytics, out of the physics step. The bus writes each hit into a
+ * fixed-size ring buffer as a record of primitive fields and delivers the records
+ * in one batch later on, as the subscriber's {@link Delivery} asks; a hit that
+ * finds its ring full is dropped rather than stalling the step (see {@link #getDropped()}).
+ * A deferred listener gets copies of the block and the ball as they were at the
+ * hit, detached from the game, so changing them does not change the game.
+ */
+public class HitEventBus implements AutoCloseable {
+    /**
+     * Default number of records in each ring.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * How a subscriber is notified of hits.
+     */
+    public enum Delivery {
+        /**
+         * Called during the hit, inside the physics step.
+         */
+        SYNC,
+        /**
+         * Called in a batch on the game thread at the end of the tick.
+         */
+        END_OF_TICK,
+        /**
+         * Called in a batch on the bus's background thread after the tick, while the
+         * game goes on.
+         */
+        BACKGROUND
+    }
+
+    private final Ring endOfTick;
+    private final Ring background;
+    private final AtomicReference<Throwable> failure;
+    private volatile HitListener[] subscribers;
+    private volatile boolean closed;
+    private Thread worker;
+
+    /**
+     * Constructs a bus with rings of {@link #DEFAULT_CAPACITY} records.
+     */
+    public HitEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a bus with rings of the given capacity.
+     *
+     * @param capacity the number of records in each ring, rounded up to a power of two
+     */
+    public HitEventBus(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.endOfTick = new Ring(size);
+        this.background = new Ring(size);
+        this.failure = new AtomicReference<>();
+        this.subscribers = new HitListener[0];
+    }
+
+    /**
+     * Subscribes a listener to the bus. The returned listener is the one to add
+     * to a {@link HitNotifier}; for {@link Delivery#SYNC} it is the listener itself.
+     *
+     * @param hl       the listener to notify
+     * @param delivery when and where to notify it
+     * @return the listener to register with the notifiers
+     */
+    public synchronized HitListener subscribe(HitListener hl, Delivery delivery) {
+        if (closed) {
+            throw new IllegalStateException("bus is closed");
+        }
+        if (delivery == Delivery.SYNC) {
+            return hl;
+        }
+        HitListener[] grown = Arrays.copyOf(subscribers, subscribers.length + 1);
+        int id = subscribers.length;
+        grown[id] = hl;
+        subscribers = grown;
+        if (delivery == Delivery.END_OF_TICK) {
+            return (beingHit, hitter) -> record(endOfTick, id, beingHit, hitter);
+        }
+        if (worker == null) {
+            worker = new Thread(this::work, "hit-events");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        return (beingHit, hitter) -> record(background, id, beingHit, hitter);
+    }
+
+    /**
+     * Ends a tick: delivers the tick's {@link Delivery#END_OF_TICK} hits, and hands
+     * the {@link Delivery#BACKGROUND} hits to the background thread. A failure of a
+     * background listener since the last tick is thrown here.
+     */
+    public void endTick() {
+        HitListener[] targets = subscribers;
+        endOfTick.publish();
+        endOfTick.drain(targets);
+        if (background.publish()) {
+            LockSupport.unpark(worker);
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Returns the number of hits delivered to deferred listeners so far.
+     *
+     * @return the number of delivered hits
+     */
+    public long getDelivered() {
+        return endOfTick.consumed.get() + background.consumed.get();
+    }
+
+    /**
+     * Returns the number of hits dropped because their ring was full.
+     *
+     * @return the number of dropped hits
+     */
+    public long getDropped() {
+        return endOfTick.dropped.get() + background.dropped.get();
+    }
+
+    /**
+     * Returns the number of hits recorded but not yet delivered.
+     *
+     * @return the backlog
+     */
+    public long getBacklog() {
+        return endOfTick.pending() + background.pending();
+    }
+
+    /**
+     * Delivers the hits that are still pending and stops the background thread.
+     * Hits recorded afterwards are dropped. A failure of a background listener
+     * while delivering is thrown here.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        endOfTick.publish();
+        background.publish();
+        closed = true;
+        endOfTick.drain(subscribers);
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rethrowFailure();
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Throws the failure a background listener stored, if any
+    private void rethrowFailure() {
+        Throwable t = failure.getAndSet(null);
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // Writes a hit into a ring, or drops it once the bus is closed
+    private void record(Ring ring, int target, Block beingHit, Ball hitter) {
+        if (closed) {
+            ring.dropped.incrementAndGet();
+        } else {
+            ring.offer(target, beingHit, hitter);
+        }
+    }
+
+    // The background loop: wait for a published batch and deliver it, until closed and drained.
+    private void work() {
+        while (true) {
+            if (background.pending() == 0) {
+                if (closed) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                background.drain(subscribers);
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+
+    /**
+     * The {@code Ring} class is a ring buffer of hit records with one writer
+     * and one reader. Each record keeps the block's bounds, color and kind and the
+     * ball's center, radius, velocity and color in parallel primitive arrays, so
+     * the reader never touches the live block or ball. Records written during a
+     * tick become visible to the reader together, when the writer publishes them.
+     */
+    private static final class Ring {
+        private static final byte REMOVABLE = 1;
+        private static final byte DEATH_REGION = 2;
+
+        private final int mask;
+        private final int[] targets;
+        private final double[] blockX;
+        private final double[] blockY;
+        private final double[] blockWidth;
+        private final double[] blockHeight;
+        private final int[] blockColor;
+        private final byte[] blockFlags;
+        private final double[] ballX;
+        private final double[] ballY;
+        private final double[] ballDx;
+        private final double[] ballDy;
+        private final int[] ballRadius;
+        private final int[] ballColor;
+        private final AtomicLong published;
+        private final AtomicLong consumed;
+        private final AtomicLong dropped;
+        private long written;
+
+        /**
+         * Constructs an empty ring.
+         *
+         * @param capacity the number of records, a power of two
+         */
+        private Ring(int capacity) {
+            this.mask = capacity - 1;
+            this.targets = new int[capacity];
+            this.blockX = new double[capacity];
+            this.blockY = new double[capacity];
+            this.blockWidth = new double[capacity];
+            this.blockHeight = new double[capacity];
+            this.blockColor = new int[capacity];
+            this.blockFlags = new byte[capacity];
+            this.ballX = new double[capacity];
+            this.ballY = new double[capacity];
+            this.ballDx = new double[capacity];
+            this.ballDy = new double[capacity];
+            this.ballRadius = new int[capacity];
+            this.ballColor = new int[capacity];
+            this.published = new AtomicLong();
+            this.consumed = new AtomicLong();
+            this.dropped = new AtomicLong();
+        }
+
+        /**
+         * Writes a record of the block and the ball as they are now, or drops it if the ring is full.
+         *
+         * @param target   the subscriber's number
+         * @param beingHit the block that was hit
+         * @param hitter   the ball that hit it
+         */
+        private void offer(int target, Block beingHit, Ball hitter) {
+            if (written - consumed.get() > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+            int i = (int) written & mask;
+            Rectangle r = beingHit.getCollisionRectangle();
+            Point c = hitter.getCenter();
+            Velocity v = hitter.getVelocity();
+            targets[i] = target;
+            blockX[i] = r.getUpperLeft().getX();
+            blockY[i] = r.getUpperLeft().getY();
+            blockWidth[i] = r.getWidth();
+            blockHeight[i] = r.getHeight();
+            blockColor[i] = r.getColor().getRGB();
+            blockFlags[i] = (byte) ((beingHit.isRemovable() ? REMOVABLE : 0)
+                    | (beingHit.isDeathRegion() ? DEATH_REGION : 0));
+            ballX[i] = c.getX();
+            ballY[i] = c.getY();
+            ballDx[i] = v.getDx();
+            ballDy[i] = v.getDy();
+            ballRadius[i] = hitter.getRadius();
+            ballColor[i] = hitter.getColor().getRGB();
+            written++;
+        }
+
+        /**
+         * Makes the records written so far visible to the reader.
+         *
+         * @return true if there were new records
+         */
+        private boolean publish() {
+            if (published.get() == written) {
+                return false;
+            }
+            published.set(written);
+            return true;
+        }
+
+        /**
+         * Delivers the published records, in order, each as a detached block and ball.
+         *
+         * @param subscribers the listeners, by subscriber number
+         */
+        private void drain(HitListener[] subscribers) {
+            long end = published.get();
+            long next = consumed.get();
+            try {
+                while (next < end) {
+                    int i = (int) next & mask;
+                    Block beingHit = new Block(new Rectangle(new Point(blockX[i], blockY[i]),
+                            blockWidth[i], blockHeight[i], new Color(blockColor[i], true)),
+                            (blockFlags[i] & REMOVABLE) != 0, (blockFlags[i] & DEATH_REGION) != 0);
+                    Ball hitter = new Ball(new Point(ballX[i], ballY[i]), ballRadius[i],
+                            new Color(ballColor[i], true));
+                    hitter.setVelocity(ballDx[i], ballDy[i]);
+                    next++;
+                    subscribers[targets[i]].hitEvent(beingHit, hitter);
+                }
+            } finally {
+                consumed.set(next);
+            }
+        }
+
+        /**
+         * Returns the number of published records not yet delivered.
+         *
+         * @return the number of published records not yet delivered
+         */
+        private long pending() {
+            return published.get() - consumed.get();
+        }
+    }
+}
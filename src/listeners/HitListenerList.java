@@ -0,0 +1,116 @@
+package listeners;
+
+import sprites.Ball;
+import sprites.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The {@code HitListenerList} class holds the {@link HitListener}s of a
+ * {@link HitNotifier} and notifies them without copying the list first.
+ * Each notification still behaves as if it iterated over a copy: listeners
+ * added or removed while it runs (for example, {@link BlockRemover}
+ * unsubscribing itself) only affect the notifications that start afterwards.
+ */
+public class HitListenerList {
+    private final List<Entry> entries;
+    private long notifications;
+    private int notifying;
+    private int live;
+    private boolean removedWhileNotifying;
+
+    /**
+     * Constructs an empty list.
+     */
+    public HitListenerList() {
+        this.entries = new ArrayList<>();
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param hl the listener to add
+     */
+    public void add(HitListener hl) {
+        entries.add(new Entry(hl));
+        live++;
+    }
+
+    /**
+     * Removes a listener. Notifications that are already running still notify
+     * it if they have not reached it yet.
+     *
+     * @param hl the listener to remove
+     */
+    public void remove(HitListener hl) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            if (e.removedBefore == Long.MAX_VALUE && Objects.equals(e.listener, hl)) {
+                if (notifying == 0) {
+                    entries.remove(i);
+                } else {
+                    // Hidden from the notifications that start from now on
+                    e.removedBefore = notifications + 1;
+                    removedWhileNotifying = true;
+                }
+                live--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether there are no listeners.
+     *
+     * @return true if there are no listeners
+     */
+    public boolean isEmpty() {
+        return live == 0;
+    }
+
+    /**
+     * Notifies every listener of a hit.
+     *
+     * @param beingHit the block that was hit
+     * @param hitter   the ball that hit it
+     */
+    public void notifyHit(Block beingHit, Ball hitter) {
+        int count = entries.size();
+        long started = ++notifications;
+        notifying++;
+        try {
+            for (int i = 0; i < count; i++) {
+                Entry e = entries.get(i);
+                if (started < e.removedBefore) {
+                    e.listener.hitEvent(beingHit, hitter);
+                }
+            }
+        } finally {
+            notifying--;
+        }
+        if (notifying == 0 && removedWhileNotifying) {
+            entries.removeIf(e -> e.removedBefore != Long.MAX_VALUE);
+            removedWhileNotifying = false;
+        }
+    }
+
+    /**
+     * A listener and the first notification it is hidden from.
+     */
+    private static final class Entry {
+        private final HitListener listener;
+        private long removedBefore;
+
+        /**
+         * Constructs an entry for a listener that has not been removed.
+         *
+         * @param listener the listener
+         */
+        private Entry(HitListener listener) {
+            this.listener = listener;
+            this.removedBefore = Long.MAX_VALUE;
+        }
+    }
+}
@@ -3,28 +3,33 @@ package sprites;
 import biuoop.DrawSurface;
 import game.Sprite;
 
-import javax.imageio.ImageIO;
 import java.awt.Image;
-import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The {@code Background} class is a {@link Sprite} that draws a full-screen image as the background.
+ * The image may still be loading when the background is created (see {@link game.AssetCache});
+ * the background waits for it the first time it is drawn.
  */
 public class Background implements Sprite {
-    private Image image;
+    private final CompletableFuture<? extends Image> image;
 
     /**
      * Constructs a background sprite that draws the given image.
      *
-     * @param imagePath the file path to the background image
+     * @param image the background image
      */
-    public Background(String imagePath) {
-        try {
-            this.image = ImageIO.read(new File(imagePath));
-        } catch (IOException e) {
-            System.err.println("Could not load background image: " + imagePath);
-        }
+    public Background(Image image) {
+        this(CompletableFuture.completedFuture(image));
+    }
+
+    /**
+     * Constructs a background sprite that draws an image that may still be loading.
+     *
+     * @param image the background image, completing with {@code null} if it could not be loaded
+     */
+    public Background(CompletableFuture<? extends Image> image) {
+        this.image = image;
     }
 
     /**
@@ -34,8 +39,9 @@ public class Background implements Sprite {
      */
     @Override
     public void drawOn(DrawSurface d) {
-        if (image != null) {
-            d.drawImage(0, 0, image);
+        Image loaded = image.join();
+        if (loaded != null) {
+            d.drawImage(0, 0, loaded);
         }
     }
 
@@ -5,6 +5,7 @@ import game.GameEnvironment;
 import game.Sprite;
 import game.CollisionInfo;
 import game.Game;
+import game.Layer;
 import game.Collidable;
 import geometry.Point;
 import geometry.Velocity;
@@ -26,6 +27,9 @@ public class Ball implements Sprite {
     private Velocity velocity;
     private double speed;
     private GameEnvironment environment;
+    private boolean removed;
+    private BallSystem system;
+    private int slot = -1;
 
     /**
      * Epsilon value used to compare doubles for equality.
@@ -58,6 +62,52 @@ public class Ball implements Sprite {
         this.calculateSpeed();
     }
 
+    /**
+     * Constructs a handle for a ball stored in a {@link BallSystem} slot.
+     *
+     * @param system the system that owns the ball's state
+     * @param slot   the slot of the ball
+     */
+    Ball(BallSystem system, int slot) {
+        this.radius = system.getRadius(slot);
+        this.color = system.getColor(slot);
+        this.center = new Point(system.getX(slot), system.getY(slot));
+        this.velocity = new Velocity(system.getDx(slot), system.getDy(slot));
+        this.environment = system.getEnvironment();
+        this.calculateSpeed();
+        bind(system, slot);
+    }
+
+    /**
+     * Backs this ball by a {@link BallSystem} slot. Called by the system when the
+     * ball is added and whenever the ball's slot changes.
+     *
+     * @param owner the system that owns the ball's state
+     * @param index the slot of the ball
+     */
+    void bind(BallSystem owner, int index) {
+        this.system = owner;
+        this.slot = index;
+        this.environment = owner.getEnvironment();
+    }
+
+    /**
+     * Detaches this ball from its {@link BallSystem}, keeping the last state of its slot.
+     *
+     * @param x  the x-coordinate of the center
+     * @param y  the y-coordinate of the center
+     * @param dx the horizontal velocity
+     * @param dy the vertical velocity
+     * @param c  the color
+     */
+    void unbind(double x, double y, double dx, double dy, Color c) {
+        this.center = new Point(x, y);
+        this.velocity = new Velocity(dx, dy);
+        this.color = c;
+        this.system = null;
+        this.slot = -1;
+    }
+
     /**
      * Calculates the speed based on the ball's radius.
      * Larger balls move slower than smaller ones.
@@ -81,6 +131,9 @@ public class Ball implements Sprite {
      * @return center point
      */
     public Point getCenter() {
+        if (system != null) {
+            return new Point(system.getX(slot), system.getY(slot));
+        }
         return center;
     }
 
@@ -90,6 +143,9 @@ public class Ball implements Sprite {
      * @return color
      */
     public Color getColor() {
+        if (system != null) {
+            return system.getColor(slot);
+        }
         return color;
     }
 
@@ -126,6 +182,10 @@ public class Ball implements Sprite {
      * @param newColor the new color to assign to the ball
      */
     public void setColor(Color newColor) {
+        if (system != null) {
+            system.setColor(slot, newColor);
+            return;
+        }
         this.color = newColor;
     }
 
@@ -135,8 +195,9 @@ public class Ball implements Sprite {
      * @param surface the drawing surface
      */
     public void drawOn(DrawSurface surface) {
-        surface.setColor(this.color);
-        surface.fillCircle((int) this.center.getX(), (int) this.center.getY(), this.radius);
+        Point c = getCenter();
+        surface.setColor(getColor());
+        surface.fillCircle((int) c.getX(), (int) c.getY(), this.radius);
     }
 
     /**
@@ -154,6 +215,9 @@ public class Ball implements Sprite {
      * @return a copy of the current velocity
      */
     public Velocity getVelocity() {
+        if (system != null) {
+            return new Velocity(system.getDx(slot), system.getDy(slot));
+        }
         return new Velocity(this.velocity.getDx(), this.velocity.getDy());
     }
 
@@ -164,6 +228,10 @@ public class Ball implements Sprite {
      * @param dy change in y
      */
     public void setVelocity(double dx, double dy) {
+        if (system != null) {
+            system.setVelocity(slot, dx, dy);
+            return;
+        }
         this.velocity.setDx(dx);
         this.velocity.setDy(dy);
     }
@@ -183,6 +251,10 @@ public class Ball implements Sprite {
         if (doubleEquals(Math.abs(dy), 0) || Math.abs(dy) < minSpeed) {
             dy = minSpeed * Math.signum(dy != 0 ? dy : 1);
         }
+        if (system != null) {
+            system.setVelocity(slot, dx, dy);
+            return;
+        }
         this.velocity = new Velocity(dx, dy);
     }
 
@@ -192,35 +264,87 @@ public class Ball implements Sprite {
      * @param point the new center point
      */
     public void setPoint(Point point) {
+        if (system != null) {
+            system.setPosition(slot, point.getX(), point.getY());
+            return;
+        }
         this.center = new Point(point.getX(), point.getY());
     }
 
     /**
      * Moves the ball one step forward, considering collisions.
-     * If a collision is detected, updates position and velocity accordingly.
+     * The whole step's displacement is consumed across up to
+     * {@link GameEnvironment#getMaxBounces()} bounces: after each collision the
+     * ball is placed just before the contact point, its velocity is reflected,
+     * and the rest of the step continues along the new velocity.
+     * A ball backed by a {@link BallSystem} is stepped by the system.
      */
     public void moveOneStep() {
+        if (system != null) {
+            system.stepOne(slot);
+            return;
+        }
         double epsilon = 0.1;
-        Line trajectory = new Line(this.center, this.velocity.applyToPoint(center));
-        CollisionInfo collisionInfo = this.environment.getClosestCollision(trajectory);
-        if (collisionInfo == null) {
-            this.center = this.velocity.applyToPoint(this.center);
-            handleMovingTowards(epsilon);
-        } else {
-            Point collisionPoint = collisionInfo.collisionPoint();
-            Collidable collisionObject = collisionInfo.collisionObject();
+        int maxBounces = this.environment.getMaxBounces();
+        double remaining = 1.0;
+        int bounces = 0;
+        boolean capped = false;
 
-            // Move slightly before the collision point
-            double moveX = -Math.signum(this.velocity.getDx()) * epsilon;
-            double moveY = -Math.signum(this.velocity.getDy()) * epsilon;
-            this.center = new Point(collisionPoint.getX() + moveX, collisionPoint.getY() + moveY);
+        while (true) {
+            Point target = new Point(this.center.getX() + this.velocity.getDx() * remaining,
+                    this.center.getY() + this.velocity.getDy() * remaining);
+            CollisionInfo collisionInfo = this.environment.getClosestCollision(new Line(this.center, target));
+            if (collisionInfo == null) {
+                this.center = target;
+                break;
+            }
+            if (bounces == maxBounces) {
+                // Out of bounces: stop at the contact point and drop the rest of the step
+                placeBefore(collisionInfo, epsilon);
+                capped = true;
+                break;
+            }
+            bounces++;
+            placeBefore(collisionInfo, epsilon);
+            this.velocity = collisionInfo.collisionObject().hit(this, collisionInfo, this.velocity);
+            if (this.removed) {
+                break;
+            }
+            double toi = collisionInfo.hasManifold() ? collisionInfo.timeOfImpact() : 1.0;
+            remaining *= 1.0 - toi;
+            if (remaining <= 0) {
+                break;
+            }
+        }
 
-            // Reflect the velocity
-            this.velocity = collisionObject.hit(this, collisionPoint, this.velocity);
+        this.environment.getCcdStatistics().record(bounces, capped);
+        if (!this.removed) {
             handleMovingTowards(epsilon);
         }
     }
 
+    /**
+     * Places the ball just before the contact point of a collision,
+     * backed off along the surface normal (or against the velocity when the
+     * collision has no manifold).
+     *
+     * @param collisionInfo the collision to stop in front of
+     * @param epsilon       the distance to keep from the surface
+     */
+    private void placeBefore(CollisionInfo collisionInfo, double epsilon) {
+        Point collisionPoint = collisionInfo.collisionPoint();
+        double moveX;
+        double moveY;
+        if (collisionInfo.hasManifold()) {
+            moveX = collisionInfo.normalX() * epsilon;
+            moveY = collisionInfo.normalY() * epsilon;
+        } else {
+            moveX = -Math.signum(this.velocity.getDx()) * epsilon;
+            moveY = -Math.signum(this.velocity.getDy()) * epsilon;
+        }
+        this.center = new Point(collisionPoint.getX() + moveX, collisionPoint.getY() + moveY);
+    }
+
     /**
      * If the ball gets stuck inside a collidable object,
      * this method tries to move it slightly upward and reflect its velocity.
@@ -228,15 +352,13 @@ public class Ball implements Sprite {
      * @param epsilon the amount to nudge the ball by
      */
     public void handleMovingTowards(double epsilon) {
-        for (Collidable c : environment.getCollidables()) {
+        Collidable c = environment.getCollidableAt(this.center);
+        if (c != null) {
             Rectangle rect = c.getCollisionRectangle();
-            if (rect.contains(this.center)) {
-                this.velocity = c.hit(this, this.center, this.velocity);
-                double newX = this.center.getX();
-                double newY = rect.getUpperLeft().getY() - epsilon;
-                this.center = new Point(newX, newY);
-                break;
-            }
+            this.velocity = c.hit(this, this.center, this.velocity);
+            double newX = this.center.getX();
+            double newY = rect.getUpperLeft().getY() - epsilon;
+            this.center = new Point(newX, newY);
         }
     }
 
@@ -246,14 +368,24 @@ public class Ball implements Sprite {
      * @param game the game to add this ball to
      */
     public void addToGame(Game game) {
-        game.addSprite(this);
+        this.removed = false;
+        if (system == null) {
+            game.addSprite(this, Layer.BALLS);
+        }
     }
+
     /**
-     * Removes this ball from the game by unregistering it as a sprite.
+     * Removes this ball from the game by unregistering it as a sprite,
+     * or by freeing its slot when it is backed by a {@link BallSystem}.
      *
      * @param game the game to remove this ball from
      */
     public void removeFromGame(Game game) {
+        this.removed = true;
+        if (system != null) {
+            system.remove(slot);
+            return;
+        }
         game.removeSprite(this);
     }
 
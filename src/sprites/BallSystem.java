@@ -0,0 +1,636 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Collidable;
+import game.CollisionInfo;
+import game.Game;
+import game.GameEnvironment;
+import game.Layer;
+import game.Sprite;
+import geometry.Point;
+import geometry.SegmentHit;
+import geometry.Velocity;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The {@code BallSystem} class stores many balls as parallel primitive arrays
+ * and steps them all in one loop that does not allocate unless a ball hits
+ * something. Hits are still reported through {@link Collidable#hit} using a
+ * {@link Ball} handle for the slot. With a {@link ForkJoinPool} set, the balls
+ * whose whole move is free of collisions are moved in parallel first, and the
+ * rest are then stepped one by one in slot order. The two halves of such a step
+ * can also be run separately ({@link #stepFree()} and {@link #stepContacts()}).
+ */
+public class BallSystem implements Sprite {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double EPSILON = 0.1;
+    private static final int PARALLEL_GRAIN = 1024;
+
+    private final GameEnvironment environment;
+    private final SegmentHit hit;
+    private final List<Color> palette;
+    private final Map<Color, Integer> paletteIndex;
+    private double[] x;
+    private double[] y;
+    private double[] prevX;
+    private double[] prevY;
+    private double[] dx;
+    private double[] dy;
+    private int[] radius;
+    private int[] color;
+    private boolean[] dead;
+    private boolean[] contact;
+    private Ball[] handles;
+    private int count;
+    private int deadCount;
+    private boolean stepping;
+    private int[] drawOrder;
+    private int[] paletteCounts;
+    private ForkJoinPool pool;
+    private int planned;
+
+    /**
+     * Constructs an empty ball system whose balls move in the given environment.
+     *
+     * @param environment the environment the balls collide with
+     */
+    public BallSystem(GameEnvironment environment) {
+        this.environment = environment;
+        this.hit = new SegmentHit();
+        this.palette = new ArrayList<>();
+        this.paletteIndex = new HashMap<>();
+        this.x = new double[INITIAL_CAPACITY];
+        this.y = new double[INITIAL_CAPACITY];
+        this.prevX = new double[INITIAL_CAPACITY];
+        this.prevY = new double[INITIAL_CAPACITY];
+        this.dx = new double[INITIAL_CAPACITY];
+        this.dy = new double[INITIAL_CAPACITY];
+        this.radius = new int[INITIAL_CAPACITY];
+        this.color = new int[INITIAL_CAPACITY];
+        this.dead = new boolean[INITIAL_CAPACITY];
+        this.contact = new boolean[INITIAL_CAPACITY];
+        this.handles = new Ball[INITIAL_CAPACITY];
+        this.drawOrder = new int[INITIAL_CAPACITY];
+        this.paletteCounts = new int[1];
+    }
+
+    /**
+     * Adds a ball given by its raw state.
+     *
+     * @param cx the x-coordinate of the center
+     * @param cy the y-coordinate of the center
+     * @param vx the horizontal velocity
+     * @param vy the vertical velocity
+     * @param r  the radius
+     * @param c  the color
+     * @return the slot of the new ball
+     */
+    public int add(double cx, double cy, double vx, double vy, int r, Color c) {
+        if (count == x.length) {
+            grow(count * 2);
+        }
+        int slot = count++;
+        x[slot] = cx;
+        y[slot] = cy;
+        prevX[slot] = cx;
+        prevY[slot] = cy;
+        dx[slot] = vx;
+        dy[slot] = vy;
+        radius[slot] = r;
+        color[slot] = paletteIndexOf(c);
+        dead[slot] = false;
+        handles[slot] = null;
+        return slot;
+    }
+
+    /**
+     * Moves an existing ball into a slot of this system. From now on the ball
+     * reads and writes its state through the system.
+     *
+     * @param ball the ball to add
+     * @return the slot of the ball
+     */
+    public int add(Ball ball) {
+        Point c = ball.getCenter();
+        Velocity v = ball.getVelocity();
+        int slot = add(c.getX(), c.getY(), v.getDx(), v.getDy(), ball.getRadius(), ball.getColor());
+        handles[slot] = ball;
+        ball.bind(this, slot);
+        return slot;
+    }
+
+    /**
+     * Removes the ball in the given slot. While the balls are being stepped the
+     * removal is deferred to the end of the step, so slots stay stable.
+     *
+     * @param slot the slot to remove
+     */
+    public void remove(int slot) {
+        if (slot < 0 || slot >= count || dead[slot]) {
+            return;
+        }
+        dead[slot] = true;
+        deadCount++;
+        if (!stepping) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns the number of balls in the system.
+     *
+     * @return the ball count
+     */
+    public int size() {
+        return count - deadCount;
+    }
+
+    /**
+     * Returns a hash of the position, velocity, radius and color of every ball,
+     * in slot order.
+     *
+     * @return the state hash
+     */
+    public int stateHash() {
+        int h = count - deadCount;
+        for (int i = 0; i < count; i++) {
+            if (dead[i]) {
+                continue;
+            }
+            h = 31 * h + Double.hashCode(x[i]);
+            h = 31 * h + Double.hashCode(y[i]);
+            h = 31 * h + Double.hashCode(dx[i]);
+            h = 31 * h + Double.hashCode(dy[i]);
+            h = 31 * h + radius[i];
+            h = 31 * h + palette.get(color[i]).getRGB();
+        }
+        return h;
+    }
+
+    /**
+     * Returns the {@link Ball} handle for a slot, creating it on first use.
+     *
+     * @param slot the slot
+     * @return the ball backed by that slot
+     */
+    public Ball handle(int slot) {
+        Ball ball = handles[slot];
+        if (ball == null) {
+            ball = new Ball(this, slot);
+            handles[slot] = ball;
+        }
+        return ball;
+    }
+
+    /**
+     * Returns the x-coordinate of a ball's center.
+     *
+     * @param slot the slot
+     * @return the x-coordinate of the ball's center
+     */
+    public double getX(int slot) {
+        return x[slot];
+    }
+
+    /**
+     * Returns the y-coordinate of a ball's center.
+     *
+     * @param slot the slot
+     * @return the y-coordinate of the ball's center
+     */
+    public double getY(int slot) {
+        return y[slot];
+    }
+
+    /**
+     * Returns the horizontal velocity of a ball.
+     *
+     * @param slot the slot
+     * @return the horizontal velocity of the ball
+     */
+    public double getDx(int slot) {
+        return dx[slot];
+    }
+
+    /**
+     * Returns the vertical velocity of a ball.
+     *
+     * @param slot the slot
+     * @return the vertical velocity of the ball
+     */
+    public double getDy(int slot) {
+        return dy[slot];
+    }
+
+    /**
+     * Returns the radius of a ball.
+     *
+     * @param slot the slot
+     * @return the radius of the ball
+     */
+    public int getRadius(int slot) {
+        return radius[slot];
+    }
+
+    /**
+     * Returns the color of a ball.
+     *
+     * @param slot the slot
+     * @return the color of the ball
+     */
+    public Color getColor(int slot) {
+        return palette.get(color[slot]);
+    }
+
+    /**
+     * Returns the environment the balls move in.
+     *
+     * @return the game environment
+     */
+    public GameEnvironment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Sets the center of a ball. The ball jumps there: it is not interpolated
+     * from its previous position when drawn.
+     *
+     * @param slot the slot
+     * @param cx   the new x-coordinate
+     * @param cy   the new y-coordinate
+     */
+    public void setPosition(int slot, double cx, double cy) {
+        x[slot] = cx;
+        y[slot] = cy;
+        prevX[slot] = cx;
+        prevY[slot] = cy;
+    }
+
+    /**
+     * Sets the velocity of a ball.
+     *
+     * @param slot the slot
+     * @param vx   the new horizontal velocity
+     * @param vy   the new vertical velocity
+     */
+    public void setVelocity(int slot, double vx, double vy) {
+        dx[slot] = vx;
+        dy[slot] = vy;
+    }
+
+    /**
+     * Sets the color of a ball.
+     *
+     * @param slot the slot
+     * @param c    the new color
+     */
+    public void setColor(int slot, Color c) {
+        color[slot] = paletteIndexOf(c);
+    }
+
+    /**
+     * Sets the pool used to step the balls in parallel.
+     *
+     * @param pool the pool, or {@code null} to step the balls serially
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the pool used to step the balls in parallel.
+     *
+     * @return the pool, or {@code null} if the balls are stepped serially
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Steps every ball once, in parallel when a pool is set and there are enough balls.
+     */
+    @Override
+    public void timePassed() {
+        if (pool != null && count > PARALLEL_GRAIN) {
+            beginStep();
+            long free = pool.invoke(new FreeFlight(0, planned));
+            environment.getCcdStatistics().record(0, false, free);
+            stepContacts();
+            return;
+        }
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+        stepping = true;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!dead[i]) {
+                    step(i);
+                }
+            }
+        } finally {
+            stepping = false;
+        }
+        compact();
+    }
+
+    /**
+     * Does the first half of a step split in two: moves every ball whose whole
+     * move is free of collisions, and flags the others for {@link #stepContacts()}.
+     * It only reads the environment, so systems stepped on different threads
+     * can run it at the same time, as long as nothing is changed meanwhile.
+     *
+     * @return the number of balls moved
+     */
+    public long stepFree() {
+        beginStep();
+        long free = flyFree(0, planned);
+        environment.getCcdStatistics().record(0, false, free);
+        return free;
+    }
+
+    /**
+     * Does the second half of a step split in two: steps the balls flagged by
+     * {@link #stepFree()}, and those added since, one by one in slot order, as a
+     * serial step would. Without a {@link #stepFree()} before, every ball is stepped.
+     */
+    public void stepContacts() {
+        stepping = true;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!dead[i] && (i >= planned || contact[i])) {
+                    step(i);
+                }
+            }
+        } finally {
+            stepping = false;
+            planned = 0;
+        }
+        compact();
+    }
+
+    /**
+     * Steps a single ball, with the same continuous collision handling as
+     * {@link Ball#moveOneStep()}.
+     *
+     * @param slot the slot of the ball to step
+     */
+    public void stepOne(int slot) {
+        prevX[slot] = x[slot];
+        prevY[slot] = y[slot];
+        boolean outer = stepping;
+        stepping = true;
+        try {
+            step(slot);
+        } finally {
+            stepping = outer;
+        }
+        if (!outer) {
+            compact();
+        }
+    }
+
+    /**
+     * Draws all balls at their current positions.
+     *
+     * @param d the {@link DrawSurface} to draw on
+     */
+    @Override
+    public void drawOn(DrawSurface d) {
+        drawOn(d, 1.0);
+    }
+
+    /**
+     * Draws all balls between their positions before and after the last step,
+     * grouped by palette color so that the color is set once per group.
+     *
+     * @param d     the {@link DrawSurface} to draw on
+     * @param alpha how far to interpolate from the previous to the current position
+     */
+    @Override
+    public void drawOn(DrawSurface d, double alpha) {
+        int colors = palette.size();
+        if (paletteCounts.length < colors + 1) {
+            paletteCounts = new int[colors + 1];
+        }
+        Arrays.fill(paletteCounts, 0);
+        for (int i = 0; i < count; i++) {
+            paletteCounts[color[i] + 1]++;
+        }
+        for (int c = 0; c < colors; c++) {
+            paletteCounts[c + 1] += paletteCounts[c];
+        }
+        for (int i = 0; i < count; i++) {
+            drawOrder[paletteCounts[color[i]]++] = i;
+        }
+
+        int current = -1;
+        for (int k = 0; k < count; k++) {
+            int i = drawOrder[k];
+            if (dead[i]) {
+                continue;
+            }
+            if (color[i] != current) {
+                current = color[i];
+                d.setColor(palette.get(current));
+            }
+            double cx = prevX[i] + (x[i] - prevX[i]) * alpha;
+            double cy = prevY[i] + (y[i] - prevY[i]) * alpha;
+            d.fillCircle((int) cx, (int) cy, radius[i]);
+        }
+    }
+
+    /**
+     * Adds the ball system to the game as a single sprite.
+     *
+     * @param game the game to add the system to
+     */
+    public void addToGame(Game game) {
+        game.addSprite(this, Layer.BALLS);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    private void step(int i) {
+        int maxBounces = environment.getMaxBounces();
+        double remaining = 1.0;
+        int bounces = 0;
+        boolean capped = false;
+
+        while (true) {
+            double tx = x[i] + dx[i] * remaining;
+            double ty = y[i] + dy[i] * remaining;
+            Collidable c = environment.castSegment(x[i], y[i], tx, ty, hit);
+            if (c == null) {
+                x[i] = tx;
+                y[i] = ty;
+                break;
+            }
+            x[i] = hit.getX() + hit.getNormalX() * EPSILON;
+            y[i] = hit.getY() + hit.getNormalY() * EPSILON;
+            if (bounces == maxBounces) {
+                capped = true;
+                break;
+            }
+            bounces++;
+            double toi = hit.getToi();
+            Velocity v = c.hit(handle(i), CollisionInfo.of(hit, c), new Velocity(dx[i], dy[i]));
+            if (dead[i]) {
+                break;
+            }
+            dx[i] = v.getDx();
+            dy[i] = v.getDy();
+            remaining *= 1.0 - toi;
+            if (remaining <= 0) {
+                break;
+            }
+        }
+
+        environment.getCcdStatistics().record(bounces, capped);
+        if (!dead[i]) {
+            pushOut(i);
+        }
+    }
+
+    // Starts a split step: the balls present now are the ones the free flight may move
+    private void beginStep() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+        planned = count;
+    }
+
+    // Moves the balls in [from, to) that hit nothing during the step and flags the others;
+    // touches only those slots and runs read-only environment queries
+    private long flyFree(int from, int to) {
+        long free = 0;
+        for (int i = from; i < to; i++) {
+            if (dead[i]) {
+                contact[i] = false;
+                continue;
+            }
+            double tx = x[i] + dx[i];
+            double ty = y[i] + dy[i];
+            if (environment.intersectsAny(x[i], y[i], tx, ty) || environment.containsAny(tx, ty)) {
+                contact[i] = true;
+            } else {
+                x[i] = tx;
+                y[i] = ty;
+                contact[i] = false;
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * The parallel phase of a step: splits a range of slots until it is small
+     * enough, then moves the free balls of each piece.
+     */
+    private final class FreeFlight extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs the task for a range of slots.
+         *
+         * @param from the first slot of the range
+         * @param to   one past the last slot of the range
+         */
+        private FreeFlight(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= PARALLEL_GRAIN) {
+                return flyFree(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            FreeFlight right = new FreeFlight(mid, to);
+            right.fork();
+            long left = new FreeFlight(from, mid).compute();
+            return left + right.join();
+        }
+    }
+
+    private void pushOut(int i) {
+        Collidable c = environment.getCollidableAt(x[i], y[i]);
+        if (c != null) {
+            Velocity v = c.hit(handle(i), new Point(x[i], y[i]), new Velocity(dx[i], dy[i]));
+            dx[i] = v.getDx();
+            dy[i] = v.getDy();
+            y[i] = c.getCollisionRectangle().getUpperLeft().getY() - EPSILON;
+        }
+    }
+
+    private void compact() {
+        if (deadCount == 0) {
+            return;
+        }
+        int i = 0;
+        while (i < count) {
+            if (!dead[i]) {
+                i++;
+                continue;
+            }
+            Ball removed = handles[i];
+            if (removed != null) {
+                removed.unbind(x[i], y[i], dx[i], dy[i], palette.get(color[i]));
+            }
+            int last = --count;
+            if (i != last) {
+                x[i] = x[last];
+                y[i] = y[last];
+                prevX[i] = prevX[last];
+                prevY[i] = prevY[last];
+                dx[i] = dx[last];
+                dy[i] = dy[last];
+                radius[i] = radius[last];
+                color[i] = color[last];
+                dead[i] = dead[last];
+                handles[i] = handles[last];
+                if (handles[i] != null) {
+                    handles[i].bind(this, i);
+                }
+            }
+            handles[last] = null;
+            dead[last] = false;
+        }
+        deadCount = 0;
+    }
+
+    private int paletteIndexOf(Color c) {
+        Integer index = paletteIndex.get(c);
+        if (index == null) {
+            index = palette.size();
+            palette.add(c);
+            paletteIndex.put(c, index);
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        color = Arrays.copyOf(color, capacity);
+        dead = Arrays.copyOf(dead, capacity);
+        contact = Arrays.copyOf(contact, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        drawOrder = Arrays.copyOf(drawOrder, capacity);
+    }
+}
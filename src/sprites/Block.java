@@ -2,29 +2,33 @@ package sprites;
 
 import biuoop.DrawSurface;
 import game.Collidable;
+import game.CollisionInfo;
 import game.Game;
 import game.Sprite;
 import geometry.Point;
 import geometry.Rectangle;
 import geometry.Velocity;
 import listeners.HitListener;
+import listeners.HitListenerList;
 import listeners.HitNotifier;
 
 import java.awt.Color;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * The {@code Block} class represents a rectangular block in the game.
  * A block can act as both a {@link Collidable} (for collision detection)
  * and a {@link Sprite} (for being drawn on screen and animated).
  * It reacts to collisions by reversing velocity as appropriate.
+ * A block may also be a handle to a slot of a {@link BlockStore}; it is then
+ * removed through the store and also notifies the store's listeners.
  */
 public class Block implements Collidable, Sprite, HitNotifier {
     private final Rectangle rectangle;
     private boolean isRemovable;
     private boolean isDeathRegion; // New: Flag to identify death region blocks
-    private List<HitListener> hitListeners;
+    private final HitListenerList hitListeners;
+    private final BlockStore store;
+    private final int slot;
 
     /**
      * Constructs a block with a given rectangular shape.
@@ -37,7 +41,25 @@ public class Block implements Collidable, Sprite, HitNotifier {
         this.rectangle = rectangle;
         this.isRemovable = isRemovable;
         this.isDeathRegion = isDeathRegion; // Initialize new flag
-        this.hitListeners = new ArrayList<>();
+        this.hitListeners = new HitListenerList();
+        this.store = null;
+        this.slot = -1;
+    }
+
+    /**
+     * Constructs a handle for a block stored in a {@link BlockStore}.
+     *
+     * @param store the store that keeps the block
+     * @param slot  the slot of the block in the store
+     */
+    Block(BlockStore store, int slot) {
+        this.rectangle = new Rectangle(new Point(store.getX(slot), store.getY(slot)),
+                store.getWidth(slot), store.getHeight(slot), store.getColor(slot));
+        this.isRemovable = store.isRemovable(slot);
+        this.isDeathRegion = store.isDeathRegion(slot);
+        this.hitListeners = new HitListenerList();
+        this.store = store;
+        this.slot = slot;
     }
 
     @Override
@@ -57,8 +79,36 @@ public class Block implements Collidable, Sprite, HitNotifier {
         return isDeathRegion;
     }
 
+    @Override
+    public Velocity hit(Ball hitter, CollisionInfo collision, Velocity currentVelocity) {
+        if (isStale()) {
+            return currentVelocity;
+        }
+        if (!collision.hasManifold()) {
+            return hit(hitter, collision.collisionPoint(), currentVelocity);
+        }
+        if (this.isDeathRegion) {
+            notifyHit(hitter);
+            return currentVelocity;
+        }
+
+        // The normal tells us which face was struck; a corner has both components set
+        double dx = currentVelocity.getDx();
+        double dy = currentVelocity.getDy();
+        if (collision.normalX() != 0) {
+            dx = -dx;
+        }
+        if (collision.normalY() != 0) {
+            dy = -dy;
+        }
+        return respondToHit(hitter, dx, dy);
+    }
+
     @Override
     public Velocity hit(Ball hitter, Point collisionPoint, Velocity currentVelocity) {
+        if (isStale()) {
+            return currentVelocity;
+        }
         // If this block is a death region, we notify listeners and return current velocity
         // without reflecting, as the ball should be removed, not bounced.
         if (this.isDeathRegion) {
@@ -90,6 +140,29 @@ public class Block implements Collidable, Sprite, HitNotifier {
             dy = -dy;
         }
 
+        return respondToHit(hitter, dx, dy);
+    }
+
+    /**
+     * Checks whether this is the handle of a block that has already left its store,
+     * for example one that a ball on another thread removed during the same tick.
+     * A stale handle lets the ball pass, as if the block were already gone.
+     *
+     * @return true if the block was removed from its store
+     */
+    private boolean isStale() {
+        return store != null && !store.isAlive(slot);
+    }
+
+    /**
+     * Notifies the listeners and recolors the ball after a bounce off this block.
+     *
+     * @param hitter the ball that hit the block
+     * @param dx     the reflected horizontal velocity
+     * @param dy     the reflected vertical velocity
+     * @return the new velocity of the ball
+     */
+    private Velocity respondToHit(Ball hitter, double dx, double dy) {
         Color originalBallColor = hitter.getColor();
 
         // IMPORTANT: Notify listeners BEFORE changing the ball's color
@@ -111,6 +184,10 @@ public class Block implements Collidable, Sprite, HitNotifier {
     }
 
     public void removeFromGame(Game game) {
+        if (store != null) {
+            store.remove(slot);
+            return;
+        }
         game.removeCollidable(this);
         game.removeSprite(this);
     }
@@ -126,9 +203,9 @@ public class Block implements Collidable, Sprite, HitNotifier {
     }
 
     private void notifyHit(Ball hitter) {
-        List<HitListener> listeners = new ArrayList<>(this.hitListeners);
-        for (HitListener hl : listeners) {
-            hl.hitEvent(this, hitter);
+        hitListeners.notifyHit(this, hitter);
+        if (store != null) {
+            store.notifyHit(this, hitter);
         }
     }
 
@@ -138,6 +215,10 @@ public class Block implements Collidable, Sprite, HitNotifier {
     }
 
     public void addToGame(Game game) {
+        if (store != null) {
+            store.restore(slot);
+            return;
+        }
         game.addCollidable(this);
         game.addSprite(this);
     }
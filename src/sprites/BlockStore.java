@@ -0,0 +1,83 @@
+package sprites;
+
+import java.awt.Color;
+
+/**
+ * The {@code BlockStore} interface describes a container that keeps many
+ * blocks in compact form and addresses them by slot, such as a
+ * {@link BlockTable} or a {@link TileMapCollidable}.
+ * A {@link Block} handle reads its data from, and reports hits and removals
+ * to, the store that created it.
+ */
+public interface BlockStore {
+
+    /**
+     * @param slot the slot of the block
+     * @return x of the block's upper-left corner
+     */
+    double getX(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return y of the block's upper-left corner
+     */
+    double getY(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's width
+     */
+    double getWidth(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's height
+     */
+    double getHeight(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's color
+     */
+    Color getColor(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block can be removed from the game
+     */
+    boolean isRemovable(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block acts as a death region
+     */
+    boolean isDeathRegion(int slot);
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block is in play
+     */
+    boolean isAlive(int slot);
+
+    /**
+     * Removes a block from play.
+     *
+     * @param slot the slot of the block
+     */
+    void remove(int slot);
+
+    /**
+     * Puts a removed block back into play.
+     *
+     * @param slot the slot of the block
+     */
+    void restore(int slot);
+
+    /**
+     * Notifies the store's listeners that a block was hit.
+     *
+     * @param beingHit the handle of the block that was hit
+     * @param hitter   the ball that hit it
+     */
+    void notifyHit(Block beingHit, Ball hitter);
+}
@@ -0,0 +1,840 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Collidable;
+import game.CollidableGroup;
+import game.Game;
+import game.Level;
+import game.Sprite;
+import geometry.Intersections;
+import geometry.SegmentHit;
+import listeners.HitListener;
+import listeners.HitListenerList;
+import listeners.HitNotifier;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code BlockTable} class stores many static blocks as parallel primitive
+ * arrays: bounds, a palette color index and a byte of flags (removable,
+ * death region, alive) per block. A level with hundreds of thousands of bricks
+ * therefore costs a few dozen bytes per brick instead of a {@link Block} with
+ * its {@link geometry.Rectangle}, border lines and listener list.
+ * The table is a {@link CollidableGroup} (queried through a uniform grid of
+ * block slots) and a {@link Sprite} that draws every alive block. A block
+ * added once the grid is built goes into the cells it covers, and reuses the
+ * slot of a {@link #release(int) released} block if there is one. A
+ * {@link #slice(double, double) slice} is a smaller table that copies the
+ * blocks of an x-range and follows every change to them.
+ * A {@link Block} handle is created only for a block that is actually hit, so
+ * that {@link HitListener}s added to the table keep receiving a {@link Block}.
+ */
+public class BlockTable implements BlockStore, CollidableGroup, Sprite, HitNotifier {
+    private static final byte REMOVABLE = 1;
+    private static final byte DEATH_REGION = 2;
+    private static final byte ALIVE = 4;
+    private static final byte RELEASED = 8;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private float[] left;
+    private float[] top;
+    private float[] right;
+    private float[] bottom;
+    private int[] color;
+    private byte[] flags;
+    private int count;
+    private int alive;
+    private int[] released;
+    private int releasedCount;
+    private final List<Color> palette;
+    private final Map<Color, Integer> paletteIndex;
+    private final Map<Integer, Block> handles;
+    private final HitListenerList hitListeners;
+    private final RectangleBatch batch;
+    private final SegmentHit cast;
+    private final List<BlockTable> slices;
+    // Set on a slice only: the table it copies, the range it covers, and its slots in both directions
+    private BlockTable parent;
+    private double sliceMinX;
+    private double sliceMaxX;
+    private int[] parentSlots;
+    private int[] sliceSlots;
+
+    // Uniform grid over the slots, built lazily: cellItems[cellStart[i] .. cellStart[i + 1]) are the slots in cell i
+    private volatile boolean indexed;
+    private double originX;
+    private double originY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellStart;
+    private int[] cellItems;
+    // Slots added after the grid was built: extraSlot[k] is in the cell whose list starts at extraHead[cell]
+    private int[] extraHead;
+    private int[] extraSlot;
+    private int[] extraNext;
+    private int extraCount;
+    // The draw of an area a slot was last batched in, so that a block in several cells is drawn once
+    private int[] drawn;
+    private int drawStamp;
+
+    /**
+     * Constructs an empty block table.
+     */
+    public BlockTable() {
+        this.left = new float[INITIAL_CAPACITY];
+        this.top = new float[INITIAL_CAPACITY];
+        this.right = new float[INITIAL_CAPACITY];
+        this.bottom = new float[INITIAL_CAPACITY];
+        this.color = new int[INITIAL_CAPACITY];
+        this.flags = new byte[INITIAL_CAPACITY];
+        this.released = new int[0];
+        this.palette = new ArrayList<>();
+        this.paletteIndex = new HashMap<>();
+        this.handles = new ConcurrentHashMap<>();
+        this.hitListeners = new HitListenerList();
+        this.batch = new RectangleBatch();
+        this.cast = new SegmentHit();
+        this.slices = new ArrayList<>();
+    }
+
+    /**
+     * Adds a block to the table, in the slot of a released block if there is one.
+     *
+     * @param x           x of the block's upper-left corner
+     * @param y           y of the block's upper-left corner
+     * @param width       the block's width
+     * @param height      the block's height
+     * @param c           the block's color
+     * @param removable   true if the block can be removed from the game
+     * @param deathRegion true if the block acts as a death region
+     * @return the slot of the new block
+     */
+    public int add(double x, double y, double width, double height, Color c, boolean removable, boolean deathRegion) {
+        int slot = nextSlot();
+        left[slot] = (float) x;
+        top[slot] = (float) y;
+        right[slot] = (float) (x + width);
+        bottom[slot] = (float) (y + height);
+        color[slot] = paletteIndexOf(c);
+        flags[slot] = (byte) (ALIVE | (removable ? REMOVABLE : 0) | (deathRegion ? DEATH_REGION : 0));
+        alive++;
+        insert(slot);
+        for (BlockTable slice : slices) {
+            slice.copy(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Adds many blocks at once. The bounds are copied column by column with bulk
+     * reads, so blocks loaded from a memory-mapped level file (see
+     * {@link game.LevelFile}) go straight into the table without per-block parsing.
+     *
+     * @param rects       the blocks' edges and indexes into {@code colors}
+     * @param colors      the colors the indexes refer to
+     * @param removable   true if the blocks can be removed from the game
+     * @param deathRegion true if the blocks act as death regions
+     * @return the slot of the first new block; the others follow it
+     */
+    public int addAll(Level.Rects rects, List<Color> colors, boolean removable, boolean deathRegion) {
+        int n = rects.size();
+        int first = count;
+        if (count + n > left.length) {
+            grow(Math.max(count + n, count * 2));
+        }
+        rects.lefts().get(left, first, n);
+        rects.tops().get(top, first, n);
+        rects.rights().get(right, first, n);
+        rects.bottoms().get(bottom, first, n);
+        rects.colors().get(color, first, n);
+        // Colors join the palette in order of first use, as they do with add
+        int[] remap = new int[colors.size()];
+        Arrays.fill(remap, -1);
+        for (int i = first; i < first + n; i++) {
+            int c = color[i];
+            if (remap[c] < 0) {
+                remap[c] = paletteIndexOf(colors.get(c));
+            }
+            color[i] = remap[c];
+        }
+        Arrays.fill(flags, first, first + n,
+                (byte) (ALIVE | (removable ? REMOVABLE : 0) | (deathRegion ? DEATH_REGION : 0)));
+        count += n;
+        alive += n;
+        indexed = false;
+        for (BlockTable slice : slices) {
+            for (int i = first; i < first + n; i++) {
+                slice.copy(i);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Removes a block from play. Its slot keeps its data, so it can be restored.
+     *
+     * @param slot the slot of the block
+     */
+    @Override
+    public void remove(int slot) {
+        if (isAlive(slot)) {
+            flags[slot] &= ~ALIVE;
+            alive--;
+            handles.remove(slot);
+            for (BlockTable slice : slices) {
+                int copy = slice.sliceSlotOf(slot);
+                if (copy >= 0) {
+                    slice.remove(copy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a block for good: it cannot be restored, and the next block
+     * added takes its slot.
+     *
+     * @param slot the slot of the block
+     */
+    public void release(int slot) {
+        if ((flags[slot] & RELEASED) != 0) {
+            return;
+        }
+        remove(slot);
+        flags[slot] = RELEASED;
+        if (releasedCount == released.length) {
+            released = Arrays.copyOf(released, Math.max(16, releasedCount * 2));
+        }
+        released[releasedCount++] = slot;
+        for (BlockTable slice : slices) {
+            int copy = slice.sliceSlotOf(slot);
+            if (copy >= 0) {
+                slice.release(copy);
+                slice.sliceSlots[slot] = -1;
+            }
+        }
+    }
+
+    /**
+     * Puts a removed block back into play, unless it was released.
+     *
+     * @param slot the slot of the block
+     */
+    @Override
+    public void restore(int slot) {
+        if (!isAlive(slot) && (flags[slot] & RELEASED) == 0) {
+            flags[slot] |= ALIVE;
+            alive++;
+            for (BlockTable slice : slices) {
+                int copy = slice.sliceSlotOf(slot);
+                if (copy >= 0) {
+                    slice.restore(copy);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block is in play
+     */
+    @Override
+    public boolean isAlive(int slot) {
+        return (flags[slot] & ALIVE) != 0;
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block can be removed from the game
+     */
+    @Override
+    public boolean isRemovable(int slot) {
+        return (flags[slot] & REMOVABLE) != 0;
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return true if the block acts as a death region
+     */
+    @Override
+    public boolean isDeathRegion(int slot) {
+        return (flags[slot] & DEATH_REGION) != 0;
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return x of the block's upper-left corner
+     */
+    @Override
+    public double getX(int slot) {
+        return left[slot];
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return y of the block's upper-left corner
+     */
+    @Override
+    public double getY(int slot) {
+        return top[slot];
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's width
+     */
+    @Override
+    public double getWidth(int slot) {
+        return (double) right[slot] - left[slot];
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's height
+     */
+    @Override
+    public double getHeight(int slot) {
+        return (double) bottom[slot] - top[slot];
+    }
+
+    /**
+     * @param slot the slot of the block
+     * @return the block's color
+     */
+    @Override
+    public Color getColor(int slot) {
+        return palette.get(color[slot]);
+    }
+
+    /**
+     * Returns the number of slots in the table, including removed blocks.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of blocks that are still in play.
+     *
+     * @return the number of alive blocks
+     */
+    public int getAliveCount() {
+        return alive;
+    }
+
+    /**
+     * Returns the {@link Block} handle of a slot, creating it on first use.
+     *
+     * @param slot the slot of the block
+     * @return the handle
+     */
+    public Block handle(int slot) {
+        if (parent != null) {
+            return parent.handle(parentSlots[slot]);
+        }
+        Block block = handles.get(slot);
+        if (block == null) {
+            block = new Block(this, slot);
+            if (isAlive(slot)) {
+                Block existing = handles.putIfAbsent(slot, block);
+                if (existing != null) {
+                    block = existing;
+                }
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Adds a listener that is notified when any block of the table is hit.
+     *
+     * @param hl the listener to add
+     */
+    @Override
+    public void addHitListener(HitListener hl) {
+        hitListeners.add(hl);
+    }
+
+    /**
+     * Removes a table-wide listener.
+     *
+     * @param hl the listener to remove
+     */
+    @Override
+    public void removeHitListener(HitListener hl) {
+        hitListeners.remove(hl);
+    }
+
+    /**
+     * Notifies the table-wide listeners that a block was hit.
+     *
+     * @param beingHit the handle of the block that was hit
+     * @param hitter   the ball that hit it
+     */
+    @Override
+    public void notifyHit(Block beingHit, Ball hitter) {
+        hitListeners.notifyHit(beingHit, hitter);
+    }
+
+    @Override
+    public Collidable castSegment(double x0, double y0, double x1, double y1, double maxToi, SegmentHit out) {
+        int slot = closestSlot(x0, y0, x1, y1, maxToi);
+        if (slot < 0) {
+            return null;
+        }
+        // Cast into a scratch record, so that a miss leaves out as it was
+        cast.setSegment(x0, y0, x1, y1);
+        if (!Intersections.segmentRectangle(cast, left[slot], top[slot], right[slot], bottom[slot])
+                || cast.getToi() >= maxToi) {
+            return null;
+        }
+        out.copyFrom(cast);
+        return handle(slot);
+    }
+
+    @Override
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        return closestSlot(x0, y0, x1, y1, Double.POSITIVE_INFINITY) >= 0;
+    }
+
+    @Override
+    public boolean containsAny(double x, double y) {
+        return slotAt(x, y) >= 0;
+    }
+
+    @Override
+    public Collidable collidableAt(double x, double y) {
+        int slot = slotAt(x, y);
+        return slot < 0 ? null : handle(slot);
+    }
+
+    /**
+     * Returns a table of the blocks that overlap the x-range {@code [minX, maxX]},
+     * in the order of their slots here. A hit on the slice is a hit on this
+     * table's block, through the same {@link Block} handle and listeners, and the
+     * blocks this table adds, removes, restores or releases are added, removed,
+     * restored or released in the slice as well.
+     *
+     * @param minX x of the left edge of the range
+     * @param maxX x of the right edge of the range
+     * @return the slice
+     */
+    @Override
+    public BlockTable slice(double minX, double maxX) {
+        BlockTable slice = new BlockTable();
+        slice.parent = this;
+        slice.sliceMinX = minX;
+        slice.sliceMaxX = maxX;
+        slice.parentSlots = new int[INITIAL_CAPACITY];
+        slice.sliceSlots = new int[0];
+        for (int i = 0; i < count; i++) {
+            slice.copy(i);
+        }
+        slices.add(slice);
+        return slice;
+    }
+
+    /**
+     * Builds the grid the table is queried through, which is otherwise built on the first query.
+     */
+    @Override
+    public void prepare() {
+        ensureIndexed();
+    }
+
+    /**
+     * Draws every alive block, filled with its color and outlined with a darker one.
+     * The blocks are drawn one color at a time (see {@link RectangleBatch}).
+     *
+     * @param d the {@link DrawSurface} to draw on
+     */
+    @Override
+    public void drawOn(DrawSurface d) {
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & ALIVE) != 0) {
+                batch.add((int) left[i], (int) top[i], (int) getWidth(i), (int) getHeight(i), color[i]);
+            }
+        }
+        batch.drawOn(d, palette);
+    }
+
+    /**
+     * Draws the alive blocks that overlap an area, found through the grid's
+     * cells instead of by looking at every block.
+     *
+     * @param d the {@link DrawSurface} to draw on
+     * @param x the x-coordinate of the area's upper-left corner
+     * @param y the y-coordinate of the area's upper-left corner
+     * @param w the width of the area
+     * @param h the height of the area
+     */
+    @Override
+    public void drawArea(DrawSurface d, int x, int y, int w, int h) {
+        if (alive == 0) {
+            return;
+        }
+        ensureIndexed();
+        if (drawn == null || drawn.length < count) {
+            drawn = new int[left.length];
+            drawStamp = 0;
+        }
+        drawStamp++;
+        // The outline of a block reaches one pixel past its right and bottom edges
+        batch.clear();
+        for (int r = rowOf(y - 1); r <= rowOf(y + h); r++) {
+            for (int c = columnOf(x - 1); c <= columnOf(x + w); c++) {
+                int cell = r * columns + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    batchIfOverlaps(cellItems[k], x, y, w, h);
+                }
+                for (int k = extraHead[cell]; k >= 0; k = extraNext[k]) {
+                    batchIfOverlaps(extraSlot[k], x, y, w, h);
+                }
+            }
+        }
+        batch.drawOn(d, palette);
+    }
+
+    @Override
+    public void timePassed() {
+        // Blocks are static
+    }
+
+    /**
+     * Adds the table to the game as a collidable group and a sprite.
+     *
+     * @param game the game to add the table to
+     */
+    public void addToGame(Game game) {
+        game.addCollidableGroup(this);
+        game.addSprite(this);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Finds the slot hit first (strictly before maxToi, ties to the lowest slot), or -1; writes nothing
+    private int closestSlot(double x0, double y0, double x1, double y1, double maxToi) {
+        if (alive == 0) {
+            return -1;
+        }
+        ensureIndexed();
+
+        // Clip the trajectory against the grid area (parametric t in [0, 1]), with the kernel's
+        // tolerance, so that a trajectory that only touches the grid's edge or corner still counts
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double span = Math.max(Math.abs(dx), Math.abs(dy));
+        if (span == 0) {
+            return -1;
+        }
+        double tol = Intersections.EPSILON / span;
+        double tEnter = 0;
+        double tExit = 1;
+        double maxX = originX + columns * cellSize;
+        double maxY = originY + rows * cellSize;
+        if (dx == 0) {
+            if (x0 < originX - Intersections.EPSILON || x0 > maxX + Intersections.EPSILON) {
+                return -1;
+            }
+        } else {
+            double t1 = (originX - x0) / dx;
+            double t2 = (maxX - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y0 < originY - Intersections.EPSILON || y0 > maxY + Intersections.EPSILON) {
+                return -1;
+            }
+        } else {
+            double t1 = (originY - y0) / dy;
+            double t2 = (maxY - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit + tol) {
+            return -1;
+        }
+
+        // Amanatides-Woo traversal of the cells along the clipped trajectory
+        int col = clamp((int) Math.floor((x0 + dx * tEnter - originX) / cellSize), columns);
+        int row = clamp((int) Math.floor((y0 + dy * tEnter - originY) / cellSize), rows);
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        double tDeltaX = stepX != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = stepY != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double tMaxX = stepX != 0
+                ? (originX + (col + (stepX > 0 ? 1 : 0)) * cellSize - x0) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = stepY != 0
+                ? (originY + (row + (stepY > 0 ? 1 : 0)) * cellSize - y0) / dy : Double.POSITIVE_INFINITY;
+
+        int bestSlot = -1;
+        double bestToi = maxToi;
+        while (true) {
+            int cell = row * columns + col;
+            for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                int slot = cellItems[k];
+                if ((flags[slot] & ALIVE) == 0) {
+                    continue;
+                }
+                double toi = Intersections.segmentRectangle(x1 - x0, y1 - y0,
+                        left[slot] - x0, top[slot] - y0, right[slot] - x0, bottom[slot] - y0);
+                if (toi != Intersections.NO_HIT && (toi < bestToi || (toi == bestToi && slot < bestSlot))) {
+                    bestToi = toi;
+                    bestSlot = slot;
+                }
+            }
+            for (int k = extraHead[cell]; k >= 0; k = extraNext[k]) {
+                int slot = extraSlot[k];
+                if ((flags[slot] & ALIVE) == 0) {
+                    continue;
+                }
+                double toi = Intersections.segmentRectangle(x1 - x0, y1 - y0,
+                        left[slot] - x0, top[slot] - y0, right[slot] - x0, bottom[slot] - y0);
+                if (toi != Intersections.NO_HIT && (toi < bestToi || (toi == bestToi && slot < bestSlot))) {
+                    bestToi = toi;
+                    bestSlot = slot;
+                }
+            }
+            double tCellExit = Math.min(tMaxX, tMaxY);
+            // A later cell may still hold a hit at exactly tCellExit on a lower slot
+            if (bestToi < tCellExit || tCellExit > tExit + tol) {
+                break;
+            }
+            if (tMaxX < tMaxY) {
+                col += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+            if (col < 0 || col >= columns || row < 0 || row >= rows) {
+                break;
+            }
+        }
+
+        return bestSlot;
+    }
+
+    // Finds the lowest alive slot that contains the point, or -1; writes nothing
+    private int slotAt(double x, double y) {
+        if (alive == 0) {
+            return -1;
+        }
+        ensureIndexed();
+        int col = (int) Math.floor((x - originX) / cellSize);
+        int row = (int) Math.floor((y - originY) / cellSize);
+        if (col < 0 || col >= columns || row < 0 || row >= rows) {
+            return -1;
+        }
+        int cell = row * columns + col;
+        int found = -1;
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int slot = cellItems[k];
+            if ((flags[slot] & ALIVE) != 0 && (found < 0 || slot < found)
+                    && Intersections.contains(x, y, left[slot], top[slot], right[slot], bottom[slot])) {
+                found = slot;
+            }
+        }
+        for (int k = extraHead[cell]; k >= 0; k = extraNext[k]) {
+            int slot = extraSlot[k];
+            if ((flags[slot] & ALIVE) != 0 && (found < 0 || slot < found)
+                    && Intersections.contains(x, y, left[slot], top[slot], right[slot], bottom[slot])) {
+                found = slot;
+            }
+        }
+        return found;
+    }
+
+    // Adds an alive block to the batch if it overlaps the area and was not added in this draw yet
+    private void batchIfOverlaps(int slot, int x, int y, int w, int h) {
+        if (drawn[slot] == drawStamp || (flags[slot] & ALIVE) == 0
+                || left[slot] > x + w || right[slot] + 1 < x || top[slot] > y + h || bottom[slot] + 1 < y) {
+            return;
+        }
+        drawn[slot] = drawStamp;
+        batch.add((int) left[slot], (int) top[slot], (int) getWidth(slot), (int) getHeight(slot), color[slot]);
+    }
+
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        // Concurrent readers may get here together the first time; only one of them builds the grid
+        synchronized (this) {
+            if (!indexed) {
+                buildIndex();
+            }
+        }
+    }
+
+    private void buildIndex() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double extent = 0;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, left[i]);
+            minY = Math.min(minY, top[i]);
+            maxX = Math.max(maxX, right[i]);
+            maxY = Math.max(maxY, bottom[i]);
+            extent += Math.max(right[i] - left[i], bottom[i] - top[i]);
+        }
+        // One cell per typical block, but never many more cells than blocks
+        double size = Math.max(1, extent / count);
+        double cells = Math.ceil((maxX - minX) / size + 1) * Math.ceil((maxY - minY) / size + 1);
+        if (cells > 4.0 * count + 16) {
+            size *= Math.sqrt(cells / (4.0 * count + 16));
+        }
+        originX = minX;
+        originY = minY;
+        cellSize = size;
+        columns = Math.max(1, (int) Math.floor((maxX - minX) / size) + 1);
+        rows = Math.max(1, (int) Math.floor((maxY - minY) / size) + 1);
+
+        // Counting pass, prefix sums, then fill; a block also goes into the cells it only
+        // touches within the kernel's tolerance, so that the traversal finds those hits too
+        double pad = Intersections.EPSILON;
+        cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            for (int r = rowOf(top[i] - pad); r <= rowOf(bottom[i] + pad); r++) {
+                for (int c = columnOf(left[i] - pad); c <= columnOf(right[i] + pad); c++) {
+                    cellStart[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < columns * rows; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+        cellItems = new int[cellStart[columns * rows]];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < count; i++) {
+            for (int r = rowOf(top[i] - pad); r <= rowOf(bottom[i] + pad); r++) {
+                for (int c = columnOf(left[i] - pad); c <= columnOf(right[i] + pad); c++) {
+                    cellItems[fill[r * columns + c]++] = i;
+                }
+            }
+        }
+        extraHead = new int[columns * rows];
+        Arrays.fill(extraHead, -1);
+        extraSlot = new int[16];
+        extraNext = new int[16];
+        extraCount = 0;
+        indexed = true;
+    }
+
+    // Puts a block added after the grid was built into the cells it covers, the same way buildIndex does.
+    // A block outside the grid's area, or too many such blocks, make the next query build the grid again.
+    private void insert(int slot) {
+        if (!indexed) {
+            return;
+        }
+        if (left[slot] < originX || right[slot] > originX + columns * cellSize
+                || top[slot] < originY || bottom[slot] > originY + rows * cellSize
+                || extraCount > cellItems.length / 4 + 64) {
+            indexed = false;
+            return;
+        }
+        double pad = Intersections.EPSILON;
+        for (int r = rowOf(top[slot] - pad); r <= rowOf(bottom[slot] + pad); r++) {
+            for (int c = columnOf(left[slot] - pad); c <= columnOf(right[slot] + pad); c++) {
+                if (extraCount == extraSlot.length) {
+                    extraSlot = Arrays.copyOf(extraSlot, extraCount * 2);
+                    extraNext = Arrays.copyOf(extraNext, extraCount * 2);
+                }
+                int cell = r * columns + c;
+                extraSlot[extraCount] = slot;
+                extraNext[extraCount] = extraHead[cell];
+                extraHead[cell] = extraCount++;
+            }
+        }
+    }
+
+    // Takes the slot of a released block, or a new one at the end
+    private int nextSlot() {
+        if (releasedCount > 0) {
+            return released[--releasedCount];
+        }
+        if (count == left.length) {
+            grow(count * 2);
+        }
+        return count++;
+    }
+
+    // On a slice: copies a slot of the parent, removed or not, if the block overlaps the slice's range
+    private void copy(int from) {
+        BlockTable p = parent;
+        if ((p.flags[from] & RELEASED) != 0 || p.right[from] < sliceMinX || p.left[from] > sliceMaxX) {
+            return;
+        }
+        int slot = nextSlot();
+        left[slot] = p.left[from];
+        top[slot] = p.top[from];
+        right[slot] = p.right[from];
+        bottom[slot] = p.bottom[from];
+        color[slot] = paletteIndexOf(p.palette.get(p.color[from]));
+        flags[slot] = p.flags[from];
+        if ((flags[slot] & ALIVE) != 0) {
+            alive++;
+        }
+        insert(slot);
+        parentSlots[slot] = from;
+        if (from >= sliceSlots.length) {
+            int size = Math.max(p.left.length, from + 1);
+            int old = sliceSlots.length;
+            sliceSlots = Arrays.copyOf(sliceSlots, size);
+            Arrays.fill(sliceSlots, old, size, -1);
+        }
+        sliceSlots[from] = slot;
+    }
+
+    // On a slice: the slot that copies a slot of the parent, or -1
+    private int sliceSlotOf(int from) {
+        return from < sliceSlots.length ? sliceSlots[from] : -1;
+    }
+
+    private int columnOf(double x) {
+        return clamp((int) Math.floor((x - originX) / cellSize), columns);
+    }
+
+    private int rowOf(double y) {
+        return clamp((int) Math.floor((y - originY) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+
+    private int paletteIndexOf(Color c) {
+        Integer index = paletteIndex.get(c);
+        if (index == null) {
+            index = palette.size();
+            palette.add(c);
+            paletteIndex.put(c, index);
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        right = Arrays.copyOf(right, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        color = Arrays.copyOf(color, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        if (parentSlots != null) {
+            parentSlots = Arrays.copyOf(parentSlots, capacity);
+        }
+    }
+}
@@ -16,9 +16,18 @@ import java.awt.Color;
  * and reflects the ball in different directions depending on the collision region.
  */
 public class Paddle implements Sprite, Collidable {
+    /**
+     * How far the paddle moves per update at the default tick rate.
+     */
+    public static final double DEFAULT_SPEED = 5;
+
     private Rectangle rectangle = new Rectangle(new Point(360, 560), 200, 20, Color.BLUE);
     private final KeyboardSensor keyboard;
-    private final int speed = 5;
+    private final double speed;
+    private double previousX = rectangle.getUpperLeft().getX();
+    private Color outline;
+    private Color outlineOf;
+    private Game game;
 
     /**
      * Constructs a new Paddle with keyboard control.
@@ -26,7 +35,18 @@ public class Paddle implements Sprite, Collidable {
      * @param keyboard the keyboard sensor used to detect left/right input
      */
     public Paddle(KeyboardSensor keyboard) {
+        this(keyboard, DEFAULT_SPEED);
+    }
+
+    /**
+     * Constructs a new Paddle with keyboard control and the given speed.
+     *
+     * @param keyboard the keyboard sensor used to detect left/right input
+     * @param speed    how far the paddle moves per update
+     */
+    public Paddle(KeyboardSensor keyboard, double speed) {
         this.keyboard = keyboard;
+        this.speed = speed;
     }
 
     /**
@@ -40,6 +60,7 @@ public class Paddle implements Sprite, Collidable {
         }
         rectangle = new Rectangle(new Point(newX, this.rectangle.getUpperLeft().getY()),
                 this.rectangle.getWidth(), this.rectangle.getHeight(), this.rectangle.getColor());
+        notifyMoved();
     }
 
     /**
@@ -53,6 +74,17 @@ public class Paddle implements Sprite, Collidable {
         }
         rectangle = new Rectangle(new Point(newX, this.rectangle.getUpperLeft().getY()),
                 this.rectangle.getWidth(), this.rectangle.getHeight(), this.rectangle.getColor());
+        notifyMoved();
+    }
+
+    /**
+     * Tells the game that the paddle's collision rectangle has changed,
+     * so that the collision index can re-index it.
+     */
+    private void notifyMoved() {
+        if (game != null) {
+            game.updateCollidable(this);
+        }
     }
 
     /**
@@ -60,6 +92,7 @@ public class Paddle implements Sprite, Collidable {
      */
     @Override
     public void timePassed() {
+        previousX = rectangle.getUpperLeft().getX();
         if (keyboard.isPressed(KeyboardSensor.LEFT_KEY)) {
             moveLeft();
         } else if (keyboard.isPressed(KeyboardSensor.RIGHT_KEY)) {
@@ -74,7 +107,48 @@ public class Paddle implements Sprite, Collidable {
      */
     @Override
     public void drawOn(DrawSurface d) {
-        rectangle.drawOn(d);
+        draw(d, rectangle.getUpperLeft().getX());
+    }
+
+    /**
+     * Draws the paddle between its positions before and after the last move.
+     * A move that wrapped around the screen is not interpolated.
+     *
+     * @param d     the drawing surface
+     * @param alpha how far to interpolate, from 0 (previous position) to 1 (current position)
+     */
+    @Override
+    public void drawOn(DrawSurface d, double alpha) {
+        double x = rectangle.getUpperLeft().getX();
+        double moved = x - previousX;
+        if (moved == 0 || alpha >= 1 || Math.abs(moved) > speed) {
+            draw(d, x);
+        } else {
+            draw(d, previousX + moved * alpha);
+        }
+    }
+
+    /**
+     * Draws the paddle with its left edge at {@code x}, filled with its color and
+     * outlined with a darker one, which is only recomputed when the color changes.
+     *
+     * @param d the drawing surface
+     * @param x x of the left edge
+     */
+    private void draw(DrawSurface d, double x) {
+        Color fill = rectangle.getColor();
+        if (outlineOf != fill) {
+            outline = fill.darker();
+            outlineOf = fill;
+        }
+        int left = (int) x;
+        int top = (int) rectangle.getUpperLeft().getY();
+        int w = (int) rectangle.getWidth();
+        int h = (int) rectangle.getHeight();
+        d.setColor(fill);
+        d.fillRectangle(left, top, w, h);
+        d.setColor(outline);
+        d.drawRectangle(left, top, w, h);
     }
 
     /**
@@ -130,6 +204,7 @@ public class Paddle implements Sprite, Collidable {
      * @param game the game to add the paddle to
      */
     public void addToGame(Game game) {
+        this.game = game;
         game.addCollidable(this);
         game.addSprite(this);
     }
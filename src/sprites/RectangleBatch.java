@@ -0,0 +1,156 @@
+package sprites;
+
+import biuoop.DrawSurface;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code RectangleBatch} class draws many filled and outlined rectangles,
+ * such as the blocks of a {@link BlockTable} or a {@link TileMapCollidable},
+ * with as few color changes as possible: the rectangles are sorted by color and
+ * drawn one color at a time, all the fills of a color, then all its outlines.
+ * The batch is meant to be cleared and reused every frame.
+ */
+public class RectangleBatch {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] xs;
+    private int[] ys;
+    private int[] widths;
+    private int[] heights;
+    private int[] colors;
+    private int[] order;
+    private int[] starts;
+    private Color[] darker;
+    private Color[] darkerOf;
+    private int count;
+
+    /**
+     * Constructs an empty batch.
+     */
+    public RectangleBatch() {
+        this.xs = new int[INITIAL_CAPACITY];
+        this.ys = new int[INITIAL_CAPACITY];
+        this.widths = new int[INITIAL_CAPACITY];
+        this.heights = new int[INITIAL_CAPACITY];
+        this.colors = new int[INITIAL_CAPACITY];
+        this.order = new int[INITIAL_CAPACITY];
+        this.starts = new int[1];
+        this.darker = new Color[0];
+        this.darkerOf = new Color[0];
+    }
+
+    /**
+     * Removes every rectangle from the batch. The cached outline colors are kept.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns the number of rectangles in the batch.
+     *
+     * @return the rectangle count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Adds a rectangle to the batch.
+     *
+     * @param x     x of the upper-left corner
+     * @param y     y of the upper-left corner
+     * @param w     the width
+     * @param h     the height
+     * @param color the index of the fill color in the palette passed to {@link #drawOn(DrawSurface, List)}
+     */
+    public void add(int x, int y, int w, int h, int color) {
+        if (count == xs.length) {
+            grow();
+        }
+        xs[count] = x;
+        ys[count] = y;
+        widths[count] = w;
+        heights[count] = h;
+        colors[count] = color;
+        count++;
+    }
+
+    /**
+     * Draws every rectangle of the batch, one color at a time: the fills in the
+     * palette color, then the outlines in its darker shade.
+     *
+     * @param d       the {@link DrawSurface} to draw on
+     * @param palette the colors that the rectangles' color indexes refer to
+     */
+    public void drawOn(DrawSurface d, List<Color> palette) {
+        int k = palette.size();
+        sortByColor(k);
+        for (int c = 0; c < k; c++) {
+            int from = starts[c];
+            int to = starts[c + 1];
+            if (from == to) {
+                continue;
+            }
+            Color fill = palette.get(c);
+            d.setColor(fill);
+            for (int j = from; j < to; j++) {
+                int i = order[j];
+                d.fillRectangle(xs[i], ys[i], widths[i], heights[i]);
+            }
+            d.setColor(outlineOf(c, fill));
+            for (int j = from; j < to; j++) {
+                int i = order[j];
+                d.drawRectangle(xs[i], ys[i], widths[i], heights[i]);
+            }
+        }
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // Counting sort: order lists the rectangles grouped by color, color c in [starts[c], starts[c + 1])
+    private void sortByColor(int k) {
+        if (starts.length < k + 2) {
+            starts = new int[k + 2];
+        } else {
+            Arrays.fill(starts, 0);
+        }
+        for (int i = 0; i < count; i++) {
+            starts[colors[i] + 2]++;
+        }
+        for (int c = 2; c < k + 2; c++) {
+            starts[c] += starts[c - 1];
+        }
+        // starts[c + 1] is now where color c begins; it ends up as where color c ends
+        for (int i = 0; i < count; i++) {
+            order[starts[colors[i] + 1]++] = i;
+        }
+    }
+
+    // The darker shade of a palette entry, recomputed only if the entry changed
+    private Color outlineOf(int c, Color fill) {
+        if (c >= darker.length) {
+            int size = Math.max(c + 1, darker.length * 2);
+            darker = Arrays.copyOf(darker, size);
+            darkerOf = Arrays.copyOf(darkerOf, size);
+        }
+        if (darkerOf[c] != fill) {
+            darker[c] = fill.darker();
+            darkerOf[c] = fill;
+        }
+        return darker[c];
+    }
+
+    private void grow() {
+        int capacity = xs.length * 2;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+}
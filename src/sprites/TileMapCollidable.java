@@ -0,0 +1,673 @@
+package sprites;
+
+import biuoop.DrawSurface;
+import game.Collidable;
+import game.CollidableGroup;
+import game.Game;
+import game.Sprite;
+import geometry.Intersections;
+import geometry.SegmentHit;
+import listeners.HitListener;
+import listeners.HitListenerList;
+import listeners.HitNotifier;
+
+import java.awt.Color;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code TileMapCollidable} class represents a whole aligned grid of bricks
+ * (tiles) as a single {@link CollidableGroup}.
+ * Trajectory queries walk only the tiles the segment passes through, with an
+ * Amanatides-Woo DDA, and a per-row occupancy bitset lets the walk skip the
+ * part of a row that holds no bricks without looking at its tiles.
+ * A tile's slot is {@code row * columns + column}. As with {@link BlockTable},
+ * a {@link Block} handle is created for a tile only when it is hit, and the
+ * listeners added to the map (for example {@code BlockRemover} and
+ * {@code ScoreTrackingListener}) are notified for every tile hit. A
+ * {@link #slice(double, double) slice} is a smaller map of the columns of an
+ * x-range that follows every change to their tiles.
+ */
+public class TileMapCollidable implements BlockStore, CollidableGroup, Sprite, HitNotifier {
+    private static final int EMPTY = -1;
+
+    private final double originX;
+    private final double originY;
+    private final double tileWidth;
+    private final double tileHeight;
+    private final int columns;
+    private final int rows;
+    private final int wordsPerRow;
+    private final int[] tiles;
+    private final boolean[] removable;
+    private final long[] occupancy;
+    private final List<Color> palette;
+    private final Map<Color, Integer> paletteIndex;
+    private final Map<Integer, Block> handles;
+    private final HitListenerList hitListeners;
+    private final RectangleBatch batch;
+    private final SegmentHit cast;
+    private final List<TileMapCollidable> slices;
+    // Set on a slice only: the map it copies, and the first of the map's columns it covers
+    private TileMapCollidable parent;
+    private int firstColumn;
+    private int occupied;
+
+    /**
+     * Constructs an empty tile map.
+     *
+     * @param originX    x of the upper-left corner of the map
+     * @param originY    y of the upper-left corner of the map
+     * @param tileWidth  the width of every tile
+     * @param tileHeight the height of every tile
+     * @param columns    the number of tile columns
+     * @param rows       the number of tile rows
+     */
+    public TileMapCollidable(double originX, double originY, double tileWidth, double tileHeight,
+                             int columns, int rows) {
+        if (tileWidth <= 0 || tileHeight <= 0 || columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Tile map dimensions must be positive");
+        }
+        this.originX = originX;
+        this.originY = originY;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.columns = columns;
+        this.rows = rows;
+        this.wordsPerRow = (columns + 63) >>> 6;
+        this.tiles = new int[columns * rows];
+        Arrays.fill(this.tiles, EMPTY);
+        this.removable = new boolean[columns * rows];
+        this.occupancy = new long[wordsPerRow * rows];
+        this.palette = new ArrayList<>();
+        this.paletteIndex = new HashMap<>();
+        this.handles = new ConcurrentHashMap<>();
+        this.hitListeners = new HitListenerList();
+        this.batch = new RectangleBatch();
+        this.cast = new SegmentHit();
+        this.slices = new ArrayList<>();
+    }
+
+    /**
+     * Places a brick in a tile, replacing any brick that was there.
+     *
+     * @param column      the tile column
+     * @param row         the tile row
+     * @param color       the brick's color
+     * @param isRemovable true if the brick can be removed from the game
+     * @return the slot of the tile
+     */
+    public int setTile(int column, int row, Color color, boolean isRemovable) {
+        int slot = slotOf(column, row);
+        if (!isOccupied(slot)) {
+            occupied++;
+        }
+        tiles[slot] = paletteIndexOf(color);
+        removable[slot] = isRemovable;
+        occupancy[row * wordsPerRow + (column >>> 6)] |= 1L << column;
+        for (TileMapCollidable slice : slices) {
+            if (slice.covers(column)) {
+                slice.setTile(column - slice.firstColumn, row, color, isRemovable);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Places the bricks of the whole map at once, replacing every tile. The
+     * tiles are read row by row as indexes into {@code colors}, with a negative
+     * index for an empty tile, and copied in one bulk read, so a grid loaded from
+     * a memory-mapped level file (see {@link game.LevelFile}) is not parsed tile by tile.
+     *
+     * @param source      the color index of every tile, row by row
+     * @param colors      the colors the indexes refer to
+     * @param isRemovable true if the bricks can be removed from the game
+     */
+    public void setTiles(IntBuffer source, List<Color> colors, boolean isRemovable) {
+        if (source.remaining() != tiles.length) {
+            throw new IllegalArgumentException("Expected " + tiles.length + " tiles, got " + source.remaining());
+        }
+        source.duplicate().get(tiles);
+        Arrays.fill(occupancy, 0);
+        Arrays.fill(removable, isRemovable);
+        handles.clear();
+        occupied = 0;
+        // Colors join the palette in order of first use, as they do with setTile
+        int[] remap = new int[colors.size()];
+        Arrays.fill(remap, EMPTY);
+        for (int slot = 0; slot < tiles.length; slot++) {
+            int c = tiles[slot];
+            if (c < 0) {
+                tiles[slot] = EMPTY;
+                continue;
+            }
+            if (remap[c] == EMPTY) {
+                remap[c] = paletteIndexOf(colors.get(c));
+            }
+            tiles[slot] = remap[c];
+            int column = slot % columns;
+            occupancy[(slot / columns) * wordsPerRow + (column >>> 6)] |= 1L << column;
+            occupied++;
+        }
+        for (TileMapCollidable slice : slices) {
+            slice.copyAll();
+        }
+    }
+
+    /**
+     * Returns the slot of a tile.
+     *
+     * @param column the tile column
+     * @param row    the tile row
+     * @return the slot
+     */
+    public int slotOf(int column, int row) {
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("No tile at column " + column + ", row " + row);
+        }
+        return row * columns + column;
+    }
+
+    /**
+     * @param slot the slot of the tile
+     * @return true if the tile holds a brick
+     */
+    public boolean isOccupied(int slot) {
+        int column = slot % columns;
+        return (occupancy[(slot / columns) * wordsPerRow + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    /**
+     * Returns the number of tiles that hold a brick.
+     *
+     * @return the number of bricks
+     */
+    public int getOccupiedCount() {
+        return occupied;
+    }
+
+    /**
+     * @return the number of tile columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of tile rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public double getX(int slot) {
+        return originX + (slot % columns) * tileWidth;
+    }
+
+    @Override
+    public double getY(int slot) {
+        return originY + (slot / columns) * tileHeight;
+    }
+
+    @Override
+    public double getWidth(int slot) {
+        return tileWidth;
+    }
+
+    @Override
+    public double getHeight(int slot) {
+        return tileHeight;
+    }
+
+    @Override
+    public Color getColor(int slot) {
+        return tiles[slot] == EMPTY ? null : palette.get(tiles[slot]);
+    }
+
+    @Override
+    public boolean isRemovable(int slot) {
+        return removable[slot];
+    }
+
+    @Override
+    public boolean isDeathRegion(int slot) {
+        return false;
+    }
+
+    @Override
+    public boolean isAlive(int slot) {
+        return isOccupied(slot);
+    }
+
+    /**
+     * Clears a tile. The tile keeps its color, so it can be restored.
+     *
+     * @param slot the slot of the tile
+     */
+    @Override
+    public void remove(int slot) {
+        if (!isOccupied(slot)) {
+            return;
+        }
+        occupied--;
+        int column = slot % columns;
+        occupancy[(slot / columns) * wordsPerRow + (column >>> 6)] &= ~(1L << column);
+        handles.remove(slot);
+        for (TileMapCollidable slice : slices) {
+            if (slice.covers(column)) {
+                slice.remove((slot / columns) * slice.columns + column - slice.firstColumn);
+            }
+        }
+    }
+
+    /**
+     * Puts a removed brick back into its tile.
+     *
+     * @param slot the slot of the tile
+     */
+    @Override
+    public void restore(int slot) {
+        if (!isOccupied(slot) && tiles[slot] != EMPTY) {
+            setTile(slot % columns, slot / columns, palette.get(tiles[slot]), removable[slot]);
+        }
+    }
+
+    /**
+     * Returns the {@link Block} handle of a tile, creating it on first use.
+     *
+     * @param slot the slot of the tile
+     * @return the handle
+     */
+    public Block handle(int slot) {
+        if (parent != null) {
+            return parent.handle((slot / columns) * parent.columns + slot % columns + firstColumn);
+        }
+        return handles.computeIfAbsent(slot, s -> new Block(this, s));
+    }
+
+    @Override
+    public void addHitListener(HitListener hl) {
+        hitListeners.add(hl);
+    }
+
+    @Override
+    public void removeHitListener(HitListener hl) {
+        hitListeners.remove(hl);
+    }
+
+    @Override
+    public void notifyHit(Block beingHit, Ball hitter) {
+        hitListeners.notifyHit(beingHit, hitter);
+    }
+
+    @Override
+    public Collidable castSegment(double x0, double y0, double x1, double y1, double maxToi, SegmentHit out) {
+        int slot = closestSlot(x0, y0, x1, y1, maxToi);
+        if (slot < 0) {
+            return null;
+        }
+        // Cast into a scratch record, so that a miss leaves out as it was
+        cast.setSegment(x0, y0, x1, y1);
+        if (!Intersections.segmentRectangle(cast, getX(slot), getY(slot),
+                getX(slot) + tileWidth, getY(slot) + tileHeight) || cast.getToi() >= maxToi) {
+            return null;
+        }
+        out.copyFrom(cast);
+        return handle(slot);
+    }
+
+    @Override
+    public boolean intersectsAny(double x0, double y0, double x1, double y1) {
+        return closestSlot(x0, y0, x1, y1, Double.POSITIVE_INFINITY) >= 0;
+    }
+
+    @Override
+    public boolean containsAny(double x, double y) {
+        return slotAt(x, y) >= 0;
+    }
+
+    @Override
+    public Collidable collidableAt(double x, double y) {
+        int slot = slotAt(x, y);
+        return slot < 0 ? null : handle(slot);
+    }
+
+    /**
+     * Returns a map of the columns that overlap the x-range {@code [minX, maxX]}.
+     * A hit on the slice is a hit on this map's tile, through the same
+     * {@link Block} handle and listeners, and the tiles this map sets, removes
+     * or restores are set, removed or restored in the slice as well.
+     *
+     * @param minX x of the left edge of the range
+     * @param maxX x of the right edge of the range
+     * @return the slice, or {@code null} if the range is outside the map
+     */
+    @Override
+    public TileMapCollidable slice(double minX, double maxX) {
+        if (maxX < originX || minX > originX + columns * tileWidth) {
+            return null;
+        }
+        int first = clamp((int) Math.floor((minX - originX) / tileWidth), columns);
+        int last = clamp((int) Math.floor((maxX - originX) / tileWidth), columns);
+        TileMapCollidable slice = new TileMapCollidable(originX + first * tileWidth, originY, tileWidth, tileHeight,
+                last - first + 1, rows);
+        slice.parent = this;
+        slice.firstColumn = first;
+        slice.copyAll();
+        slices.add(slice);
+        return slice;
+    }
+
+    /**
+     * Draws every brick, filled with its color and outlined with a darker one.
+     * The bricks are drawn one color at a time (see {@link RectangleBatch}).
+     *
+     * @param d the {@link DrawSurface} to draw on
+     */
+    @Override
+    public void drawOn(DrawSurface d) {
+        int w = (int) tileWidth;
+        int h = (int) tileHeight;
+        batch.clear();
+        for (int slot = 0; slot < tiles.length; slot++) {
+            if (isOccupied(slot)) {
+                batch.add((int) getX(slot), (int) getY(slot), w, h, tiles[slot]);
+            }
+        }
+        batch.drawOn(d, palette);
+    }
+
+    /**
+     * Draws the bricks of the tiles that overlap an area, found from the area's
+     * columns and rows instead of by looking at every tile.
+     *
+     * @param d the {@link DrawSurface} to draw on
+     * @param x the x-coordinate of the area's upper-left corner
+     * @param y the y-coordinate of the area's upper-left corner
+     * @param w the width of the area
+     * @param h the height of the area
+     */
+    @Override
+    public void drawArea(DrawSurface d, int x, int y, int w, int h) {
+        // The outline of a brick reaches one pixel past its right and bottom edges
+        if (occupied == 0 || x + w < originX || x - 1 > originX + columns * tileWidth
+                || y + h < originY || y - 1 > originY + rows * tileHeight) {
+            return;
+        }
+        int fromCol = clamp((int) Math.floor((x - 1 - originX) / tileWidth), columns);
+        int toCol = clamp((int) Math.floor((x + w - originX) / tileWidth), columns);
+        int fromRow = clamp((int) Math.floor((y - 1 - originY) / tileHeight), rows);
+        int toRow = clamp((int) Math.floor((y + h - originY) / tileHeight), rows);
+        int tw = (int) tileWidth;
+        int th = (int) tileHeight;
+        batch.clear();
+        for (int row = fromRow; row <= toRow; row++) {
+            if (!rowOccupied(row, fromCol, toCol)) {
+                continue;
+            }
+            for (int column = fromCol; column <= toCol; column++) {
+                int slot = row * columns + column;
+                if (isOccupied(slot)) {
+                    batch.add((int) getX(slot), (int) getY(slot), tw, th, tiles[slot]);
+                }
+            }
+        }
+        batch.drawOn(d, palette);
+    }
+
+    @Override
+    public void timePassed() {
+        // Tiles are static
+    }
+
+    /**
+     * Adds the tile map to the game as a collidable group and a sprite.
+     *
+     * @param game the game to add the map to
+     */
+    public void addToGame(Game game) {
+        game.addCollidableGroup(this);
+        game.addSprite(this);
+    }
+
+    // --- Private helper methods below (used internally) ---
+
+    // On a slice: whether a column of the parent is one of the slice's columns
+    private boolean covers(int parentColumn) {
+        return parentColumn >= firstColumn && parentColumn < firstColumn + columns;
+    }
+
+    // On a slice: copies every tile of the slice's columns from the parent, removed ones with their color
+    private void copyAll() {
+        Arrays.fill(tiles, EMPTY);
+        Arrays.fill(occupancy, 0);
+        occupied = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int from = row * parent.columns + column + firstColumn;
+                int slot = row * columns + column;
+                if (parent.tiles[from] == EMPTY) {
+                    continue;
+                }
+                tiles[slot] = paletteIndexOf(parent.palette.get(parent.tiles[from]));
+                removable[slot] = parent.removable[from];
+                if (parent.isOccupied(from)) {
+                    occupancy[row * wordsPerRow + (column >>> 6)] |= 1L << column;
+                    occupied++;
+                }
+            }
+        }
+    }
+
+    // Finds the tile hit first (strictly before maxToi, ties to the lowest slot), or -1; writes nothing
+    private int closestSlot(double x0, double y0, double x1, double y1, double maxToi) {
+        if (occupied == 0) {
+            return -1;
+        }
+
+        // Clip the trajectory against the map area (parametric t in [0, 1]), with the kernel's
+        // tolerance, so that a trajectory that only touches the map's edge or corner still counts
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double span = Math.max(Math.abs(dx), Math.abs(dy));
+        if (span == 0) {
+            return -1;
+        }
+        double tol = Intersections.EPSILON / span;
+        double tEnter = 0;
+        double tExit = 1;
+        double maxX = originX + columns * tileWidth;
+        double maxY = originY + rows * tileHeight;
+        if (dx == 0) {
+            if (x0 < originX - Intersections.EPSILON || x0 > maxX + Intersections.EPSILON) {
+                return -1;
+            }
+        } else {
+            double t1 = (originX - x0) / dx;
+            double t2 = (maxX - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0) {
+            if (y0 < originY - Intersections.EPSILON || y0 > maxY + Intersections.EPSILON) {
+                return -1;
+            }
+        } else {
+            double t1 = (originY - y0) / dy;
+            double t2 = (maxY - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (tEnter > tExit + tol) {
+            return -1;
+        }
+
+        // Amanatides-Woo traversal of the tiles along the clipped trajectory
+        int col = clamp((int) Math.floor((x0 + dx * tEnter - originX) / tileWidth), columns);
+        int row = clamp((int) Math.floor((y0 + dy * tEnter - originY) / tileHeight), rows);
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        double tDeltaX = stepX != 0 ? tileWidth / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = stepY != 0 ? tileHeight / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double tMaxX = stepX != 0
+                ? (originX + (col + (stepX > 0 ? 1 : 0)) * tileWidth - x0) / dx : Double.POSITIVE_INFINITY;
+        double tMaxY = stepY != 0
+                ? (originY + (row + (stepY > 0 ? 1 : 0)) * tileHeight - y0) / dy : Double.POSITIVE_INFINITY;
+
+        // Crossings closer than the tolerance count as simultaneous
+        int bestSlot = -1;
+        double bestToi = maxToi;
+        while (true) {
+            // Work out which columns of this row the segment crosses before moving to the next row
+            int lastCol = col;
+            double rowTMaxX = tMaxX;
+            boolean leavesMap = false;
+            // Through a tile corner, stepping right first (or down first when moving left)
+            // keeps every tile that touches the corner within the checked neighbourhoods
+            while ((rowTMaxX < tMaxY - tol || (rowTMaxX <= tMaxY + tol && stepX > 0))
+                    && rowTMaxX <= tExit + tol) {
+                int next = lastCol + stepX;
+                if (next < 0 || next >= columns) {
+                    leavesMap = true;
+                    break;
+                }
+                lastCol = next;
+                rowTMaxX += tDeltaX;
+            }
+
+            // Within the kernel's tolerance a tile also touches the cells around it,
+            // so a cell is checked together with its eight neighbours
+            int fromCol = Math.max(0, Math.min(col, lastCol) - 1);
+            int toCol = Math.min(columns - 1, Math.max(col, lastCol) + 1);
+            if (rowOccupied(row, fromCol, toCol) || (row > 0 && rowOccupied(row - 1, fromCol, toCol))
+                    || (row + 1 < rows && rowOccupied(row + 1, fromCol, toCol))) {
+                // Visit the cells of this row one by one
+                while (true) {
+                    int slot = closestAround(row, col, x0, y0, x1, y1, bestToi);
+                    double toi = slot < 0 ? Intersections.NO_HIT : tileToi(slot, x0, y0, x1, y1);
+                    if (slot >= 0 && isCloser(toi, slot, bestToi, bestSlot)) {
+                        bestSlot = slot;
+                        bestToi = toi;
+                    }
+                    if (col == lastCol) {
+                        break;
+                    }
+                    if (bestToi < tMaxX) {
+                        return bestSlot;
+                    }
+                    col += stepX;
+                    tMaxX += tDeltaX;
+                }
+            } else {
+                // Nothing in this stretch of the row: skip straight to its end
+                col = lastCol;
+                tMaxX = rowTMaxX;
+            }
+
+            if (leavesMap || bestToi < tMaxY || tMaxY > tExit + tol || stepY == 0) {
+                break;
+            }
+            row += stepY;
+            tMaxY += tDeltaY;
+            if (row < 0 || row >= rows) {
+                break;
+            }
+        }
+        return bestSlot;
+    }
+
+    // Finds the lowest occupied slot that contains the point, or -1; writes nothing
+    private int slotAt(double x, double y) {
+        if (occupied == 0) {
+            return -1;
+        }
+        int col = (int) Math.floor((x - originX) / tileWidth);
+        int row = (int) Math.floor((y - originY) / tileHeight);
+        // A point on a tile border also belongs to the tile before it
+        for (int r = row - 1; r <= row; r++) {
+            for (int c = col - 1; c <= col; c++) {
+                if (r < 0 || r >= rows || c < 0 || c >= columns || !isOccupied(r * columns + c)) {
+                    continue;
+                }
+                int slot = r * columns + c;
+                if (Intersections.contains(x, y, getX(slot), getY(slot),
+                        getX(slot) + tileWidth, getY(slot) + tileHeight)) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Tests the tile of a cell and the tiles around it, which touch the cell within the tolerance;
+    // returns the slot of the closest hit no later than bestToi (ties to the lowest slot), or -1
+    private int closestAround(int row, int col, double x0, double y0, double x1, double y1, double bestToi) {
+        int bestSlot = -1;
+        double toiLimit = bestToi;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(columns - 1, col + 1); c++) {
+                int slot = r * columns + c;
+                if (!isOccupied(slot)) {
+                    continue;
+                }
+                double toi = tileToi(slot, x0, y0, x1, y1);
+                if (toi != Intersections.NO_HIT && (toi < toiLimit || (toi == toiLimit && bestSlot < 0))) {
+                    toiLimit = toi;
+                    bestSlot = slot;
+                }
+            }
+        }
+        return bestSlot;
+    }
+
+    // Whether a hit beats the best one so far: closer, or as close on a lower slot
+    private static boolean isCloser(double toi, int slot, double bestToi, int bestSlot) {
+        return toi < bestToi || (toi == bestToi && slot < bestSlot);
+    }
+
+    private double tileToi(int slot, double x0, double y0, double x1, double y1) {
+        double x = getX(slot);
+        double y = getY(slot);
+        return Intersections.segmentRectangle(x1 - x0, y1 - y0, x - x0, y - y0, x + tileWidth - x0,
+                y + tileHeight - y0);
+    }
+
+    private boolean rowOccupied(int row, int fromCol, int toCol) {
+        int base = row * wordsPerRow;
+        int firstWord = fromCol >>> 6;
+        int lastWord = toCol >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) {
+                mask &= -1L << fromCol;
+            }
+            if (w == lastWord) {
+                mask &= -1L >>> (63 - (toCol & 63));
+            }
+            if ((occupancy[base + w] & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+
+    private int paletteIndexOf(Color c) {
+        Integer index = paletteIndex.get(c);
+        if (index == null) {
+            index = palette.size();
+            palette.add(c);
+            paletteIndex.put(c, index);
+        }
+        return index;
+    }
+}